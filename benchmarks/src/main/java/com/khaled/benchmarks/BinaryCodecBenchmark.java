@@ -0,0 +1,105 @@
+package com.khaled.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the generated {@code builder.binary} codec with java serialization of an equivalent record, the
+ * generated implementation is not serializable.
+ *
+ * @author khaled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+    record SerializableLargeCollection(String name, int age, ArrayList<Integer> ids, LinkedHashSet<String> tags)
+            implements Serializable {
+
+    }
+
+    @Param({"10", "10000"})
+    private int size;
+
+    private LargeCollection prototype;
+    private SerializableLargeCollection serializable;
+
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        List<Integer> ids = IntStream.range(0, size).boxed().toList();
+        Set<String> tags = IntStream.range(0, size)
+                .mapToObj(it -> "tag-" + it)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        prototype = LargeCollection.builder()
+                .name("khaled")
+                .age(34)
+                .ids(ids)
+                .tags(tags)
+                .build();
+        serializable = new SerializableLargeCollection("khaled", 34, new ArrayList<>(ids), new LinkedHashSet<>(tags));
+
+        buffer = ByteBuffer.allocate(prototype.serializedSize());
+        encoded = ByteBuffer.allocate(prototype.serializedSize());
+        prototype.writeTo(encoded);
+        serialized = javaWrite();
+    }
+
+    @Benchmark
+    public ByteBuffer binaryWrite() {
+        buffer.clear();
+        prototype.writeTo(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public LargeCollection binaryRead() {
+        return LargeCollection.readFrom(encoded.clear());
+    }
+
+    @Benchmark
+    public byte[] javaWrite() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(serializable);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaRead() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return input.readObject();
+        }
+    }
+}
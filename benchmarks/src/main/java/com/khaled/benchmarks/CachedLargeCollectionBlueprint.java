@@ -0,0 +1,25 @@
+package com.khaled.benchmarks;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * same shape as {@link LargeCollectionBlueprint}, generated with {@code builder.cacheHashCode}.
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface CachedLargeCollectionBlueprint {
+
+    String name();
+
+    int age();
+
+    @Option.Singular
+    List<Integer> ids();
+
+    @Option.Singular
+    Set<String> tags();
+}
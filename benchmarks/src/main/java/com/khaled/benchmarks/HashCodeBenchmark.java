@@ -0,0 +1,75 @@
+package com.khaled.benchmarks;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the {@code Objects.hash(...)} based hash code the processor used to emit with the generated
+ * field by field hash code, with and without {@code builder.cacheHashCode}.
+ *
+ * @author khaled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashCodeBenchmark {
+
+    @Param({"10", "10000"})
+    private int size;
+
+    private LargeCollection prototype;
+    private CachedLargeCollection cachedPrototype;
+
+    @Setup
+    public void setup() {
+        List<Integer> ids = IntStream.range(0, size).boxed().toList();
+        Set<String> tags = IntStream.range(0, size)
+                .mapToObj(it -> "tag-" + it)
+                .collect(Collectors.toSet());
+        prototype = LargeCollection.builder()
+                .name("khaled")
+                .age(34)
+                .ids(ids)
+                .tags(tags)
+                .build();
+        cachedPrototype = CachedLargeCollection.builder()
+                .name("khaled")
+                .age(34)
+                .ids(ids)
+                .tags(tags)
+                .build();
+    }
+
+    @Benchmark
+    public int objectsHash() {
+        return Objects.hash(prototype.name(), prototype.age(), prototype.ids(), prototype.tags());
+    }
+
+    @Benchmark
+    public int fieldByField() {
+        return prototype.hashCode();
+    }
+
+    @Benchmark
+    public int cached() {
+        return cachedPrototype.hashCode();
+    }
+}
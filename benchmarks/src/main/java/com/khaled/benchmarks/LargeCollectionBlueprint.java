@@ -0,0 +1,24 @@
+package com.khaled.benchmarks;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface LargeCollectionBlueprint {
+
+    String name();
+
+    int age();
+
+    @Option.Singular
+    List<Integer> ids();
+
+    @Option.Singular
+    Set<String> tags();
+}
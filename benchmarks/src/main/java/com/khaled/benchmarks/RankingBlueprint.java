@@ -0,0 +1,18 @@
+package com.khaled.benchmarks;
+
+import io.helidon.builder.api.Prototype;
+
+/**
+ * three sort keys, generated with {@code builder.comparable}.
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface RankingBlueprint {
+
+    int group();
+
+    String name();
+
+    double score();
+}
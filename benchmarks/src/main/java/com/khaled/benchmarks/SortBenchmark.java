@@ -0,0 +1,105 @@
+package com.khaled.benchmarks;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * sorts by three keys with a {@code Comparator.comparing(...)} chain, the generated comparator of the key order
+ * declared with {@code builder.sortKeys}, the generated chain of an undeclared key order and a hand written one.
+ *
+ * @author khaled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    private static final Comparator<Ranking> CHAINED = Comparator.comparingInt(Ranking::group)
+            .thenComparing(Ranking::name)
+            .thenComparingDouble(Ranking::score);
+
+    private static final Comparator<Ranking> GENERATED = Ranking.comparator(Ranking.SortKey.GROUP,
+            Ranking.SortKey.NAME, Ranking.SortKey.SCORE);
+
+    private static final Comparator<Ranking> GENERATED_UNDECLARED = Ranking.comparator(Ranking.SortKey.NAME,
+            Ranking.SortKey.GROUP, Ranking.SortKey.SCORE);
+
+    private static final Comparator<Ranking> HAND_WRITTEN = (left, right) -> {
+        int result = Integer.compare(left.group(), right.group());
+        if (result != 0) {
+            return result;
+        }
+        result = left.name().compareTo(right.name());
+        if (result != 0) {
+            return result;
+        }
+        return Double.compare(left.score(), right.score());
+    };
+
+    @Param({"1000000"})
+    private int size;
+
+    private Ranking[] prototypes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        prototypes = new Ranking[size];
+        for (int i = 0; i < size; i++) {
+            prototypes[i] = Ranking.builder()
+                    .group(random.nextInt(16))
+                    .name("name-" + random.nextInt(1024))
+                    .score(random.nextDouble())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public Ranking[] chained() {
+        return sort(CHAINED);
+    }
+
+    @Benchmark
+    public Ranking[] generated() {
+        return sort(GENERATED);
+    }
+
+    @Benchmark
+    public Ranking[] generatedUndeclared() {
+        return sort(GENERATED_UNDECLARED);
+    }
+
+    @Benchmark
+    public Ranking[] handWritten() {
+        return sort(HAND_WRITTEN);
+    }
+
+    @Benchmark
+    public Ranking[] naturalOrder() {
+        Ranking[] copy = prototypes.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private Ranking[] sort(Comparator<Ranking> comparator) {
+        Ranking[] copy = prototypes.clone();
+        Arrays.sort(copy, comparator);
+        return copy;
+    }
+}
@@ -0,0 +1,399 @@
+package khaled.builder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.stream.Collectors;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * struct of arrays container enabled by {@link GenerationOptions#BATCH}: {@code Xxx.Batch} stores every property in a
+ * column (primitive arrays for primitives, typed or {@code Object} arrays for the rest) holding the same values as the
+ * implementation fields, {@code get(index)} returns a row view implementing the prototype and the batch spliterator
+ * splits by halving its index range.
+ *
+ * @author khaled
+ */
+record BatchContainer(List<TypeHandler> typeHandlers, String prototypeName, String implName, String builderName,
+        GenerationOptions options) {
+
+    static BatchContainer create(GenerationInfo generationInfo) {
+        return new BatchContainer(List.copyOf(generationInfo.typeHandlers()), generationInfo.prototypeName(),
+                generationInfo.implName(), generationInfo.builderName(), generationInfo.options());
+    }
+
+    void generate(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        String batchFormat = """
+                             %1$s// struct of arrays, one column per property; get(index) views a row without copying it
+                             %1$sfinal class Batch implements Iterable<%2$s>{
+
+                             %3$sprivate static final int DEFAULT_CAPACITY = 16;
+
+                             """;
+        writer.write(batchFormat.formatted(INDENTATION, prototypeName, prefix));
+        for (var typeHandler : typeHandlers) {
+            writer.write(prefix + "private " + columnType(typeHandler) + " " + typeHandler.name() + ";\n");
+        }
+        writer.write(prefix + "private int size;\n\n");
+
+        writer.write(prefix + "public Batch(){\n");
+        writer.write(body + "this(DEFAULT_CAPACITY);\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "public Batch(final int capacity){\n");
+        writer.write(body + "if(capacity < 0){\n");
+        writer.write(body + INDENTATION + "throw new IllegalArgumentException(\"capacity must not be negative: \" + capacity);\n");
+        writer.write(body + "}\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(body + "this." + typeHandler.name() + " = " + newColumn(typeHandler, "capacity") + ";\n");
+        }
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "public int size(){\n");
+        writer.write(body + "return size;\n");
+        writer.write(prefix + "}\n\n");
+
+        generateAppends(writer);
+        generateAccessors(writer);
+
+        String streamsFormat = """
+                               %1$spublic %3$s get(final int index){
+                               %2$sreturn new Row(Objects.checkIndex(index, size));
+                               %1$s}
+
+                               %1$s@Override
+                               %1$spublic Iterator<%3$s> iterator(){
+                               %2$sreturn Spliterators.iterator(spliterator());
+                               %1$s}
+
+                               %1$s// bound to the current size, rows appended later are not traversed
+                               %1$s@Override
+                               %1$spublic Spliterator<%3$s> spliterator(){
+                               %2$sreturn new Rows(0, size);
+                               %1$s}
+
+                               %1$spublic Stream<%3$s> stream(){
+                               %2$sreturn StreamSupport.stream(spliterator(), false);
+                               %1$s}
+
+                               %1$spublic Stream<%3$s> parallelStream(){
+                               %2$sreturn StreamSupport.stream(spliterator(), true);
+                               %1$s}
+
+                               """;
+        writer.write(streamsFormat.formatted(prefix, body, prototypeName));
+
+        generateGrow(writer);
+        generateRows(writer);
+        generateRow(writer);
+        writer.write(INDENTATION + "}\n\n");
+    }
+
+    private void generateAppends(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "public Batch append(final " + prototypeName + " prototype){\n");
+        writer.write(body + "Objects.requireNonNull(prototype);\n");
+        writer.write(body + "int index = next();\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(body + "this." + typeHandler.name() + "[index] = " + prototypeValue(typeHandler) + ";\n");
+        }
+        writer.write(body + "return this;\n");
+        writer.write(prefix + "}\n\n");
+
+        // the builder is validated as by build(), its values go to the columns without an intermediate instance
+        writer.write(prefix + "public Batch appendFrom(final " + builderName + " builder){\n");
+        writer.write(body + "builder.validate();\n");
+        writer.write(body + "int index = next();\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(body + "this." + typeHandler.name() + "[index] = "
+                    + ImplementationGenerator.builderValue(typeHandler, "builder") + ";\n");
+        }
+        writer.write(body + "return this;\n");
+        writer.write(prefix + "}\n\n");
+    }
+
+    private void generateAccessors(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            if (generic(typeHandler)) {
+                writer.write(prefix + "@SuppressWarnings(\"unchecked\")\n");
+            }
+            writer.write(prefix + "public " + typeHandler.type().classNameWithTypes() + " " + name
+                    + "(final int index){\n");
+            writer.write(body + "return " + accessor(typeHandler, "this", "Objects.checkIndex(index, size)") + ";\n");
+            writer.write(prefix + "}\n\n");
+        }
+        for (var typeHandler : typeHandlers) {
+            String stream = switch (typeHandler instanceof SimpleTypeHandler ? typeHandler.type().className() : "") {
+                case "int" ->
+                    "IntStream";
+                case "long" ->
+                    "LongStream";
+                case "double" ->
+                    "DoubleStream";
+                default ->
+                    null;
+            };
+            if (null != stream) {
+                writer.write(prefix + "public " + stream + " " + typeHandler.name() + "Column(){\n");
+                writer.write(body + "return Arrays.stream(this." + typeHandler.name() + ", 0, size);\n");
+                writer.write(prefix + "}\n\n");
+            }
+        }
+    }
+
+    private void generateGrow(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "private int next(){\n");
+        if (!typeHandlers.isEmpty()) {
+            String first = typeHandlers.getFirst().name();
+            writer.write(body + "if(size == this." + first + ".length){\n");
+            writer.write(body + INDENTATION + "int capacity = size + (size >> 1) + 8;\n");
+            for (var typeHandler : typeHandlers) {
+                writer.write(body + INDENTATION + "this." + typeHandler.name() + " = Arrays.copyOf(this."
+                        + typeHandler.name() + ", capacity);\n");
+            }
+            writer.write(body + "}\n");
+        }
+        writer.write(body + "return size++;\n");
+        writer.write(prefix + "}\n\n");
+    }
+
+    private void generateRows(Writer writer) throws IOException {
+        String rowsFormat = """
+                            %1$sprivate final class Rows implements Spliterator<%4$s>{
+
+                            %2$sprivate int index;
+                            %2$sprivate final int fence;
+
+                            %2$sprivate Rows(final int index, final int fence){
+                            %3$sthis.index = index;
+                            %3$sthis.fence = fence;
+                            %2$s}
+
+                            %2$s@Override
+                            %2$spublic boolean tryAdvance(final Consumer<? super %4$s> action){
+                            %3$sif(index >= fence){
+                            %5$sreturn false;
+                            %3$s}
+                            %3$saction.accept(new Row(index++));
+                            %3$sreturn true;
+                            %2$s}
+
+                            %2$s@Override
+                            %2$spublic void forEachRemaining(final Consumer<? super %4$s> action){
+                            %3$swhile(index < fence){
+                            %5$saction.accept(new Row(index++));
+                            %3$s}
+                            %2$s}
+
+                            %2$s// the prefix half goes to the new spliterator, both halves stay exactly sized
+                            %2$s@Override
+                            %2$spublic Spliterator<%4$s> trySplit(){
+                            %3$sint middle = (index + fence) >>> 1;
+                            %3$sif(middle <= index){
+                            %5$sreturn null;
+                            %3$s}
+                            %3$sRows prefix = new Rows(index, middle);
+                            %3$sindex = middle;
+                            %3$sreturn prefix;
+                            %2$s}
+
+                            %2$s@Override
+                            %2$spublic long estimateSize(){
+                            %3$sreturn fence - index;
+                            %2$s}
+
+                            %2$s@Override
+                            %2$spublic int characteristics(){
+                            %3$sreturn ORDERED | SIZED | SUBSIZED | NONNULL;
+                            %2$s}
+                            %1$s}
+
+                            """;
+        writer.write(rowsFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                prototypeName, INDENTATION.repeat(5)));
+    }
+
+    private void generateRow(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(3);
+        String body = INDENTATION.repeat(4);
+        String rowFormat = """
+                           %1$s// reads the columns at its row, everything else goes through materialize()
+                           %1$sprivate final class Row implements %3$s{
+
+                           %2$sprivate final int row;
+
+                           %2$sprivate Row(final int row){
+                           %4$sthis.row = row;
+                           %2$s}
+
+                           """;
+        writer.write(rowFormat.formatted(INDENTATION.repeat(2), prefix, prototypeName, body));
+
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            String value = read(typeHandler, "Batch.this", "row");
+            writer.write(prefix + "@Override\n");
+            if (generic(typeHandler)) {
+                writer.write(prefix + "@SuppressWarnings(\"unchecked\")\n");
+            }
+            writer.write(prefix + "public " + typeHandler.type().classNameWithTypes() + " " + name + "(){\n");
+            writer.write(body + "return " + accessor(typeHandler, "Batch.this", "row") + ";\n");
+            writer.write(prefix + "}\n\n");
+            switch (typeHandler) {
+                case OptionalTypeHandler o -> {
+                    String valueType = o.mutatorType();
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + valueType + " " + o.orNullName() + "(){\n");
+                    writer.write(body + "return " + value + ";\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + valueType + " " + o.orElseName() + "(final " + valueType
+                            + " other){\n");
+                    writer.write(body + valueType + " value = " + value + ";\n");
+                    writer.write(body + "return value != null ? value : other;\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                case PrimitiveListTypeHandler p -> {
+                    var element = p.element();
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.primitiveType() + "[] " + name + "Array(){\n");
+                    writer.write(body + "return " + value + ".clone();\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.streamType() + " " + name + "Stream(){\n");
+                    writer.write(body + "return Arrays.stream(" + value + ");\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.primitiveType() + " " + name + "At(final int index){\n");
+                    writer.write(body + "return " + value + "[index];\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                case MapTypeHandler m when m.storage() == MapTypeHandler.Storage.PRIMITIVE -> {
+                    String key = m.keyElement().primitiveType();
+                    String mapped = m.valueElement().primitiveType();
+                    String table = "((" + implName + "." + m.tableName() + ") " + value + ")";
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + mapped + " " + m.getOrDefaultName() + "(final " + key
+                            + " key, final " + mapped + " defaultValue){\n");
+                    writer.write(body + "return " + table + ".getOrDefault(key, defaultValue);\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public boolean " + m.containsKeyName() + "(final " + key + " key){\n");
+                    writer.write(body + "return " + table + ".containsKey(key);\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                default -> {
+                }
+            }
+        }
+
+        // the columns hold the implementation values, they are shared with the copy
+        String arguments = typeHandlers.stream()
+                .map(it -> read(it, "Batch.this", "row"))
+                .collect(Collectors.joining(", "));
+        String instance = "new " + implName + "(" + arguments + ")";
+        if (options.intern()) {
+            instance = implName + ".intern(" + instance + ")";
+        }
+        if (typeHandlers.stream().anyMatch(BatchContainer::generic)) {
+            writer.write(prefix + "@SuppressWarnings(\"unchecked\")\n");
+        }
+        writer.write(prefix + "public " + prototypeName + " materialize(){\n");
+        writer.write(body + "return " + instance + ";\n");
+        writer.write(prefix + "}\n\n");
+
+        OffHeapLayout.generateMaterializedDelegates(writer, 3, typeHandlers, prototypeName, options, "materialize()",
+                true);
+
+        String equalityFormat = """
+                                %1$s@Override
+                                %1$spublic boolean equals(final Object obj){
+                                %2$sreturn this == obj || materialize().equals(obj);
+                                %1$s}
+
+                                %1$s@Override
+                                %1$spublic int hashCode(){
+                                %2$sreturn materialize().hashCode();
+                                %1$s}
+
+                                %1$s@Override
+                                %1$spublic String toString(){
+                                %2$sreturn materialize().toString();
+                                %1$s}
+                                """;
+        writer.write(equalityFormat.formatted(prefix, body));
+        writer.write(INDENTATION.repeat(2) + "}\n");
+    }
+
+    private String prototypeValue(TypeHandler typeHandler) {
+        String name = typeHandler.name();
+        return switch (typeHandler) {
+            // the implementation array is never mutated, it is shared
+            case PrimitiveListTypeHandler p ->
+                "prototype instanceof " + implName + " impl ? impl." + name + " : prototype." + name + "Array()";
+            case CollectionTypeHandler c ->
+                c.copyOf("prototype." + name + "()");
+            case MapTypeHandler m ->
+                m.copyOf("prototype." + name + "()");
+            case OptionalTypeHandler o ->
+                "prototype." + o.orNullName() + "()";
+            case SimpleTypeHandler s ->
+                "prototype." + name + "()";
+        };
+    }
+
+    // the prototype accessor value of the element at index
+    private String accessor(TypeHandler typeHandler, String batch, String index) {
+        String value = read(typeHandler, batch, index);
+        return switch (typeHandler) {
+            // appendFrom keeps the unset lazy defaults of the builder unset
+            case SimpleTypeHandler s when s.lazyDefault() ->
+                s.resolved(value, implName);
+            case OptionalTypeHandler o ->
+                "Optional.ofNullable(" + value + ")";
+            // a new view per call, the row is itself a view over the batch
+            case PrimitiveListTypeHandler p ->
+                "new " + implName + "." + p.element().viewType() + "(" + value + ")";
+            default ->
+                value;
+        };
+    }
+
+    private static String read(TypeHandler typeHandler, String batch, String index) {
+        String element = batch + "." + typeHandler.name() + "[" + index + "]";
+        return generic(typeHandler)
+                ? "((" + ImplementationGenerator.implementationFieldType(typeHandler) + ") " + element + ")"
+                : element;
+    }
+
+    // arrays of parameterized types cannot be created, they are stored as Object
+    private static boolean generic(TypeHandler typeHandler) {
+        return ImplementationGenerator.implementationFieldType(typeHandler).contains("<");
+    }
+
+    private static String columnType(TypeHandler typeHandler) {
+        return (generic(typeHandler) ? "Object" : ImplementationGenerator.implementationFieldType(typeHandler)) + "[]";
+    }
+
+    private static String newColumn(TypeHandler typeHandler, String capacity) {
+        if (generic(typeHandler)) {
+            return "new Object[" + capacity + "]";
+        }
+        String type = ImplementationGenerator.implementationFieldType(typeHandler);
+        return type.endsWith("[]")
+                ? "new " + type.substring(0, type.length() - 2) + "[" + capacity + "][]"
+                : "new " + type + "[" + capacity + "]";
+    }
+}
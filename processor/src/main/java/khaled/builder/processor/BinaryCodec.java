@@ -0,0 +1,646 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * tagged binary wire format enabled by {@link GenerationOptions#BINARY}: a message is its varint length followed by
+ * its properties, each one a varint tag ({@code field number << 3 | wire type}, the field number is the declaration
+ * order starting at 1) and its value. integers are zigzag varints, floating points little endian fixed width,
+ * strings length prefixed UTF-8, enums varint ordinals, collections and maps are packed in a single length prefixed
+ * field and empty optionals are not written. readers skip the tags they do not know, so properties can be appended
+ * to a blueprint without breaking older readers.
+ *
+ * @author khaled
+ */
+record BinaryCodec(List<TypeHandler> typeHandlers, Set<String> enums, Function<TypeHandler, String> fieldValue,
+        String builderName) {
+
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    enum Scalar {
+        BOOLEAN(VARINT, 1),
+        BYTE(VARINT, 0),
+        SHORT(VARINT, 0),
+        INT(VARINT, 0),
+        LONG(VARINT, 0),
+        CHAR(VARINT, 0),
+        FLOAT(FIXED32, 4),
+        DOUBLE(FIXED64, 8),
+        STRING(LENGTH_DELIMITED, 0),
+        ENUM(VARINT, 0);
+
+        private final int wireType;
+        // 0 for the variable length encodings
+        private final int fixedSize;
+
+        Scalar(int wireType, int fixedSize) {
+            this.wireType = wireType;
+            this.fixedSize = fixedSize;
+        }
+
+        int wireType() {
+            return wireType;
+        }
+
+        int fixedSize() {
+            return fixedSize;
+        }
+
+        String write(String value) {
+            return switch (this) {
+                case BOOLEAN ->
+                    "buffer.put((byte) (" + value + " ? 1 : 0))";
+                case BYTE, SHORT, INT, LONG ->
+                    "writeVarint(buffer, zigZag(" + value + "))";
+                case CHAR ->
+                    "writeVarint(buffer, " + value + ")";
+                case FLOAT ->
+                    "putFixed32(buffer, Float.floatToRawIntBits(" + value + "))";
+                case DOUBLE ->
+                    "putFixed64(buffer, Double.doubleToRawLongBits(" + value + "))";
+                case STRING ->
+                    "writeString(buffer, " + value + ")";
+                case ENUM ->
+                    "writeVarint(buffer, " + value + ".ordinal())";
+            };
+        }
+
+        String size(String value) {
+            return switch (this) {
+                case BYTE, SHORT, INT, LONG ->
+                    "varintSize(zigZag(" + value + "))";
+                case CHAR ->
+                    "varintSize(" + value + ")";
+                case STRING ->
+                    "stringSize(" + value + ")";
+                case ENUM ->
+                    "varintSize(" + value + ".ordinal())";
+                default ->
+                    String.valueOf(fixedSize);
+            };
+        }
+
+        String read(TypeName type) {
+            return switch (this) {
+                case BOOLEAN ->
+                    "readVarint(buffer) != 0";
+                case BYTE ->
+                    "(byte) unZigZag(readVarint(buffer))";
+                case SHORT ->
+                    "(short) unZigZag(readVarint(buffer))";
+                case INT ->
+                    "(int) unZigZag(readVarint(buffer))";
+                case LONG ->
+                    "unZigZag(readVarint(buffer))";
+                case CHAR ->
+                    "(char) readVarint(buffer)";
+                case FLOAT ->
+                    "Float.intBitsToFloat(getFixed32(buffer))";
+                case DOUBLE ->
+                    "Double.longBitsToDouble(getFixed64(buffer))";
+                case STRING ->
+                    "readString(buffer)";
+                case ENUM ->
+                    "constant(" + constantsName(type) + ", readVarint(buffer))";
+            };
+        }
+    }
+
+    static BinaryCodec create(GenerationInfo generationInfo, Function<TypeHandler, String> fieldValue) {
+        return new BinaryCodec(List.copyOf(generationInfo.typeHandlers()), generationInfo.enums().keySet(),
+                fieldValue, generationInfo.builderName());
+    }
+
+    static void generateDeclarations(Writer writer, String prototypeName, String implName) throws IOException {
+        String declarationsFormat = """
+                                    %1$s// the length prefixed message, serializedSize() bytes are written
+                                    %1$svoid writeTo(ByteBuffer buffer);
+
+                                    %1$svoid writeTo(DataOutput output) throws IOException;
+
+                                    %1$sint serializedSize();
+
+                                    %1$s// reads the message at the buffer position and moves the position past it
+                                    %1$sstatic %3$s readFrom(final ByteBuffer buffer){
+                                    %2$sreturn %4$s.readFrom(buffer);
+                                    %1$s}
+
+                                    """;
+        writer.write(declarationsFormat.formatted(INDENTATION, INDENTATION.repeat(2), prototypeName, implName));
+    }
+
+    void generate(Writer writer, String prototypeName) throws IOException {
+        generateConstants(writer);
+        generateSerializedSize(writer);
+        generateWriteTo(writer);
+        generatePayloadSizes(writer);
+        generateReadFrom(writer, prototypeName);
+        generateHelpers(writer);
+    }
+
+    private void generateConstants(Writer writer) throws IOException {
+        Set<TypeName> enumTypes = new LinkedHashSet<>();
+        for (var typeHandler : typeHandlers) {
+            for (TypeName type : valueTypes(typeHandler)) {
+                if (enums.contains(type.fqName())) {
+                    enumTypes.add(type);
+                }
+            }
+        }
+        for (TypeName type : enumTypes) {
+            writer.write(INDENTATION.repeat(2) + "private static final " + type.className() + "[] "
+                    + constantsName(type) + " = " + type.className() + ".values();\n");
+        }
+        if (!enumTypes.isEmpty()) {
+            writer.write("\n");
+        }
+    }
+
+    private void generateSerializedSize(Writer writer) throws IOException {
+        String payloads = payloadHandlers().stream()
+                .map(it -> payloadSizeName(it) + "()")
+                .collect(Collectors.joining(", "));
+        writer.write(INDENTATION.repeat(2) + "@Override\n");
+        writer.write(INDENTATION.repeat(2) + "public int serializedSize(){\n");
+        writer.write(INDENTATION.repeat(3) + "int body = bodySize(" + payloads + ");\n");
+        writer.write(INDENTATION.repeat(3) + "return varintSize(body) + body;\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+
+        // the payload sizes of the packed fields are computed once and shared with writeTo
+        String parameters = payloadHandlers().stream()
+                .map(it -> "final int " + payloadName(it))
+                .collect(Collectors.joining(", "));
+        writer.write(INDENTATION.repeat(2) + "private int bodySize(" + parameters + "){\n");
+        writer.write(INDENTATION.repeat(3) + "int size = 0;\n");
+        for (int i = 0; i < typeHandlers.size(); i++) {
+            TypeHandler typeHandler = typeHandlers.get(i);
+            int tagSize = varintSize(tag(i, typeHandler));
+            String value = fieldValue.apply(typeHandler);
+            switch (typeHandler) {
+                case OptionalTypeHandler o -> {
+                    writer.write(INDENTATION.repeat(3) + "if(" + value + " != null){\n");
+                    writer.write(INDENTATION.repeat(4) + "size += " + tagSize + " + "
+                            + scalar(o.type().typeArguments().getFirst()).size(value) + ";\n");
+                    writer.write(INDENTATION.repeat(3) + "}\n");
+                }
+                case SimpleTypeHandler s ->
+                    writer.write(INDENTATION.repeat(3) + "size += " + tagSize + " + " + scalar(s.type()).size(value)
+                            + ";\n");
+                default ->
+                    writer.write(INDENTATION.repeat(3) + "size += " + tagSize + " + varintSize(" + payloadName(typeHandler)
+                            + ") + " + payloadName(typeHandler) + ";\n");
+            }
+        }
+        writer.write(INDENTATION.repeat(3) + "return size;\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
+
+    private void generateWriteTo(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(3);
+        writer.write(INDENTATION.repeat(2) + "@Override\n");
+        writer.write(INDENTATION.repeat(2) + "public void writeTo(final ByteBuffer buffer){\n");
+        for (var typeHandler : payloadHandlers()) {
+            writer.write(prefix + "int " + payloadName(typeHandler) + " = " + payloadSizeName(typeHandler) + "();\n");
+        }
+        String payloads = payloadHandlers().stream()
+                .map(this::payloadName)
+                .collect(Collectors.joining(", "));
+        writer.write(prefix + "writeVarint(buffer, bodySize(" + payloads + "));\n");
+        for (int i = 0; i < typeHandlers.size(); i++) {
+            TypeHandler typeHandler = typeHandlers.get(i);
+            int tagValue = tag(i, typeHandler);
+            String tag = (tagValue < 1 << 7 ? "buffer.put((byte) " : "writeVarint(buffer, ") + tagValue + ");\n";
+            String value = fieldValue.apply(typeHandler);
+            switch (typeHandler) {
+                case OptionalTypeHandler o -> {
+                    writer.write(prefix + "if(" + value + " != null){\n");
+                    writer.write(prefix + INDENTATION + tag);
+                    writer.write(prefix + INDENTATION + scalar(o.type().typeArguments().getFirst()).write(value) + ";\n");
+                    writer.write(prefix + "}\n");
+                }
+                case SimpleTypeHandler s -> {
+                    writer.write(prefix + tag);
+                    writer.write(prefix + scalar(s.type()).write(value) + ";\n");
+                }
+                default -> {
+                    writer.write(prefix + tag);
+                    writer.write(prefix + "writeVarint(buffer, " + payloadName(typeHandler) + ");\n");
+                    writer.write(prefix + loop(typeHandler) + "{\n");
+                    for (String statement : elementStatements(typeHandler, true)) {
+                        writer.write(prefix + INDENTATION + statement + ";\n");
+                    }
+                    writer.write(prefix + "}\n");
+                }
+            }
+        }
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+
+        String dataOutputFormat = """
+                                  %1$s@Override
+                                  %1$spublic void writeTo(final DataOutput output) throws IOException{
+                                  %2$sbyte[] bytes = new byte[serializedSize()];
+                                  %2$swriteTo(ByteBuffer.wrap(bytes));
+                                  %2$soutput.write(bytes);
+                                  %1$s}
+
+                                  """;
+        writer.write(dataOutputFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3)));
+    }
+
+    private void generatePayloadSizes(Writer writer) throws IOException {
+        for (var typeHandler : payloadHandlers()) {
+            List<Scalar> scalars = valueTypes(typeHandler).stream()
+                    .map(this::scalar)
+                    .toList();
+            String value = fieldValue.apply(typeHandler);
+            writer.write(INDENTATION.repeat(2) + "private int " + payloadSizeName(typeHandler) + "(){\n");
+            if (scalars.stream().allMatch(it -> it.fixedSize() > 0)) {
+                int entrySize = scalars.stream().mapToInt(Scalar::fixedSize).sum();
+                String count = typeHandler instanceof PrimitiveListTypeHandler ? value + ".length" : value + ".size()";
+                writer.write(INDENTATION.repeat(3) + "return " + count + " * " + entrySize + ";\n");
+            } else {
+                writer.write(INDENTATION.repeat(3) + "int size = 0;\n");
+                writer.write(INDENTATION.repeat(3) + loop(typeHandler) + "{\n");
+                for (String statement : elementStatements(typeHandler, false)) {
+                    writer.write(INDENTATION.repeat(4) + "size += " + statement + ";\n");
+                }
+                writer.write(INDENTATION.repeat(3) + "}\n");
+                writer.write(INDENTATION.repeat(3) + "return size;\n");
+            }
+            writer.write(INDENTATION.repeat(2) + "}\n\n");
+        }
+    }
+
+    private void generateReadFrom(Writer writer, String prototypeName) throws IOException {
+        String prefix = INDENTATION.repeat(4);
+        String body = INDENTATION.repeat(5);
+        writer.write(INDENTATION.repeat(2) + "static " + prototypeName + " readFrom(final ByteBuffer buffer){\n");
+        writer.write(INDENTATION.repeat(3) + "int end = fieldEnd(buffer);\n");
+        writer.write(INDENTATION.repeat(3) + builderName + " builder = new " + builderName + "();\n");
+        writer.write(INDENTATION.repeat(3) + "while(buffer.position() < end){\n");
+        writer.write(prefix + "int tag = (int) readVarint(buffer);\n");
+        writer.write(prefix + "switch(tag){\n");
+        for (int i = 0; i < typeHandlers.size(); i++) {
+            TypeHandler typeHandler = typeHandlers.get(i);
+            String name = typeHandler.name();
+            String caseLabel = body + "case " + tag(i, typeHandler) + " -> ";
+            switch (typeHandler) {
+                case OptionalTypeHandler o -> {
+                    TypeName type = o.type().typeArguments().getFirst();
+                    writer.write(caseLabel + "builder." + name + "(" + scalar(type).read(type) + ");\n");
+                }
+                case SimpleTypeHandler s ->
+                    writer.write(caseLabel + "builder." + name + "(" + scalar(s.type()).read(s.type()) + ");\n");
+                default -> {
+                    writer.write(caseLabel + "{\n");
+                    for (String statement : readStatements(typeHandler)) {
+                        writer.write(body + INDENTATION + statement + "\n");
+                    }
+                    writer.write(body + "}\n");
+                }
+            }
+        }
+        // unknown or retyped fields of newer writers
+        writer.write(body + "default -> skipField(buffer, tag);\n");
+        writer.write(prefix + "}\n");
+        writer.write(INDENTATION.repeat(3) + "}\n");
+        writer.write(INDENTATION.repeat(3) + "if(buffer.position() != end){\n");
+        writer.write(prefix + "throw new IllegalStateException(\"malformed " + prototypeName + " message\");\n");
+        writer.write(INDENTATION.repeat(3) + "}\n");
+        writer.write(INDENTATION.repeat(3) + "return builder.build();\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
+
+    private List<String> readStatements(TypeHandler typeHandler) {
+        String name = typeHandler.name();
+        List<String> statements = new ArrayList<>();
+        statements.add("int fieldEnd = fieldEnd(buffer);");
+        switch (typeHandler) {
+            case PrimitiveListTypeHandler p -> {
+                String primitive = p.element().primitiveType();
+                Scalar scalar = scalar(TypeName.create(p.element().boxedType()));
+                // the array is exactly sized and owned by nobody else, the implementation takes it as is
+                String count = scalar.fixedSize() > 0
+                        ? "(fieldEnd - buffer.position()) / " + scalar.fixedSize()
+                        : "varintCount(buffer, fieldEnd)";
+                statements.add(primitive + "[] values = new " + primitive + "[" + count + "];");
+                statements.add("for(int i = 0; i < values.length; i++){");
+                statements.add(INDENTATION + "values[i] = " + scalar.read(null) + ";");
+                statements.add("}");
+                statements.add("builder." + name + " = values;");
+                statements.add("builder." + p.sizeName() + " = values.length;");
+                statements.add("builder." + p.ownedName() + " = false;");
+            }
+            case CollectionTypeHandler c -> {
+                TypeName element = c.type().typeArguments().getFirst();
+                String collection = switch (c.collectionType()) {
+                    case LIST ->
+                        "List<" + element.className() + "> values = new ArrayList<>();";
+                    case SET ->
+                        "Set<" + element.className() + "> values = new LinkedHashSet<>();";
+                    case ENUM_SET ->
+                        "Set<" + element.className() + "> values = EnumSet.noneOf(" + element.className() + ".class);";
+                };
+                statements.add(collection);
+                statements.add("while(buffer.position() < fieldEnd){");
+                statements.add(INDENTATION + "values.add(" + scalar(element).read(element) + ");");
+                statements.add("}");
+                statements.add("builder." + name + "(values);");
+            }
+            case MapTypeHandler m -> {
+                TypeName key = m.keyType();
+                TypeName value = m.valueType();
+                statements.add("Map<" + key.className() + ", " + value.className() + "> values = new LinkedHashMap<>();");
+                statements.add("while(buffer.position() < fieldEnd){");
+                statements.add(INDENTATION + key.className() + " key = " + scalar(key).read(key) + ";");
+                statements.add(INDENTATION + "values.put(key, " + scalar(value).read(value) + ");");
+                statements.add("}");
+                statements.add("builder." + name + "(values);");
+            }
+            default ->
+                throw new IllegalStateException("not a packed property: " + name);
+        }
+        return statements;
+    }
+
+    private String loop(TypeHandler typeHandler) {
+        String value = fieldValue.apply(typeHandler);
+        return switch (typeHandler) {
+            case PrimitiveListTypeHandler p ->
+                "for(" + p.element().primitiveType() + " value : " + value + ")";
+            case MapTypeHandler m ->
+                "for(Map.Entry<" + m.keyType().className() + ", " + m.valueType().className() + "> entry : " + value
+                + ".entrySet())";
+            default ->
+                "for(" + typeHandler.type().typeArguments().getFirst().className() + " value : " + value + ")";
+        };
+    }
+
+    // writes or sizes the loop variable(s) of a packed property
+    private List<String> elementStatements(TypeHandler typeHandler, boolean write) {
+        List<TypeName> types = valueTypes(typeHandler);
+        List<String> values = typeHandler instanceof MapTypeHandler
+                ? List.of("entry.getKey()", "entry.getValue()")
+                : List.of("value");
+        List<String> statements = new ArrayList<>();
+        for (int i = 0; i < types.size(); i++) {
+            Scalar scalar = scalar(types.get(i));
+            statements.add(write ? scalar.write(values.get(i)) : scalar.size(values.get(i)));
+        }
+        return statements;
+    }
+
+    // the scalar types a property is made of: itself, its element or its key and value
+    private static List<TypeName> valueTypes(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case SimpleTypeHandler s ->
+                List.of(s.type());
+            case PrimitiveListTypeHandler p ->
+                List.of(TypeName.create(p.element().boxedType()));
+            case MapTypeHandler m ->
+                List.of(m.keyType(), m.valueType());
+            default ->
+                List.of(typeHandler.type().typeArguments().getFirst());
+        };
+    }
+
+    private List<TypeHandler> payloadHandlers() {
+        return typeHandlers.stream()
+                .filter(it -> !(it instanceof SimpleTypeHandler) && !(it instanceof OptionalTypeHandler))
+                .toList();
+    }
+
+    private String payloadName(TypeHandler typeHandler) {
+        return typeHandler.name() + "Payload";
+    }
+
+    private String payloadSizeName(TypeHandler typeHandler) {
+        return typeHandler.name() + "PayloadSize";
+    }
+
+    private int tag(int index, TypeHandler typeHandler) {
+        int wireType = switch (typeHandler) {
+            case SimpleTypeHandler s ->
+                scalar(s.type()).wireType();
+            case OptionalTypeHandler o ->
+                scalar(o.type().typeArguments().getFirst()).wireType();
+            default ->
+                LENGTH_DELIMITED;
+        };
+        return (index + 1) << 3 | wireType;
+    }
+
+    private Scalar scalar(TypeName type) {
+        if (enums.contains(type.fqName())) {
+            return Scalar.ENUM;
+        }
+        return switch (type.boxed().className()) {
+            case "Boolean" ->
+                Scalar.BOOLEAN;
+            case "Byte" ->
+                Scalar.BYTE;
+            case "Short" ->
+                Scalar.SHORT;
+            case "Integer" ->
+                Scalar.INT;
+            case "Long" ->
+                Scalar.LONG;
+            case "Character" ->
+                Scalar.CHAR;
+            case "Float" ->
+                Scalar.FLOAT;
+            case "Double" ->
+                Scalar.DOUBLE;
+            case "String" ->
+                Scalar.STRING;
+            default ->
+                throw new IllegalStateException("no binary encoding for " + type);
+        };
+    }
+
+    private static String constantsName(TypeName type) {
+        return type.className().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT) + "_CONSTANTS";
+    }
+
+    private static int varintSize(int value) {
+        return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : 3;
+    }
+
+    private void generateHelpers(Writer writer) throws IOException {
+        String helpersFormat = """
+                               %1$sprivate static void writeVarint(final ByteBuffer buffer, long value){
+                               %2$swhile((value & ~0x7FL) != 0){
+                               %3$sbuffer.put((byte) ((value & 0x7F) | 0x80));
+                               %3$svalue >>>= 7;
+                               %2$s}
+                               %2$sbuffer.put((byte) value);
+                               %1$s}
+
+                               %1$sprivate static long readVarint(final ByteBuffer buffer){
+                               %2$slong result = 0;
+                               %2$sfor(int shift = 0; shift < 64; shift += 7){
+                               %3$sbyte b = buffer.get();
+                               %3$sresult |= (long) (b & 0x7F) << shift;
+                               %3$sif(b >= 0){
+                               %4$sreturn result;
+                               %3$s}
+                               %2$s}
+                               %2$sthrow new IllegalStateException("malformed varint");
+                               %1$s}
+
+                               %1$sprivate static int varintSize(final long value){
+                               %2$sreturn (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+                               %1$s}
+
+                               %1$s// varints end with a byte below 0x80, counting them gives the number of values
+                               %1$sprivate static int varintCount(final ByteBuffer buffer, final int end){
+                               %2$sint count = 0;
+                               %2$sfor(int i = buffer.position(); i < end; i++){
+                               %3$sif(buffer.get(i) >= 0){
+                               %4$scount++;
+                               %3$s}
+                               %2$s}
+                               %2$sreturn count;
+                               %1$s}
+
+                               %1$sprivate static long zigZag(final long value){
+                               %2$sreturn (value << 1) ^ (value >> 63);
+                               %1$s}
+
+                               %1$sprivate static long unZigZag(final long value){
+                               %2$sreturn (value >>> 1) ^ -(value & 1);
+                               %1$s}
+
+                               %1$sprivate static void putFixed32(final ByteBuffer buffer, final int value){
+                               %2$sbuffer.putInt(buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value));
+                               %1$s}
+
+                               %1$sprivate static int getFixed32(final ByteBuffer buffer){
+                               %2$sint value = buffer.getInt();
+                               %2$sreturn buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+                               %1$s}
+
+                               %1$sprivate static void putFixed64(final ByteBuffer buffer, final long value){
+                               %2$sbuffer.putLong(buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value));
+                               %1$s}
+
+                               %1$sprivate static long getFixed64(final ByteBuffer buffer){
+                               %2$slong value = buffer.getLong();
+                               %2$sreturn buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+                               %1$s}
+
+                               %1$s// UTF-8 length without encoding, unpaired surrogates are written as '?' like String.getBytes
+                               %1$sprivate static int utf8Size(final String value){
+                               %2$sint size = 0;
+                               %2$sfor(int i = 0; i < value.length(); i++){
+                               %3$schar c = value.charAt(i);
+                               %3$sif(c < 0x80){
+                               %4$ssize += 1;
+                               %3$s} else if(c < 0x800){
+                               %4$ssize += 2;
+                               %3$s} else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                               %4$ssize += 4;
+                               %4$si++;
+                               %3$s} else if(Character.isSurrogate(c)){
+                               %4$ssize += 1;
+                               %3$s} else {
+                               %4$ssize += 3;
+                               %3$s}
+                               %2$s}
+                               %2$sreturn size;
+                               %1$s}
+
+                               %1$sprivate static int stringSize(final String value){
+                               %2$sint size = utf8Size(value);
+                               %2$sreturn varintSize(size) + size;
+                               %1$s}
+
+                               %1$sprivate static void writeString(final ByteBuffer buffer, final String value){
+                               %2$swriteVarint(buffer, utf8Size(value));
+                               %2$sfor(int i = 0; i < value.length(); i++){
+                               %3$schar c = value.charAt(i);
+                               %3$sif(c < 0x80){
+                               %4$sbuffer.put((byte) c);
+                               %3$s} else if(c < 0x800){
+                               %4$sbuffer.put((byte) (0xC0 | c >>> 6));
+                               %4$sbuffer.put((byte) (0x80 | (c & 0x3F)));
+                               %3$s} else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                               %4$sint codePoint = Character.toCodePoint(c, value.charAt(++i));
+                               %4$sbuffer.put((byte) (0xF0 | codePoint >>> 18));
+                               %4$sbuffer.put((byte) (0x80 | ((codePoint >>> 12) & 0x3F)));
+                               %4$sbuffer.put((byte) (0x80 | ((codePoint >>> 6) & 0x3F)));
+                               %4$sbuffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                               %3$s} else if(Character.isSurrogate(c)){
+                               %4$sbuffer.put((byte) '?');
+                               %3$s} else {
+                               %4$sbuffer.put((byte) (0xE0 | c >>> 12));
+                               %4$sbuffer.put((byte) (0x80 | ((c >>> 6) & 0x3F)));
+                               %4$sbuffer.put((byte) (0x80 | (c & 0x3F)));
+                               %3$s}
+                               %2$s}
+                               %1$s}
+
+                               %1$sprivate static String readString(final ByteBuffer buffer){
+                               %2$sint end = fieldEnd(buffer);
+                               %2$sint length = end - buffer.position();
+                               %2$sString value;
+                               %2$sif(buffer.hasArray()){
+                               %3$svalue = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                               %2$s} else {
+                               %3$sbyte[] bytes = new byte[length];
+                               %3$sbuffer.get(buffer.position(), bytes);
+                               %3$svalue = new String(bytes, StandardCharsets.UTF_8);
+                               %2$s}
+                               %2$sbuffer.position(end);
+                               %2$sreturn value;
+                               %1$s}
+
+                               %1$s// reads a length prefix, returns the position the field ends at
+                               %1$sprivate static int fieldEnd(final ByteBuffer buffer){
+                               %2$slong length = readVarint(buffer);
+                               %2$sif(length < 0 || length > buffer.remaining()){
+                               %3$sthrow new IllegalStateException("truncated field of " + length + " bytes");
+                               %2$s}
+                               %2$sreturn buffer.position() + (int) length;
+                               %1$s}
+
+                               %1$sprivate static void skipField(final ByteBuffer buffer, final int tag){
+                               %2$sswitch(tag & 7){
+                               %3$scase %5$s -> readVarint(buffer);
+                               %3$scase %6$s -> buffer.position(buffer.position() + 8);
+                               %3$scase %7$s -> buffer.position(fieldEnd(buffer));
+                               %3$scase %8$s -> buffer.position(buffer.position() + 4);
+                               %3$sdefault -> throw new IllegalStateException("unknown wire type in tag " + tag);
+                               %2$s}
+                               %1$s}
+
+                               """;
+        writer.write(helpersFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                INDENTATION.repeat(5), VARINT, FIXED64, LENGTH_DELIMITED, FIXED32));
+        if (typeHandlers.stream().flatMap(it -> valueTypes(it).stream()).anyMatch(it -> enums.contains(it.fqName()))) {
+            String constantFormat = """
+                                    %1$sprivate static <E> E constant(final E[] constants, final long ordinal){
+                                    %2$sif(ordinal < 0 || ordinal >= constants.length){
+                                    %3$sthrow new IllegalStateException("unknown ordinal " + ordinal);
+                                    %2$s}
+                                    %2$sreturn constants[(int) ordinal];
+                                    %1$s}
+
+                                    """;
+            writer.write(constantFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4)));
+        }
+    }
+}
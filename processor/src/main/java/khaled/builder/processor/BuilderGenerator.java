@@ -3,6 +3,8 @@ package khaled.builder.processor;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static khaled.builder.processor.GenerationInfo.INDENTATION;
 import static khaled.builder.processor.GenerationInfo.PROTOTYPE_BUILDER;
@@ -19,6 +21,11 @@ public final class BuilderGenerator implements Generator{
     private final String prototypeName;
     private final String implName;
     private final Set<TypeHandler> typeHanlders;
+    private final GenerationOptions options;
+    private final SetMask setMask;
+    private final CompactLayout layout;
+    private final ConcurrentBuilder concurrentBuilder;
+    private final BuilderMerge builderMerge;
 
     BuilderGenerator(GenerationInfo generationInfo, Writer writer) {
         this.writer = writer;
@@ -26,6 +33,11 @@ public final class BuilderGenerator implements Generator{
         this.prototypeName = generationInfo.prototypeName();
         this.implName = generationInfo.implName();
         this.typeHanlders = generationInfo.typeHandlers();
+        this.options = generationInfo.options();
+        this.setMask = SetMask.create(typeHanlders);
+        this.layout = CompactLayout.create(typeHanlders, options.compact());
+        this.concurrentBuilder = ConcurrentBuilder.create(generationInfo);
+        this.builderMerge = BuilderMerge.create(generationInfo);
 
     }
 
@@ -43,10 +55,28 @@ public final class BuilderGenerator implements Generator{
         // accessor
         generateAccessors();
 
+        generateEnsureCapacity();
+
         generateValidate();
 
         generateBuilds();
 
+        generateReset();
+
+        generateFrom();
+
+        if (options.merge()) {
+            builderMerge.generateMerge(writer);
+        }
+
+        if (options.builderPool()) {
+            generatePool();
+        }
+
+        if (options.concurrent() && !concurrentBuilder.isEmpty()) {
+            concurrentBuilder.generate(writer);
+        }
+
         writer.write(INDENTATION + "}\n\n");
     }
 
@@ -70,8 +100,23 @@ public final class BuilderGenerator implements Generator{
     private void generateCheckers() throws IOException {
         int indentationLevel = 2;
         writer.write("\n\n" + INDENTATION.repeat(indentationLevel) + "//checkers\n");
-        for (var typeHandler : typeHanlders) {
-            typeHandler.generateBuilderChecker(writer, 2);
+        if (setMask.isEmpty()) {
+            return;
+        }
+        String prefix = INDENTATION.repeat(indentationLevel);
+        if (setMask.hasRequired()) {
+            String names = setMask.requiredProperties().stream()
+                    .map(it -> "\"" + it + "\"")
+                    .collect(Collectors.joining(", "));
+            writer.write(prefix + "private static final String[] " + SetMask.PROPERTIES_NAME + " = {" + names
+                    + "};\n");
+        }
+        for (int word = 0; word < setMask.requiredWordCount(); word++) {
+            writer.write(prefix + "private static final long " + setMask.requiredName(word) + " = "
+                    + setMask.requiredLiteral(word) + ";\n");
+        }
+        for (int word = 0; word < setMask.wordCount(); word++) {
+            writer.write(prefix + "private long " + setMask.wordName(word) + ";\n");
         }
     }
 
@@ -79,23 +124,226 @@ public final class BuilderGenerator implements Generator{
         var indentationLevel = 2;
         writer.write("\n\n" + INDENTATION.repeat(indentationLevel) + "//mutators\n");
         for (var typeHandler : typeHanlders) {
-            typeHandler.generateBuilderMutators(writer, builderName, indentationLevel);
+            typeHandler.generateBuilderMutators(writer, builderName, indentationLevel, setMask);
         }
     }
 
     private void generateAccessors() throws IOException {
         for (var typeHandler : typeHanlders) {
-            typeHandler.generateAccessors(writer, 2, this);
+            if (typeHandler instanceof SimpleTypeHandler s && s.lazyDefault()) {
+                // the default the implementation would return, build() keeps it unset
+                writer.write(INDENTATION.repeat(2) + "public " + s.type().classNameWithTypes() + " " + s.name()
+                        + "(){\n");
+                writer.write(INDENTATION.repeat(3) + "return " + s.resolved("this." + s.name(), implName) + ";\n");
+                writer.write(INDENTATION.repeat(2) + "}\n\n");
+            } else {
+                typeHandler.generateAccessors(writer, 2, this);
+            }
+        }
+    }
+
+    private void generateEnsureCapacity() throws IOException {
+        var elements = typeHanlders.stream()
+                .filter(PrimitiveListTypeHandler.class::isInstance)
+                .map(PrimitiveListTypeHandler.class::cast)
+                .map(PrimitiveListTypeHandler::element)
+                .distinct()
+                .sorted()
+                .toList();
+        for (var element : elements) {
+            String ensureCapacityFormat = """
+                                          %1$sprivate static %3$s[] ensureCapacity(final %3$s[] values, final int capacity){
+                                          %2$sif(capacity <= values.length){
+                                          %4$sreturn values;
+                                          %2$s}
+                                          %2$sreturn Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1) + 8));
+                                          %1$s}
+
+                                          """;
+            writer.write(ensureCapacityFormat.formatted(INDENTATION.repeat(2),
+                    INDENTATION.repeat(3),
+                    element.primitiveType(),
+                    INDENTATION.repeat(4)));
+        }
+    }
+
+    private void generateReset() throws IOException {
+        writer.write("\n" + INDENTATION.repeat(2) + "public " + builderName + " reset(){\n");
+        for (var typeHandler : typeHanlders) {
+            typeHandler.generateBuilderReset(writer, 3);
+        }
+        for (int word = 0; word < setMask.wordCount(); word++) {
+            writer.write(INDENTATION.repeat(3) + "this." + setMask.wordName(word) + " = 0L;\n");
+        }
+        writer.write(INDENTATION.repeat(3) + "return self();\n");
+        writer.write(INDENTATION.repeat(2) + "}\n");
+    }
+
+    private void generateFrom() throws IOException {
+        writer.write("\n" + INDENTATION.repeat(2) + "public " + builderName + " from(final " + prototypeName
+                + " prototype){\n");
+        writer.write(INDENTATION.repeat(3) + "Objects.requireNonNull(prototype);\n");
+        // the implementation only holds immutable values, they are shared until mutated
+        writer.write(INDENTATION.repeat(3) + "if(prototype instanceof " + implName + " impl){\n");
+        for (var typeHandler : typeHanlders) {
+            // packed properties have no field, they are decoded by their accessor
+            typeHandler.generateBuilderFrom(writer, 4, "impl", !layout.packed(typeHandler));
+        }
+        writer.write(INDENTATION.repeat(3) + "} else {\n");
+        for (var typeHandler : typeHanlders) {
+            typeHandler.generateBuilderFrom(writer, 4, "prototype", false);
+        }
+        writer.write(INDENTATION.repeat(3) + "}\n");
+        // every simple property was set, defaults included
+        for (int word = 0; word < setMask.wordCount(); word++) {
+            writer.write(INDENTATION.repeat(3) + "this." + setMask.wordName(word) + " = " + setMask.allLiteral(word)
+                    + ";\n");
+        }
+        writer.write(INDENTATION.repeat(3) + "return self();\n");
+        writer.write(INDENTATION.repeat(2) + "}\n");
+    }
+
+    private void generatePool() throws IOException {
+        String poolFormat = """
+
+                            %1$s// lock-free, no thread locals: safe to share between virtual threads
+                            %1$spublic static final class Pool {
+
+                            %2$sprivate final AtomicReferenceArray<%4$s> slots;
+                            %2$sprivate final int mask;
+
+                            %2$spublic Pool(){
+                            %3$sthis(Runtime.getRuntime().availableProcessors() * 4);
+                            %2$s}
+
+                            %2$spublic Pool(final int capacity){
+                            %3$sint size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+                            %3$sthis.slots = new AtomicReferenceArray<>(size);
+                            %3$sthis.mask = size - 1;
+                            %2$s}
+
+                            %2$spublic %4$s acquire(){
+                            %3$sint start = probe();
+                            %3$sfor(int i = 0; i <= mask; i++){
+                            %6$sint index = (start + i) & mask;
+                            %6$s%4$s builder = slots.get(index);
+                            %6$sif(builder != null && slots.compareAndSet(index, builder, null)){
+                            %7$sreturn builder;
+                            %6$s}
+                            %3$s}
+                            %3$sreturn new %4$s();
+                            %2$s}
+
+                            %2$spublic void release(final %4$s builder){
+                            %3$sbuilder.reset();
+                            %3$sint start = probe();
+                            %3$sfor(int i = 0; i <= mask; i++){
+                            %6$sint index = (start + i) & mask;
+                            %6$sif(slots.get(index) == null && slots.compareAndSet(index, null, builder)){
+                            %7$sreturn;
+                            %6$s}
+                            %3$s}
+                            %2$s}
+
+                            %2$spublic %5$s build(final Consumer<%4$s> consumer){
+                            %3$s%4$s builder = acquire();
+                            %3$stry{
+                            %6$sconsumer.accept(builder);
+                            %6$sreturn builder.build();
+                            %3$s} finally {
+                            %6$srelease(builder);
+                            %3$s}
+                            %2$s}
+
+                            %2$sprivate static int probe(){
+                            %3$sreturn (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32);
+                            %2$s}
+                            %1$s}
+                            """;
+        writer.write(poolFormat.formatted(INDENTATION.repeat(2),
+                INDENTATION.repeat(3),
+                INDENTATION.repeat(4),
+                builderName,
+                prototypeName,
+                INDENTATION.repeat(5),
+                INDENTATION.repeat(6)));
+    }
+
+    private void generateTransferOwnership() throws IOException {
+        // the implementation takes the owned collections as they are, the next mutation copies them again
+        for (var typeHandler : typeHanlders) {
+            String owned = typeHandler.ownedName();
+            String name = typeHandler.name();
+            String transfer = switch (typeHandler) {
+                case CollectionTypeHandler c ->
+                    """
+                    %1$sif(this.%3$s){
+                    %2$sthis.%4$s.forEach(Objects::requireNonNull);
+                    %2$sthis.%4$s = %5$s;
+                    %2$sthis.%3$s = false;
+                    %1$s}
+                    """.formatted(INDENTATION.repeat(3),
+                            INDENTATION.repeat(4),
+                            owned,
+                            name,
+                            c.unmodifiable("this." + name));
+                case PrimitiveListTypeHandler p ->
+                    """
+                    %1$sif(this.%3$s){
+                    %2$sif(this.%4$s.length != this.%5$s){
+                    %6$sthis.%4$s = Arrays.copyOf(this.%4$s, this.%5$s);
+                    %2$s}
+                    %2$sthis.%3$s = false;
+                    %1$s}
+                    """.formatted(INDENTATION.repeat(3),
+                            INDENTATION.repeat(4),
+                            owned,
+                            name,
+                            p.sizeName(),
+                            INDENTATION.repeat(5));
+                default ->
+                    "";
+            };
+            writer.write(transfer);
         }
     }
 
     private void generateValidate() throws IOException {
         String validatorDeclarationPrefix = INDENTATION.repeat(2) + "private void validate(){\n\n";
         writer.write(validatorDeclarationPrefix);
-        for (var typeHandler: typeHanlders) {
-            typeHandler.generateBuilderValidateStatement(writer, 3);
+        if (!setMask.hasRequired()) {
+            writer.write(INDENTATION.repeat(2) + "}\n\n");
+            return;
         }
-        writer.write(INDENTATION.repeat(2) + "}\n\n");
+        // a single compare per word, the missing properties are only decoded on failure
+        String incomplete = setMask.incompleteExpression("", "");
+        String words = IntStream.range(0, setMask.requiredWordCount())
+                .mapToObj(setMask::wordName)
+                .collect(Collectors.joining(", "));
+        String validateFormat = """
+                                %1$sif(%4$s){
+                                %2$sthrow new IllegalStateException(missingProperties(%6$s));
+                                %1$s}
+                                %5$s}
+
+                                %5$s// the required properties whose bit is not set in words
+                                %5$sprivate static String missingProperties(final long... words){
+                                %1$sStringBuilder missing = new StringBuilder();
+                                %1$sint count = 0;
+                                %1$sfor(int i = 0; i < %7$s.length; i++){
+                                %2$sif((words[i >>> 6] & (1L << i)) == 0){
+                                %3$sif(count++ > 0){
+                                %8$smissing.append(", ");
+                                %3$s}
+                                %3$smissing.append(%7$s[i]);
+                                %2$s}
+                                %1$s}
+                                %1$sreturn (count == 1 ? "property " : "properties ") + missing + " must be initialized before building";
+                                %5$s}
+
+                                """;
+        writer.write(validateFormat.formatted(INDENTATION.repeat(3), INDENTATION.repeat(4), INDENTATION.repeat(5),
+                incomplete, INDENTATION.repeat(2), words, SetMask.PROPERTIES_NAME, INDENTATION.repeat(6)));
     }
 
     private void generateBuilds() throws IOException {
@@ -103,7 +351,14 @@ public final class BuilderGenerator implements Generator{
                 + prototypeName + " buildPrototype(){\n";
         writer.write(buildPrototypeDeclarationPrefix);
         writer.write(INDENTATION.repeat(3) + "validate();\n");
-        writer.write(INDENTATION.repeat(3) + "return new " + implName + "(this);\n");
+        if (options.transferOwnership()) {
+            generateTransferOwnership();
+        }
+        String instance = "new " + implName + "(this)";
+        if (options.intern()) {
+            instance = implName + ".intern(" + instance + ")";
+        }
+        writer.write(INDENTATION.repeat(3) + "return " + instance + ";\n");
         writer.write(INDENTATION.repeat(2) + "}\n");
         String buildDeclarationPrefix = INDENTATION.repeat(2) + "@Override\n" + INDENTATION.repeat(2) + "public " + prototypeName
                 + " build(){\n";
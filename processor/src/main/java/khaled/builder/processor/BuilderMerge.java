@@ -0,0 +1,132 @@
+package khaled.builder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * builder combination enabled by {@link GenerationOptions#MERGE}: {@code Builder.merge(other)} appends the collections
+ * and maps of other, the ones with default elements only when other changed them, and takes the scalars other set,
+ * both read from its {@link SetMask}, {@code Xxx.collectTags()} returns
+ * a {@code Collector} feeding a singular collection property whose combiner is {@code merge}, so a parallel stream
+ * fills partial builders and merges them instead of adding every element to one builder.
+ *
+ * @author khaled
+ */
+record BuilderMerge(List<TypeHandler> typeHandlers, List<TypeHandler> singulars, SetMask setMask, String builderName,
+        String prototypeName) {
+
+    static BuilderMerge create(GenerationInfo generationInfo) {
+        List<TypeHandler> singulars = generationInfo.typeHandlers()
+                .stream()
+                .filter(it -> ConcurrentBuilder.singular(it) != null)
+                .toList();
+        return new BuilderMerge(List.copyOf(generationInfo.typeHandlers()), singulars,
+                SetMask.create(generationInfo.typeHandlers()), generationInfo.builderName(),
+                generationInfo.prototypeName());
+    }
+
+    void generateCollectors(Writer writer) throws IOException {
+        for (var typeHandler : singulars) {
+            String element = switch (typeHandler) {
+                case PrimitiveListTypeHandler p ->
+                    p.element().boxedType();
+                default ->
+                    typeHandler.type().typeArguments().getFirst().className();
+            };
+            String collectorFormat = """
+                                     %1$s// the elements in encounter order after the defaults, a parallel stream merges the partial builders
+                                     %1$sstatic Collector<%3$s, %4$s, %4$s> %5$s(){
+                                     %2$sreturn Collector.<%3$s, %4$s, %4$s>of(%4$s::empty, %4$s::%6$s, %4$s::merge,
+                                     %2$s%2$sbuffer -> new %4$s().merge(buffer));
+                                     %1$s}
+
+                                     """;
+            writer.write(collectorFormat.formatted(INDENTATION, INDENTATION.repeat(2), element, builderName,
+                    "collect" + CollectionTypeHandler.capitalize(typeHandler.name()),
+                    ConcurrentBuilder.singularName(typeHandler)));
+        }
+    }
+
+    void generateMerge(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        String block = INDENTATION.repeat(4);
+        writer.write("\n" + prefix + "// appends the collections and maps of other after these ones, untouched default elements left out,\n");
+        writer.write(prefix + "// takes the properties other set, a default set explicitly included, and its present optionals\n");
+        writer.write(prefix + "public " + builderName + " merge(final " + builderName + " other){\n");
+        writer.write(body + "Objects.requireNonNull(other);\n");
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            String field = "other." + name;
+            switch (typeHandler) {
+                case SimpleTypeHandler s -> {
+                    writer.write(body + "if(" + setMask.isSetExpression("other", name) + "){\n");
+                    writer.write(block + "this." + name + " = " + field + ";\n");
+                    writer.write(block + setMask.markStatement(name) + "\n");
+                    writer.write(body + "}\n");
+                }
+                case OptionalTypeHandler o ->
+                    writeTake(writer, field + " != null", name);
+                default -> {
+                    // the default elements of other are only appended when other changed them
+                    boolean tracked = setMask.tracked(name);
+                    String indentation = tracked ? block : body;
+                    if (tracked) {
+                        writer.write(body + "if(" + setMask.isSetExpression("other", name) + "){\n");
+                    }
+                    if (typeHandler instanceof PrimitiveListTypeHandler p) {
+                        String size = p.sizeName();
+                        writer.write(indentation + p.ensureCapacityName() + "(this." + size + " + other." + size
+                                + ");\n");
+                        writer.write(indentation + "System.arraycopy(" + field + ", 0, this." + name + ", this." + size
+                                + ", other." + size + ");\n");
+                        writer.write(indentation + "this." + size + " += other." + size + ";\n");
+                        if (tracked) {
+                            writer.write(indentation + setMask.markStatement(name) + "\n");
+                        }
+                    } else {
+                        writer.write(indentation + "add" + CollectionTypeHandler.capitalize(name) + "(" + field
+                                + ");\n");
+                    }
+                    if (tracked) {
+                        writer.write(body + "}\n");
+                    }
+                }
+            }
+        }
+        writer.write(body + "return self();\n");
+        writer.write(prefix + "}\n");
+
+        if (singulars.isEmpty()) {
+            return;
+        }
+        writer.write("\n" + prefix + "// the partial result of a collector: no collection or map default, merge() adds them once\n");
+        writer.write(prefix + "private static " + builderName + " empty(){\n");
+        writer.write(body + builderName + " builder = new " + builderName + "();\n");
+        for (var typeHandler : typeHandlers) {
+            String empty = switch (typeHandler) {
+                case CollectionTypeHandler c ->
+                    c.type().className() + ".of()";
+                case PrimitiveListTypeHandler p ->
+                    "List.of()";
+                case MapTypeHandler m ->
+                    "Map.of()";
+                default ->
+                    null;
+            };
+            if (empty != null) {
+                writer.write(body + "builder." + typeHandler.name() + "(" + empty + ");\n");
+            }
+        }
+        writer.write(body + "return builder;\n");
+        writer.write(prefix + "}\n");
+    }
+
+    private void writeTake(Writer writer, String condition, String name) throws IOException {
+        writer.write(INDENTATION.repeat(3) + "if(" + condition + "){\n");
+        writer.write(INDENTATION.repeat(4) + "this." + name + " = other." + name + ";\n");
+        writer.write(INDENTATION.repeat(3) + "}\n");
+    }
+}
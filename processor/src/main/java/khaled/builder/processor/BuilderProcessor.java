@@ -7,9 +7,14 @@ import io.helidon.common.types.TypeNames;
 import io.helidon.common.types.TypedElementInfo;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Messager;
@@ -38,6 +43,11 @@ public class BuilderProcessor extends AbstractProcessor {
         return Set.of(BLUEPRINT_TYPE);
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        return GenerationOptions.SUPPORTED_OPTIONS;
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion() {
         return SourceVersion.latest();
@@ -72,7 +82,11 @@ public class BuilderProcessor extends AbstractProcessor {
                     .filter(Predicate.not(this::validatePropertyMethod))
                     .findAny()
                     .ifPresent(it -> System.out.println("error" + String.valueOf(it)));
-            GenerationInfo generationInfo = GenerationInfo.create(typeInfo);
+            GenerationInfo generationInfo = GenerationInfo.create(typeInfo, processingEnv.getOptions(),
+                    enumConstants(typeInfo));
+            if (!validateOffHeap(generationInfo, typeInfo.typeName())) {
+                return;
+            }
             String sourceName = TypeName.builder(typeInfo.typeName())
                     .className(generationInfo.prototypeName()).build().resolvedName();
             generate(generationInfo, sourceName, blueprint);
@@ -93,6 +107,20 @@ public class BuilderProcessor extends AbstractProcessor {
         return result;
     }
 
+    private boolean validateOffHeap(GenerationInfo generationInfo, TypeName blueprintTypeName) {
+        if (!generationInfo.options().offHeap()) {
+            return true;
+        }
+        if (generationInfo.typeHandlers().isEmpty()
+                || !generationInfo.typeHandlers().stream().allMatch(OffHeapLayout::supported)) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    GenerationOptions.OFF_HEAP + " requires primitive properties only: "
+                    + blueprintTypeName.resolvedName());
+            return false;
+        }
+        return true;
+    }
+
     private boolean validateBlueprintName(TypeName blueprintTypeName) {
         if (!blueprintTypeName.className().endsWith("Blueprint")) {
             messager.printMessage(Diagnostic.Kind.ERROR,
@@ -122,6 +150,9 @@ public class BuilderProcessor extends AbstractProcessor {
         if(type.isList() || type.isSet() || type.isOptional()){
             return validateSimpleType(type.typeArguments().getFirst());
         }
+        if (type.isMap()) {
+            return validateSimpleType(type.typeArguments().get(0)) && validateSimpleType(type.typeArguments().get(1));
+        }
         return validateSimpleType(type);
     }
 
@@ -135,7 +166,35 @@ public class BuilderProcessor extends AbstractProcessor {
                 || TypeNames.BOXED_INT.equals(type)
                 || TypeNames.BOXED_LONG.equals(type)
                 || TypeNames.BOXED_SHORT.equals(type)
-                || (type.primitive() && !type.array());
+                || (type.primitive() && !type.array())
+                || enumConstants(type).isPresent();
+    }
+
+    // constants of the enum types used by the properties, keyed by the enum's qualified name
+    private Map<String, List<String>> enumConstants(TypeInfo typeInfo) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        typeInfo.elementInfo()
+                .stream()
+                .map(TypedElementInfo::typeName)
+                .flatMap(it -> Stream.concat(Stream.of(it), it.typeArguments().stream()))
+                .forEach(it -> enumConstants(it).ifPresent(constants -> result.put(it.fqName(), constants)));
+        return result;
+    }
+
+    private Optional<List<String>> enumConstants(TypeName type) {
+        if (type.primitive() || type.array()) {
+            return Optional.empty();
+        }
+        TypeElement element = elementUtil.getTypeElement(type.fqName());
+        if (null == element || element.getKind() != ElementKind.ENUM) {
+            return Optional.empty();
+        }
+        List<String> constants = element.getEnclosedElements()
+                .stream()
+                .filter(it -> it.getKind() == ElementKind.ENUM_CONSTANT)
+                .map(it -> it.getSimpleName().toString())
+                .toList();
+        return Optional.of(constants);
     }
 
     private void generate(GenerationInfo generationInfo, String sourceName, TypeElement blueprint) {
@@ -11,41 +11,122 @@ import static khaled.builder.processor.GenerationInfo.INDENTATION;
  *
  * @author khaled
  */
-public record CollectionTypeHandler(String name, TypeName type, String singular, List<?> defaultValues, Type collectionType) implements TypeHandler {
+// enumBased: the elements are enum constants
+public record CollectionTypeHandler(String name, TypeName type, String singular, List<?> defaultValues, Type collectionType,
+        boolean enumBased) implements TypeHandler {
     
     enum Type {
         SET {
             @Override
-            String initialization() {
-                return "new LinkedHashSet<>(Set.of(%1$s))";
+            String immutable() {
+                return "Set.of(%1$s)";
+            }
+
+            @Override
+            String copyOf() {
+                return "Set.copyOf(%1$s)";
+            }
+
+            @Override
+            String mutableCopy() {
+                return "new LinkedHashSet<>(%1$s)";
+            }
+
+            @Override
+            String unmodifiable() {
+                return "Collections.unmodifiableSet(%1$s)";
+            }
+
+        },
+        // backed by an EnumSet, membership tests are bit operations
+        ENUM_SET {
+            @Override
+            String immutable() {
+                return "enumSetCopy(%2$s.class, List.of(%1$s))";
+            }
+
+            @Override
+            String copyOf() {
+                return "enumSetCopy(%2$s.class, %1$s)";
+            }
+
+            @Override
+            String mutableCopy() {
+                return "mutableEnumSet(%2$s.class, %1$s)";
+            }
+
+            @Override
+            String unmodifiable() {
+                return "Collections.unmodifiableSet(%1$s)";
             }
 
         },
         LIST {
             @Override
-            String initialization() {
-                return "new ArrayList<>(List.of(%1$s))";
+            String immutable() {
+                return "List.of(%1$s)";
+            }
+
+            @Override
+            String copyOf() {
+                return "List.copyOf(%1$s)";
+            }
+
+            @Override
+            String mutableCopy() {
+                return "new ArrayList<>(%1$s)";
+            }
+
+            @Override
+            String unmodifiable() {
+                return "Collections.unmodifiableList(%1$s)";
             }
 
         };
 
-        abstract String initialization();
+        abstract String immutable();
+
+        abstract String copyOf();
+
+        abstract String mutableCopy();
+
+        abstract String unmodifiable();
+    }
+
+    String immutable(String values) {
+        return collectionType.immutable().formatted(values, elementName());
+    }
+
+    String copyOf(String value) {
+        return collectionType.copyOf().formatted(value, elementName());
+    }
+
+    String mutableCopy(String value) {
+        return collectionType.mutableCopy().formatted(value, elementName());
+    }
+
+    String unmodifiable(String value) {
+        return collectionType.unmodifiable().formatted(value, elementName());
+    }
+
+    private String elementName() {
+        return type.typeArguments().getFirst().className();
     }
 
     @Override
-    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel) throws IOException {
+    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException {
 
-        generateAddCollection(writer, builderName, indentationLevel, name, true, false);
-        generateAddCollection(writer, builderName, indentationLevel, "add" + capitalize(name), false, false);
+        String mark = setMask.tracked(name) ? setMask.markStatement(name) : null;
+        generateAddCollection(writer, builderName, indentationLevel, name, true, false, mark);
+        generateAddCollection(writer, builderName, indentationLevel, "add" + capitalize(name), false, false, mark);
         if (null != singular) {
-            if (singular.isBlank()) {
-                generateAddCollection(writer, builderName, indentationLevel,  "add" + capitalize(singular(name)), false, true);
-            } else {
-                generateAddCollection(writer, builderName, indentationLevel, singular, false, true);
-            }
+            generateAddCollection(writer, builderName, indentationLevel, singularName(name, singular), false, true,
+                    mark);
         }
+        generateMutable(writer, indentationLevel);
     }
-    private void generateAddCollection(Writer writer,String builderName, int indentationLevel, String methodName, boolean clear, boolean singular) throws IOException{
+    private void generateAddCollection(Writer writer,String builderName, int indentationLevel, String methodName, boolean clear, boolean singular, String mark) throws IOException{
         String mutatorDeclarationPrefix = INDENTATION.repeat(indentationLevel) + "public ";
         String builderType = builderName;
         String paramName;
@@ -75,23 +156,53 @@ public record CollectionTypeHandler(String name, TypeName type, String singular,
         writer.write(requireNonNull);
 
         if (clear) {
-            String clearCollection = INDENTATION.repeat(indentationLevel + 1) + "this." + name + ".clear();\n";
-            writer.write(clearCollection);
-        }
-        if (singular) {
-            String add = INDENTATION.repeat(indentationLevel + 1 ) + "this." + name + ".add(" + paramName + ");\n";
+            // one immutable copy, reused as is by the implementation unless mutated again
+            String copy = INDENTATION.repeat(indentationLevel + 1) + "this." + name + " = "
+                    + copyOf(paramName) + ";\n";
+            writer.write(copy);
+            writer.write(INDENTATION.repeat(indentationLevel + 1) + "this." + ownedName() + " = false;\n");
+        } else if (singular) {
+            String add = INDENTATION.repeat(indentationLevel + 1 ) + mutableName() + "().add(" + paramName + ");\n";
             writer.write(add);
 
         } else {
-            String addAll = INDENTATION.repeat(indentationLevel + 1) + "this." + name + ".addAll(" + paramName + ");\n";
+            String addAll = INDENTATION.repeat(indentationLevel + 1) + mutableName() + "().addAll(" + paramName + ");\n";
             writer.write(addAll);
         }
+        if (null != mark) {
+            writer.write(INDENTATION.repeat(indentationLevel + 1) + mark + "\n");
+        }
         String returSelf = INDENTATION.repeat(indentationLevel + 1) + "return self();\n";
 
         writer.write(returSelf);
         writer.write(INDENTATION.repeat(indentationLevel) + "}\n\n");
     }
-    private String covary(TypeName type) {
+    private void generateMutable(Writer writer, int indentationLevel) throws IOException {
+        String mutableFormat = """
+                               %1$sprivate %4$s %5$s(){
+                               %2$sif(!this.%6$s){
+                               %3$sthis.%7$s = %8$s;
+                               %3$sthis.%6$s = true;
+                               %2$s}
+                               %2$sreturn this.%7$s;
+                               %1$s}
+
+                               """;
+        writer.write(mutableFormat.formatted(INDENTATION.repeat(indentationLevel),
+                INDENTATION.repeat(indentationLevel + 1),
+                INDENTATION.repeat(indentationLevel + 2),
+                type.classNameWithTypes(),
+                mutableName(),
+                ownedName(),
+                name,
+                mutableCopy("this." + name)));
+    }
+
+    private String mutableName() {
+        return "mutable" + capitalize(name);
+    }
+
+    static String covary(TypeName type) {
         List<TypeName> arguments = type.typeArguments()
                 .stream()
                 .map(it -> TypeName.builder(it).wildcard(true).build())
@@ -108,7 +219,7 @@ public record CollectionTypeHandler(String name, TypeName type, String singular,
         }
         return paramType;
     }
-    private static String capitalize(String name) {
+    static String capitalize(String name) {
         if (!name.isBlank()) {
             return Character.toUpperCase(name.charAt(0)) + name.substring(1);
         }
@@ -116,7 +227,12 @@ public record CollectionTypeHandler(String name, TypeName type, String singular,
 
     }
 
-    private static String singular(String name) {
+    // the builder method adding one element, addXX unless @Option.Singular names it
+    static String singularName(String name, String singular) {
+        return singular.isBlank() ? "add" + capitalize(singular(name)) : singular;
+    }
+
+    static String singular(String name) {
         if (name.length() > 1 && name.endsWith("s")) {
             return name.substring(0, name.length() - 1);
         }
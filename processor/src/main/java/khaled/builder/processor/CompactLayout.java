@@ -0,0 +1,160 @@
+package khaled.builder.processor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * compact implementation layout: boolean, byte, char, short and enum (as ordinal) properties are packed into shared
+ * words (an {@code int} when the word uses at most 32 bits, a {@code long} otherwise) and decoded by the accessors,
+ * the remaining fields are declared widest first.
+ *
+ * @author khaled
+ */
+record CompactLayout(Map<String, Slot> slots, List<Integer> wordBits) {
+
+    static final String WORD_PREFIX = "packed";
+
+    record Slot(int word, int shift, String type, int bits, boolean enumBased) {
+    }
+
+    static CompactLayout create(Set<TypeHandler> typeHandlers, boolean enabled) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        List<Integer> wordBits = new ArrayList<>();
+        if (!enabled) {
+            return new CompactLayout(slots, wordBits);
+        }
+        List<TypeHandler> packable = typeHandlers.stream()
+                .filter(it -> it instanceof SimpleTypeHandler s && !s.lazyDefault() && bits(it) > 0)
+                .sorted(Comparator.comparingInt(CompactLayout::bits).reversed())
+                .toList();
+        // first fit, widest first
+        for (var typeHandler : packable) {
+            String type = typeHandler.type().className();
+            int width = bits(typeHandler);
+            int word = 0;
+            while (word < wordBits.size() && wordBits.get(word) + width > Long.SIZE) {
+                word++;
+            }
+            if (word == wordBits.size()) {
+                wordBits.add(0);
+            }
+            boolean enumBased = ((SimpleTypeHandler) typeHandler).enumBased();
+            slots.put(typeHandler.name(), new Slot(word, wordBits.get(word), type, width, enumBased));
+            wordBits.set(word, wordBits.get(word) + width);
+        }
+        return new CompactLayout(slots, wordBits);
+    }
+
+    boolean packed(TypeHandler typeHandler) {
+        return slots.containsKey(typeHandler.name());
+    }
+
+    int wordCount() {
+        return wordBits.size();
+    }
+
+    String wordName(int word) {
+        return wordCount() == 1 ? WORD_PREFIX : WORD_PREFIX + word;
+    }
+
+    String wordType(int word) {
+        return wide(word) ? "long" : "int";
+    }
+
+    // decodes the property from the word of owner
+    String read(TypeHandler typeHandler, String owner) {
+        Slot slot = slots.get(typeHandler.name());
+        String word = owner + "." + wordName(slot.word());
+        if ("boolean".equals(slot.type())) {
+            return "(" + word + " & " + literal(slot.word(), 1L << slot.shift()) + ") != 0";
+        }
+        String shifted = slot.shift() == 0 ? word : "(" + word + " >>> " + slot.shift() + ")";
+        if (slot.enumBased()) {
+            String ordinal = "(" + shifted + " & " + literal(slot.word(), (1L << slot.bits()) - 1) + ")";
+            return valuesName(typeHandler) + "[" + (wide(slot.word()) ? "(int) " : "") + ordinal + "]";
+        }
+        return "(" + slot.type() + ") " + shifted;
+    }
+
+    // the bits of value in its word, the words are the or of their properties
+    String encode(TypeHandler typeHandler, String value) {
+        Slot slot = slots.get(typeHandler.name());
+        if ("boolean".equals(slot.type())) {
+            return "(" + value + " ? " + literal(slot.word(), 1L << slot.shift()) + " : " + literal(slot.word(), 0) + ")";
+        }
+        if (slot.enumBased()) {
+            String ordinal = (wide(slot.word()) ? "(long) " : "") + value + ".ordinal()";
+            return slot.shift() == 0 ? ordinal : "(" + ordinal + " << " + slot.shift() + ")";
+        }
+        long mask = (1L << slot.bits()) - 1;
+        String masked = "(" + value + " & " + literal(slot.word(), mask) + ")";
+        return slot.shift() == 0 ? masked : "(" + masked + " << " + slot.shift() + ")";
+    }
+
+    // the constants of a packed enum, indexed by ordinal
+    String valuesName(TypeHandler typeHandler) {
+        return typeHandler.defaultConstantName().substring("DEFAULT_".length()) + "_VALUES";
+    }
+
+    List<TypeHandler> enumProperties(Set<TypeHandler> typeHandlers) {
+        return typeHandlers.stream()
+                .filter(it -> packed(it) && slots.get(it.name()).enumBased())
+                .toList();
+    }
+
+    List<TypeHandler> properties(Set<TypeHandler> typeHandlers, int word) {
+        return typeHandlers.stream()
+                .filter(it -> packed(it) && slots.get(it.name()).word() == word)
+                .toList();
+    }
+
+    // approximate field size in bytes, used to declare the unpacked fields widest first
+    static int fieldSize(TypeHandler typeHandler) {
+        if (typeHandler instanceof PrimitiveListTypeHandler || !typeHandler.type().primitive()) {
+            return 4;
+        }
+        return switch (typeHandler.type().className()) {
+            case "long", "double" ->
+                8;
+            case "int", "float" ->
+                4;
+            case "short", "char" ->
+                2;
+            default ->
+                1;
+        };
+    }
+
+    private boolean wide(int word) {
+        return wordBits.get(word) > Integer.SIZE;
+    }
+
+    private String literal(int word, long value) {
+        String hex = "0x" + Long.toHexString(value).toUpperCase(Locale.ROOT);
+        return wide(word) ? hex + "L" : hex;
+    }
+
+    private static int bits(TypeHandler typeHandler) {
+        if (typeHandler instanceof SimpleTypeHandler s && s.enumBased()) {
+            // enough bits for the highest ordinal
+            return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(s.enumConstants().size() - 1));
+        }
+        return switch (typeHandler.type().className()) {
+            case "boolean" ->
+                1;
+            case "byte" ->
+                Byte.SIZE;
+            case "char" ->
+                Character.SIZE;
+            case "short" ->
+                Short.SIZE;
+            default ->
+                0;
+        };
+    }
+}
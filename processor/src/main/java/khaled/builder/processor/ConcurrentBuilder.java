@@ -0,0 +1,206 @@
+package khaled.builder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * thread safe accumulation enabled by {@link GenerationOptions#CONCURRENT}: {@code Builder.Concurrent} wraps a builder
+ * and exposes the singular adders of its collection properties, every add goes to a buffer builder claimed from a
+ * striped array with a compare and set (no lock, threads usually get back their own buffer) and {@code build()}
+ * validates the wrapped builder, closes the adders, waits for the adds in flight and merges the buffers into it once.
+ *
+ * @author khaled
+ */
+record ConcurrentBuilder(List<TypeHandler> singulars, String builderName, String prototypeName) {
+
+    static ConcurrentBuilder create(GenerationInfo generationInfo) {
+        List<TypeHandler> singulars = generationInfo.typeHandlers()
+                .stream()
+                .filter(it -> singular(it) != null)
+                .toList();
+        return new ConcurrentBuilder(singulars, generationInfo.builderName(), generationInfo.prototypeName());
+    }
+
+    boolean isEmpty() {
+        return singulars.isEmpty();
+    }
+
+    void generate(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String member = INDENTATION.repeat(3);
+        String body = INDENTATION.repeat(4);
+        String concurrentFormat = """
+
+                                  %1$s// adds from any number of threads without a shared lock, an add after build() throws;
+                                  %1$s// the buffers are merged in creation order, sorted merges sort the added elements so the
+                                  %1$s// result does not depend on the scheduling
+                                  %1$spublic static final class Concurrent {
+
+                                  %2$sprivate final %4$s builder;
+                                  %2$sprivate final boolean sorted;
+                                  %2$sprivate final AtomicReferenceArray<Buffer> stripes;
+                                  %2$sprivate final int mask;
+                                  %2$s// every buffer ever created, including the ones claimed by an add
+                                  %2$sprivate final ConcurrentLinkedQueue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+                                  %2$sprivate volatile boolean closed;
+
+                                  %2$spublic Concurrent(final %4$s builder){
+                                  %3$sthis(builder, false);
+                                  %2$s}
+
+                                  %2$spublic Concurrent(final %4$s builder, final boolean sorted){
+                                  %3$sthis.builder = Objects.requireNonNull(builder);
+                                  %3$sthis.sorted = sorted;
+                                  %3$sint size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+                                  %3$sthis.stripes = new AtomicReferenceArray<>(size);
+                                  %3$sthis.mask = size - 1;
+                                  %2$s}
+
+                                  """;
+        writer.write(concurrentFormat.formatted(prefix, member, body, builderName));
+
+        for (var typeHandler : singulars) {
+            String name = typeHandler.name();
+            String parameter = CollectionTypeHandler.singular(name);
+            String element = switch (typeHandler) {
+                case PrimitiveListTypeHandler p ->
+                    p.element().primitiveType();
+                default ->
+                    typeHandler.type().typeArguments().getFirst().className();
+            };
+            String addFormat = """
+                               %1$spublic Concurrent %4$s(final %5$s %6$s){
+                               %2$sBuffer buffer = acquire();
+                               %2$stry{
+                               %3$sif(closed){
+                               %3$s%8$sthrow new IllegalStateException("build() has been called");
+                               %3$s}
+                               %3$sbuffer.builder.%4$s(%6$s);
+                               %2$s} finally {
+                               %3$srelease(buffer);
+                               %2$s}
+                               %2$sreturn this;
+                               %1$s}
+
+                               """;
+            writer.write(addFormat.formatted(member, body, INDENTATION.repeat(5), singularName(typeHandler), element,
+                    parameter, builderName, INDENTATION));
+        }
+
+        // the required properties do not depend on the added elements: a failed validation leaves the builder and
+        // the buffers as they were
+        writer.write(member + "public " + prototypeName + " build(){\n");
+        writer.write(body + "this.builder.validate();\n");
+        writer.write(body + "closed = true;\n");
+        writer.write(body + "for(Buffer buffer : buffers){\n");
+        writer.write(INDENTATION.repeat(5) + "while(buffer.busy){\n");
+        writer.write(INDENTATION.repeat(6) + "Thread.onSpinWait();\n");
+        writer.write(INDENTATION.repeat(5) + "}\n");
+        writer.write(body + "}\n");
+        for (var typeHandler : singulars) {
+            String name = typeHandler.name();
+            String element = switch (typeHandler) {
+                case PrimitiveListTypeHandler p ->
+                    p.element().boxedType();
+                default ->
+                    typeHandler.type().typeArguments().getFirst().className();
+            };
+            writer.write(body + "List<" + element + "> " + name + " = new ArrayList<>();\n");
+        }
+        writer.write(body + "for(Buffer buffer : buffers){\n");
+        for (var typeHandler : singulars) {
+            writer.write(INDENTATION.repeat(5) + typeHandler.name() + ".addAll(buffer.builder." + typeHandler.name()
+                    + "());\n");
+        }
+        writer.write(INDENTATION.repeat(5) + "clear(buffer.builder);\n");
+        writer.write(body + "}\n");
+        writer.write(body + "if(sorted){\n");
+        for (var typeHandler : singulars) {
+            writer.write(INDENTATION.repeat(5) + typeHandler.name() + ".sort(null);\n");
+        }
+        writer.write(body + "}\n");
+        for (var typeHandler : singulars) {
+            String name = typeHandler.name();
+            // sets take the elements one by one, in the merged order
+            String merge = "List".equals(typeHandler.type().className())
+                    ? "this.builder.add" + CollectionTypeHandler.capitalize(name) + "(" + name + ");\n"
+                    : name + ".forEach(this.builder::" + singularName(typeHandler) + ");\n";
+            writer.write(body + merge);
+        }
+        writer.write(body + "return this.builder.build();\n");
+        writer.write(member + "}\n\n");
+
+        String stripesFormat = """
+                               %1$s// marks the buffer busy before the add reads closed, build() reads them in the other order
+                               %1$sprivate Buffer acquire(){
+                               %2$sint start = probe();
+                               %2$sfor(int i = 0; i <= mask; i++){
+                               %3$sint index = (start + i) & mask;
+                               %3$sBuffer buffer = stripes.get(index);
+                               %3$sif(buffer != null && stripes.compareAndSet(index, buffer, null)){
+                               %5$sbuffer.busy = true;
+                               %5$sreturn buffer;
+                               %3$s}
+                               %2$s}
+                               %2$sBuffer buffer = new Buffer();
+                               %2$sbuffers.add(buffer);
+                               %2$sreturn buffer;
+                               %1$s}
+
+                               %1$sprivate void release(final Buffer buffer){
+                               %2$sbuffer.busy = false;
+                               %2$sint start = probe();
+                               %2$sfor(int i = 0; i <= mask; i++){
+                               %3$sint index = (start + i) & mask;
+                               %3$sif(stripes.get(index) == null && stripes.compareAndSet(index, null, buffer)){
+                               %5$sreturn;
+                               %3$s}
+                               %2$s}
+                               %1$s}
+
+                               """;
+        writer.write(stripesFormat.formatted(member, body, INDENTATION.repeat(5), builderName,
+                INDENTATION.repeat(6)));
+
+        // a buffer only holds the added elements, not the collection defaults
+        writer.write(member + "private static " + builderName + " clear(final " + builderName + " buffer){\n");
+        for (var typeHandler : singulars) {
+            writer.write(body + "buffer." + typeHandler.name() + "(" + typeHandler.type().className() + ".of());\n");
+        }
+        writer.write(body + "return buffer;\n");
+        writer.write(member + "}\n\n");
+
+        writer.write(member + "private static int probe(){\n");
+        writer.write(body + "return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32);\n");
+        writer.write(member + "}\n\n");
+
+        String bufferFormat = """
+                              %1$s// a buffer builder and whether an add holds it
+                              %1$sprivate static final class Buffer {
+
+                              %2$sprivate final %3$s builder = clear(new %3$s());
+                              %2$sprivate volatile boolean busy = true;
+                              %1$s}
+                              """;
+        writer.write(bufferFormat.formatted(member, body, builderName));
+        writer.write(prefix + "}\n");
+    }
+
+    static String singularName(TypeHandler typeHandler) {
+        return CollectionTypeHandler.singularName(typeHandler.name(), singular(typeHandler));
+    }
+
+    // the @Option.Singular value of a collection, null without singular adder
+    static String singular(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case CollectionTypeHandler c ->
+                c.singular();
+            case PrimitiveListTypeHandler p ->
+                p.singular();
+            default ->
+                null;
+        };
+    }
+}
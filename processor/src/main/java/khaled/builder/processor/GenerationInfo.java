@@ -2,6 +2,9 @@ package khaled.builder.processor;
 
 import io.helidon.common.types.TypeInfo;
 import io.helidon.common.types.TypeName;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -15,7 +18,9 @@ public record GenerationInfo(
         String implName,
         String superTypeName,
         String packageName,
-        Set<TypeHandler> typeHandlers) {
+        Set<TypeHandler> typeHandlers,
+        GenerationOptions options,
+        Map<String, List<String>> enums) {
 
     static final String BLUEPRINT_SUFFIX = "Blueprint";
     static final String INDENTATION = "    ";
@@ -24,15 +29,14 @@ public record GenerationInfo(
 
     static final String PROTOTYPE_BUILDER = "Prototype.Builder";
 
-    static final String CHECKER_SUFFIX = "Checker";
-
     static final String IMPL_SUFFIX = "Impl";
 
     static final String COMMON_BUILDER = "io.helidon.common.Builder";
 
     private static final String BUILDER_NAME = "Builder";
 
-    public static GenerationInfo create(TypeInfo blueprint) {
+    public static GenerationInfo create(TypeInfo blueprint, Map<String, String> processorOptions,
+            Map<String, List<String>> enums) {
         TypeName type = blueprint.typeName();
 
         String blueprintName = type.className();
@@ -45,12 +49,15 @@ public record GenerationInfo(
 
         String builderName = BUILDER_NAME;
 
+        GenerationOptions options = GenerationOptions.create(processorOptions, type);
+
         Set<TypeHandler> properties = blueprint.elementInfo()
                 .stream()
-                .map(TypeHandler::create)
-                .collect(Collectors.toSet());
+                .map(it -> TypeHandler.create(it, options, enums, type))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        return new GenerationInfo(prototypeName, builderName, implName, blueprintName, packageName, properties);
+        return new GenerationInfo(prototypeName, builderName, implName, blueprintName, packageName, properties,
+                options, enums);
 
     }
     
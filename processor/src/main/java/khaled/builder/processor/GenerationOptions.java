@@ -0,0 +1,176 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * opt-in generation features, configured through annotation processor options ({@code -Akey=value}).
+ * a feature value is either {@code true}/{@code false} or a comma separated list of the blueprints
+ * (simple or qualified names) it applies to, {@code builder.sortKeys} is a semicolon separated list of
+ * {@code Blueprint:key,key} comparator orders and {@code builder.toStringMaxElements} a semicolon separated list of
+ * {@code Blueprint:n} limits, an entry without blueprint is the limit of the other blueprints.
+ *
+ * @author khaled
+ */
+public record GenerationOptions(boolean cacheHashCode,
+        boolean cacheToString,
+        int toStringMaxElements,
+        boolean primitiveLists,
+        boolean transferOwnership,
+        boolean builderPool,
+        boolean intern,
+        boolean compact,
+        boolean binary,
+        boolean json,
+        boolean offHeap,
+        boolean batch,
+        boolean comparable,
+        List<List<String>> sortKeys,
+        boolean hash64,
+        boolean mutable,
+        boolean concurrent,
+        boolean merge) {
+
+    static final String CACHE_HASH_CODE = "builder.cacheHashCode";
+
+    static final String CACHE_TO_STRING = "builder.cacheToString";
+
+    static final String TO_STRING_MAX_ELEMENTS = "builder.toStringMaxElements";
+
+    static final String PRIMITIVE_LISTS = "builder.primitiveLists";
+
+    static final String TRANSFER_OWNERSHIP = "builder.transferOwnership";
+
+    static final String BUILDER_POOL = "builder.pool";
+
+    static final String INTERN = "builder.intern";
+
+    static final String COMPACT = "builder.compact";
+
+    static final String BINARY = "builder.binary";
+
+    static final String JSON = "builder.json";
+
+    static final String OFF_HEAP = "builder.offHeap";
+
+    static final String BATCH = "builder.batch";
+
+    static final String COMPARABLE = "builder.comparable";
+
+    static final String SORT_KEYS = "builder.sortKeys";
+
+    static final String HASH64 = "builder.hash64";
+
+    static final String MUTABLE = "builder.mutable";
+
+    static final String CONCURRENT = "builder.concurrent";
+
+    static final String MERGE = "builder.merge";
+
+    static final int UNLIMITED = -1;
+
+    static final Set<String> SUPPORTED_OPTIONS = Set.of(CACHE_HASH_CODE, CACHE_TO_STRING, TO_STRING_MAX_ELEMENTS,
+            PRIMITIVE_LISTS, TRANSFER_OWNERSHIP, BUILDER_POOL, INTERN,
+            COMPACT, BINARY, JSON, OFF_HEAP, BATCH, COMPARABLE, SORT_KEYS, HASH64, MUTABLE, CONCURRENT, MERGE);
+
+    public static GenerationOptions create(Map<String, String> options, TypeName blueprint) {
+        boolean cacheHashCode = enabled(options, CACHE_HASH_CODE, blueprint);
+        boolean cacheToString = enabled(options, CACHE_TO_STRING, blueprint);
+        int toStringMaxElements = limit(options, TO_STRING_MAX_ELEMENTS, blueprint);
+        boolean primitiveLists = enabled(options, PRIMITIVE_LISTS, blueprint);
+        boolean transferOwnership = enabled(options, TRANSFER_OWNERSHIP, blueprint);
+        boolean builderPool = enabled(options, BUILDER_POOL, blueprint);
+        boolean intern = enabled(options, INTERN, blueprint);
+        boolean compact = enabled(options, COMPACT, blueprint);
+        boolean binary = enabled(options, BINARY, blueprint);
+        boolean json = enabled(options, JSON, blueprint);
+        boolean offHeap = enabled(options, OFF_HEAP, blueprint);
+        boolean batch = enabled(options, BATCH, blueprint);
+        boolean comparable = enabled(options, COMPARABLE, blueprint);
+        List<List<String>> sortKeys = keyOrders(options, SORT_KEYS, blueprint);
+        boolean hash64 = enabled(options, HASH64, blueprint);
+        boolean mutable = enabled(options, MUTABLE, blueprint);
+        boolean concurrent = enabled(options, CONCURRENT, blueprint);
+        boolean merge = enabled(options, MERGE, blueprint);
+        return new GenerationOptions(cacheHashCode, cacheToString, toStringMaxElements, primitiveLists,
+                transferOwnership, builderPool, intern, compact, binary, json, offHeap, batch, comparable, sortKeys,
+                hash64, mutable, concurrent, merge);
+    }
+
+    boolean limitToString() {
+        return toStringMaxElements != UNLIMITED;
+    }
+
+    private static int limit(Map<String, String> options, String option, TypeName blueprint) {
+        String value = options.get(option);
+        if (null == value || value.isBlank()) {
+            return UNLIMITED;
+        }
+        int limit = UNLIMITED;
+        for (String entry : value.split(";")) {
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                if (limit == UNLIMITED) {
+                    limit = intValue(option, entry);
+                }
+                continue;
+            }
+            String name = entry.substring(0, separator).trim();
+            if (name.equals(blueprint.className()) || name.equals(blueprint.fqName())) {
+                return intValue(option, entry.substring(separator + 1));
+            }
+        }
+        return limit;
+    }
+
+    private static int intValue(String option, String value) {
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result < 0) {
+                throw new IllegalStateException(option + " must not be negative: " + value);
+            }
+            return result;
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException(option + " must be an int: " + value, ex);
+        }
+    }
+
+    private static List<List<String>> keyOrders(Map<String, String> options, String option, TypeName blueprint) {
+        String value = options.get(option);
+        if (null == value || value.isBlank()) {
+            return List.of();
+        }
+        List<List<String>> orders = new ArrayList<>();
+        for (String entry : value.split(";")) {
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalStateException(option + " entries must be Blueprint:key,key: " + entry);
+            }
+            String name = entry.substring(0, separator).trim();
+            if (name.equals(blueprint.className()) || name.equals(blueprint.fqName())) {
+                orders.add(Arrays.stream(entry.substring(separator + 1).split(","))
+                        .map(String::trim)
+                        .toList());
+            }
+        }
+        return List.copyOf(orders);
+    }
+
+    private static boolean enabled(Map<String, String> options, String option, TypeName blueprint) {
+        String value = options.get(option);
+        if (null == value || value.isBlank()) {
+            return false;
+        }
+        String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+            return Boolean.parseBoolean(trimmed);
+        }
+        return Arrays.stream(trimmed.split(","))
+                .map(String::trim)
+                .anyMatch(it -> it.equals(blueprint.className()) || it.equals(blueprint.fqName()));
+    }
+}
@@ -1,10 +1,14 @@
 package khaled.builder.processor;
 
-import io.helidon.common.types.TypeName;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static khaled.builder.processor.GenerationInfo.INDENTATION;
 
@@ -19,6 +23,12 @@ public final class ImplementationGenerator implements Generator {
     private final String implName;
     private final String builderName;
     private final Set<TypeHandler> typeHandlers;
+    private final GenerationOptions options;
+    private final CompactLayout layout;
+    private final BinaryCodec binaryCodec;
+    private final JsonCodec jsonCodec;
+    private final SortKeys sortKeys;
+    private final StableHash stableHash;
 
     public ImplementationGenerator(GenerationInfo generationInfo, Writer writer) {
         this.writer = writer;
@@ -26,6 +36,12 @@ public final class ImplementationGenerator implements Generator {
         this.prototypeName = generationInfo.prototypeName();
         this.builderName = generationInfo.builderName();
         this.typeHandlers = generationInfo.typeHandlers();
+        this.options = generationInfo.options();
+        this.layout = CompactLayout.create(typeHandlers, options.compact());
+        this.binaryCodec = BinaryCodec.create(generationInfo, it -> fieldValue(it, "this."));
+        this.jsonCodec = JsonCodec.create(generationInfo, it -> fieldValue(it, "this."));
+        this.sortKeys = SortKeys.create(generationInfo);
+        this.stableHash = StableHash.create(generationInfo, it -> fieldValue(it, "this."));
 
     }
 
@@ -41,19 +57,80 @@ public final class ImplementationGenerator implements Generator {
 
         generateConstructor();
 
+        generateFieldsConstructor();
+
+        generateLazyDefaults();
+
+        generateWithers();
+
         generateEquals();
 
         generateHashCode();
 
+        if (options.hash64()) {
+            stableHash.generate(writer);
+        }
+
         generateToString();
 
+        generatePrimitiveListViews();
+
+        generateMapTables();
+
+        if (options.intern()) {
+            generateInternTable();
+        }
+
+        if (options.binary()) {
+            binaryCodec.generate(writer, prototypeName);
+        }
+
+        if (options.json()) {
+            jsonCodec.generate(writer, prototypeName);
+        }
+
+        if (options.comparable()) {
+            sortKeys.generate(writer);
+        }
+
         writer.write("    }\n\n");
     }
 
     private void generateProperties() throws IOException {
         writer.write("\n\n" + INDENTATION.repeat(2) + "//properties\n");
-        for (var property : typeHandlers) {
-            property.generateImplementationProperty(writer, 2);
+        if (options.compact()) {
+            // widest first, the packed words take the place of the small primitives
+            var unpacked = typeHandlers.stream()
+                    .filter(it -> !layout.packed(it))
+                    .sorted(Comparator.comparingInt(CompactLayout::fieldSize).reversed())
+                    .toList();
+            for (var property : unpacked) {
+                property.generateImplementationProperty(writer, 2);
+            }
+            for (int word = 0; word < layout.wordCount(); word++) {
+                writer.write(INDENTATION.repeat(2) + "private final " + layout.wordType(word) + " "
+                        + layout.wordName(word) + ";\n");
+            }
+            for (var property : layout.enumProperties(typeHandlers)) {
+                String enumType = property.type().className();
+                writer.write(INDENTATION.repeat(2) + "private static final " + enumType + "[] "
+                        + layout.valuesName(property) + " = " + enumType + ".values();\n");
+            }
+        } else {
+            for (var property : typeHandlers) {
+                property.generateImplementationProperty(writer, 2);
+            }
+        }
+        if (options.cacheHashCode()) {
+            // 0 means not computed yet, same racy single-check as java.lang.String
+            writer.write(INDENTATION.repeat(2) + "private int hashCode;\n");
+        }
+        if (options.cacheToString()) {
+            writer.write(INDENTATION.repeat(2) + "private String toString;\n");
+        }
+        if (options.intern()) {
+            // set once the instance is the canonical one, equal canonical instances are the same instance
+            writer.write(INDENTATION.repeat(2) + "private boolean interned;\n");
         }
     }
 
@@ -62,7 +139,19 @@ public final class ImplementationGenerator implements Generator {
         String override = INDENTATION.repeat(2) + "@Override\n";
         for (var typeHandler : typeHandlers) {
             writer.write(override);
-            typeHandler.generateAccessors(writer, 2, this);
+            if (layout.packed(typeHandler)) {
+                writer.write(INDENTATION.repeat(2) + "public " + typeHandler.type().className() + " "
+                        + typeHandler.name() + "(){\n");
+                writer.write(INDENTATION.repeat(3) + "return " + layout.read(typeHandler, "this") + ";\n");
+                writer.write(INDENTATION.repeat(2) + "}\n\n");
+            } else if (typeHandler instanceof SimpleTypeHandler s && s.lazyDefault()) {
+                writer.write(INDENTATION.repeat(2) + "public " + s.type().classNameWithTypes() + " " + s.name()
+                        + "(){\n");
+                writer.write(INDENTATION.repeat(3) + "return " + s.resolved("this." + s.name(), implName) + ";\n");
+                writer.write(INDENTATION.repeat(2) + "}\n\n");
+            } else {
+                typeHandler.generateAccessors(writer, 2, this);
+            }
         }
     }
 
@@ -71,23 +160,192 @@ public final class ImplementationGenerator implements Generator {
                 + builderName + " builder){\n";
         writer.write(constructorDeclarationPrefix);
         for (var typeHandler : typeHandlers) {
-            TypeName type = typeHandler.type();
-            String name = typeHandler.name();
-            String assigement;
-            String assignementPrefix = INDENTATION.repeat(3) + "this." + name + " = ";
-            if (typeHandler.collectionBased()) {
-                String copyOfAssignement = type.className() + ".copyOf(builder." + name + "());\n";
-                assigement = assignementPrefix + copyOfAssignement;
-            } else {
-                assigement = assignementPrefix + "builder." + name + "();\n";
+            if (layout.packed(typeHandler)) {
+                continue;
             }
-            writer.write(assigement);
+            // values the builder does not own are immutable defaults or copies, they are shared as is
+            writer.write(INDENTATION.repeat(3) + "this." + typeHandler.name() + " = " + builderValue(typeHandler, "builder")
+                    + ";\n");
+        }
+        generatePackedAssignements(it -> "builder." + it.name() + "()");
+
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
 
+    private void generatePackedAssignements(Function<TypeHandler, String> value) throws IOException {
+        for (int word = 0; word < layout.wordCount(); word++) {
+            String joinExpression = "\n" + INDENTATION.repeat(5) + "| ";
+            String packed = layout.properties(typeHandlers, word)
+                    .stream()
+                    .map(it -> layout.encode(it, value.apply(it)))
+                    .collect(Collectors.joining(joinExpression));
+            writer.write(INDENTATION.repeat(3) + "this." + layout.wordName(word) + " = " + packed + ";\n");
         }
+    }
 
+    private void generateFieldsConstructor() throws IOException {
+        String parameters = typeHandlers.stream()
+                .map(it -> "final " + implementationFieldType(it) + " " + it.name())
+                .collect(Collectors.joining(", "));
+        writer.write(INDENTATION.repeat(2) + "private " + implName + "(" + parameters + "){\n");
+        for (var typeHandler : typeHandlers) {
+            if (layout.packed(typeHandler)) {
+                continue;
+            }
+            String name = typeHandler.name();
+            writer.write(INDENTATION.repeat(3) + "this." + name + " = " + name + ";\n");
+        }
+        generatePackedAssignements(TypeHandler::name);
         writer.write(INDENTATION.repeat(2) + "}\n\n");
     }
 
+    private void generateWithers() throws IOException {
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            writer.write(INDENTATION.repeat(2) + "@Override\n");
+            writer.write(INDENTATION.repeat(2) + "public " + prototypeName + " " + typeHandler.witherName() + "(final "
+                    + typeHandler.witherParameterType() + " " + name + "){\n");
+            // collections, maps and arrays are compared before they are copied, an unchanged value allocates nothing
+            String value = switch (typeHandler) {
+                case SimpleTypeHandler s when s.type().primitive() ->
+                    name;
+                case OptionalTypeHandler o -> {
+                    writer.write(INDENTATION.repeat(3) + o.mutatorType() + " value = " + name + ".orElse(null);\n");
+                    yield "value";
+                }
+                default -> {
+                    writer.write(INDENTATION.repeat(3) + "Objects.requireNonNull(" + name + ");\n");
+                    yield name;
+                }
+            };
+            String unchanged = switch (typeHandler) {
+                case CollectionTypeHandler c ->
+                    name + " == this." + name + " || this." + name + ".equals(" + name + ")";
+                case MapTypeHandler m ->
+                    name + " == this." + name + " || this." + name + ".equals(" + name + ")";
+                case PrimitiveListTypeHandler p ->
+                    "Arrays.equals(" + name + ", this." + name + ")";
+                case SimpleTypeHandler p when layout.packed(p) ->
+                    name + " == this." + name + "()";
+                // an unset lazy default is not computed to be compared
+                case SimpleTypeHandler s when s.lazyDefault() ->
+                    name + ".equals(this." + name + ")";
+                case OptionalTypeHandler o ->
+                    "Objects.equals(value, this." + name + ")";
+                default ->
+                    toEqualityExpression(typeHandler, "this", false);
+            };
+            writer.write(INDENTATION.repeat(3) + "if(" + unchanged + "){\n");
+            writer.write(INDENTATION.repeat(4) + "return this;\n");
+            writer.write(INDENTATION.repeat(3) + "}\n");
+            String copy = switch (typeHandler) {
+                case CollectionTypeHandler c ->
+                    c.copyOf(name);
+                case MapTypeHandler m ->
+                    m.copyOf(name);
+                case PrimitiveListTypeHandler p ->
+                    name + ".clone()";
+                default ->
+                    value;
+            };
+            String arguments = typeHandlers.stream()
+                    .map(it -> it == typeHandler ? copy : fieldArgument(it))
+                    .collect(Collectors.joining(", "));
+            writer.write(INDENTATION.repeat(3) + "return " + newInstance(arguments) + ";\n");
+            writer.write(INDENTATION.repeat(2) + "}\n\n");
+        }
+    }
+
+    // packed properties have no field of their own and lazy defaults may not be computed yet, both are read through
+    // their accessor
+    private String fieldValue(TypeHandler typeHandler, String prefix) {
+        boolean accessor = layout.packed(typeHandler) || lazyDefault(typeHandler);
+        return prefix + typeHandler.name() + (accessor ? "()" : "");
+    }
+
+    // the value handed to the fields constructor by the withers, an unset lazy default stays unset
+    private String fieldArgument(TypeHandler typeHandler) {
+        return "this." + typeHandler.name() + (layout.packed(typeHandler) ? "()" : "");
+    }
+
+    private static boolean lazyDefault(TypeHandler typeHandler) {
+        return typeHandler instanceof SimpleTypeHandler s && s.lazyDefault();
+    }
+
+    // one memoized value per lazy default, computed on first use and published with a compare and set: racing
+    // threads may compute it more than once but all of them return the published value
+    private void generateLazyDefaults() throws IOException {
+        for (var typeHandler : typeHandlers) {
+            if (!(typeHandler instanceof SimpleTypeHandler s) || !s.lazyDefault()) {
+                continue;
+            }
+            String type = s.type().classNameWithTypes();
+            String lazyDefaultFormat = """
+                                       %1$sprivate static %3$s %4$s;
+                                       %1$sprivate static final VarHandle %5$s;
+
+                                       %1$sstatic {
+                                       %2$stry {
+                                       %6$s%5$s = MethodHandles.lookup().findStaticVarHandle(%7$s.class, "%4$s", %8$s.class);
+                                       %2$s} catch (ReflectiveOperationException ex) {
+                                       %6$sthrow new ExceptionInInitializerError(ex);
+                                       %2$s}
+                                       %1$s}
+
+                                       %1$sstatic %3$s %4$s(){
+                                       %2$s%3$s value = (%3$s) %5$s.getAcquire();
+                                       %2$sif(value == null){
+                                       %6$s%3$s computed = Objects.requireNonNull(%9$s(), "%10$s() default method returned null");
+                                       %6$s%3$s witness = (%3$s) %5$s.compareAndExchangeRelease(null, computed);
+                                       %6$svalue = witness != null ? witness : computed;
+                                       %2$s}
+                                       %2$sreturn value;
+                                       %1$s}
+
+                                       """;
+            writer.write(lazyDefaultFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), type,
+                    s.defaultMethodName(), s.defaultConstantName(), INDENTATION.repeat(4), implName,
+                    s.type().className(), s.defaultMethod(), s.name()));
+        }
+    }
+
+    private String newInstance(String arguments) {
+        String instance = "new " + implName + "(" + arguments + ")";
+        return options.intern() ? "intern(" + instance + ")" : instance;
+    }
+
+    // the implementation value of a property held by builder, the collections the builder owns are copied
+    static String builderValue(TypeHandler typeHandler, String builder) {
+        String name = builder + "." + typeHandler.name();
+        return switch (typeHandler) {
+            case PrimitiveListTypeHandler p ->
+                builder + "." + p.ownedName() + " ? Arrays.copyOf(" + name + ", " + builder + "." + p.sizeName() + ") : "
+                + name;
+            case CollectionTypeHandler c ->
+                builder + "." + c.ownedName() + " ? " + c.copyOf(name) + " : " + name;
+            case MapTypeHandler m ->
+                builder + "." + m.ownedName() + " ? " + m.copyOf(name) + " : " + name;
+            case OptionalTypeHandler o ->
+                name;
+            // null until the default is needed
+            case SimpleTypeHandler s when s.lazyDefault() ->
+                name;
+            case SimpleTypeHandler s ->
+                name + "()";
+        };
+    }
+
+    static String implementationFieldType(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case PrimitiveListTypeHandler p ->
+                p.element().primitiveType() + "[]";
+            case OptionalTypeHandler o ->
+                o.mutatorType();
+            default ->
+                typeHandler.type().classNameWithTypes();
+        };
+    }
+
     private void generateEquals() throws IOException {
         final String equalsDeclarationPrefix = INDENTATION.repeat(2) + "@Override\n" + INDENTATION.repeat(2) + "public boolean equals(final Object obj){\n";
         writer.write(equalsDeclarationPrefix);
@@ -101,6 +359,45 @@ public final class ImplementationGenerator implements Generator {
                 INDENTATION.repeat(4));
         writer.write(identityCheckFormat);
 
+        // cheapest comparisons first, collections last
+        List<TypeHandler> orderedHandlers = typeHandlers.stream()
+                .sorted(Comparator.comparingInt(ImplementationGenerator::comparisonCost))
+                .toList();
+        // packed properties are compared a word at a time
+        List<TypeHandler> unpackedHandlers = orderedHandlers.stream()
+                .filter(it -> !layout.packed(it))
+                .toList();
+        var joinExpression = "\n" + INDENTATION.repeat(5) + "&& ";
+        String equality = IntStream.range(0, layout.wordCount())
+                .mapToObj(word -> layout.wordName(word) + " == impl." + layout.wordName(word))
+                .collect(Collectors.joining(joinExpression));
+        if (equality.isEmpty()) {
+            equality = toEqualityExpression(unpackedHandlers, "impl", false, 5);
+        } else if (!unpackedHandlers.isEmpty()) {
+            equality += joinExpression + toEqualityExpression(unpackedHandlers, "impl", false, 5);
+        }
+
+        // same implementation, read the fields directly
+        writer.write(INDENTATION.repeat(3) + "if (obj instanceof " + implName + " impl) {\n");
+        if (options.cacheHashCode()) {
+            String hashPrecheckFormat = """
+                                        %1$sif (this.hashCode != 0 && impl.hashCode != 0 && this.hashCode != impl.hashCode) {
+                                        %2$sreturn false;
+                                        %1$s}
+                                        """;
+            writer.write(hashPrecheckFormat.formatted(INDENTATION.repeat(4), INDENTATION.repeat(5)));
+        }
+        if (options.intern()) {
+            String internedCheckFormat = """
+                                         %1$sif (this.interned && impl.interned) {
+                                         %2$sreturn false;
+                                         %1$s}
+                                         """;
+            writer.write(internedCheckFormat.formatted(INDENTATION.repeat(4), INDENTATION.repeat(5)));
+        }
+        writer.write(INDENTATION.repeat(4) + "return " + equality + ";\n");
+        writer.write(INDENTATION.repeat(3) + "}\n\n");
+
         String typeCheckFormat = """
                                 %1$sif (!(obj instanceof %2$s other)) {
                                 %3$sreturn false;
@@ -111,75 +408,744 @@ public final class ImplementationGenerator implements Generator {
                 INDENTATION.repeat(4));
         writer.write(typeCheckFormat);
 
-        String returnStatement;
-        if (typeHandlers.isEmpty()) {
-            returnStatement = INDENTATION.repeat(3) + "return true;\n";
-            writer.write(returnStatement);
-        } else {
-            var joinExpression = "\n" + INDENTATION.repeat(4) + "&& ";
-            var booleanExpression = typeHandlers.stream()
-                    .map(it -> toEqualityExpression(it, "other"))
-                    .collect(Collectors.joining(joinExpression));
-            returnStatement = INDENTATION.repeat(3) + "return " + booleanExpression + ";\n";
-            writer.write(returnStatement);
-        }
+        String returnStatement = INDENTATION.repeat(3) + "return "
+                + toEqualityExpression(orderedHandlers, "other", true, 4) + ";\n";
+        writer.write(returnStatement);
         writer.write(INDENTATION.repeat(2) + "}\n\n");
 
     }
 
-    private String toEqualityExpression(final TypeHandler typeHandler, String other) {
+    private String toEqualityExpression(List<TypeHandler> handlers, String other, boolean accessor, int indentationLevel) {
+        if (handlers.isEmpty()) {
+            return "true";
+        }
+        var joinExpression = "\n" + INDENTATION.repeat(indentationLevel) + "&& ";
+        return handlers.stream()
+                .map(it -> toEqualityExpression(it, other, accessor))
+                .collect(Collectors.joining(joinExpression));
+    }
+
+    private String toEqualityExpression(final TypeHandler typeHandler, String other, boolean accessor) {
         var type = typeHandler.type();
-        var name = typeHandler.name();
+        var name = fieldValue(typeHandler, "");
+        String otherValue = accessor ? other + "." + typeHandler.name() + "()" : fieldValue(typeHandler, other + ".");
         String exp;
         if (type.primitive()) {
-            exp = name + " == " + other + "." + name + "()";
+            exp = switch (type.className()) {
+                // consistent with Double.hashCode/Float.hashCode for NaN and -0.0
+                case "double" ->
+                    "Double.compare(" + name + ", " + otherValue + ") == 0";
+                case "float" ->
+                    "Float.compare(" + name + ", " + otherValue + ") == 0";
+                default ->
+                    name + " == " + otherValue;
+            };
+        } else if (typeHandler instanceof PrimitiveListTypeHandler) {
+            exp = accessor
+                    ? name + "().equals(" + otherValue + ")"
+                    : "Arrays.equals(" + name + ", " + otherValue + ")";
+        } else if (typeHandler instanceof OptionalTypeHandler o && accessor) {
+            exp = "Objects.equals(" + name + ", " + other + "." + o.orNullName() + "())";
+        } else if ((typeHandler.collectionBased() || typeHandler instanceof MapTypeHandler) && !accessor) {
+            exp = "(" + name + " == " + otherValue + " || (" + name + ".size() == " + otherValue + ".size() && "
+                    + name + ".equals(" + otherValue + ")))";
         } else {
-            exp = "Objects.equals(" + name + ", " + other + "." + name + "()" + ")";
+            exp = "Objects.equals(" + name + ", " + otherValue + ")";
         }
         return exp;
     }
 
+    private static int comparisonCost(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case SimpleTypeHandler s when s.type().primitive() ->
+                0;
+            case SimpleTypeHandler s ->
+                1;
+            case OptionalTypeHandler o ->
+                2;
+            case CollectionTypeHandler c ->
+                3;
+            case PrimitiveListTypeHandler p ->
+                3;
+            case MapTypeHandler m ->
+                3;
+        };
+    }
+
     private void generateHashCode() throws IOException {
-        String hashCodeDeclarationFormat = """
-                                     %1$s@Override
-                                     %1$spublic int hashCode(){
-                                     %2$sreturn Objects.hash(%3$s);
-                                     %1$s}
-                                     
-                                     """;
-
-        var params = typeHandlers.stream()
-                .map(TypeHandler::name)
-                .collect(Collectors.joining(", "));
-        String hashCodeDeclaration = hashCodeDeclarationFormat.formatted(
-                INDENTATION.repeat(2),
-                INDENTATION.repeat(3),
-                params);
-        writer.write(hashCodeDeclaration);
+        if (options.cacheHashCode()) {
+            String cachedHashCodeFormat = """
+                                          %1$s@Override
+                                          %1$spublic int hashCode(){
+                                          %2$sint result = this.hashCode;
+                                          %2$sif(result == 0){
+                                          %3$sresult = computeHashCode();
+                                          %3$sthis.hashCode = result;
+                                          %2$s}
+                                          %2$sreturn result;
+                                          %1$s}
 
+                                          """;
+            writer.write(cachedHashCodeFormat.formatted(INDENTATION.repeat(2),
+                    INDENTATION.repeat(3),
+                    INDENTATION.repeat(4)));
+            generateComputeHashCode("private int computeHashCode()", false);
+        } else {
+            generateComputeHashCode("public int hashCode()", true);
+        }
+    }
+
+    private void generateComputeHashCode(String declaration, boolean override) throws IOException {
+        if (override) {
+            writer.write(INDENTATION.repeat(2) + "@Override\n");
+        }
+        writer.write(INDENTATION.repeat(2) + declaration + "{\n");
+        // same value as Objects.hash(...) without the varargs array and the boxing
+        writer.write(INDENTATION.repeat(3) + "int result = 1;\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(INDENTATION.repeat(3) + "result = 31 * result + " + toHashExpression(typeHandler) + ";\n");
+        }
+        writer.write(INDENTATION.repeat(3) + "return result;\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
+
+    private String toHashExpression(final TypeHandler typeHandler) {
+        var type = typeHandler.type();
+        var name = fieldValue(typeHandler, "");
+        if (type.primitive()) {
+            return type.boxed().className() + ".hashCode(" + name + ")";
+        }
+        if (typeHandler instanceof PrimitiveListTypeHandler) {
+            // same value as List.hashCode() of the boxed elements
+            return "Arrays.hashCode(" + name + ")";
+        }
+        if (typeHandler instanceof OptionalTypeHandler) {
+            // same value as Optional.hashCode()
+            return "Objects.hashCode(" + name + ")";
+        }
+        return name + ".hashCode()";
     }
 
     private void generateToString() throws IOException {
-        String toStringDeclarationFormat = """
-                                     %1$s@Override
-                                     %1$spublic String toString(){
-                                     %2$sreturn \"%3$s{\"
-                                     %4$s
-                                     %5$s+ \"}\";
-                                     %1$s}
-                                     
-                                     """;
-
-        String propertiesValues = typeHandlers.stream()
-                .map(TypeHandler::name)
-                .map(it -> INDENTATION.repeat(5) + "+ " + "\"" + it + "=\" + " + it)
-                .collect(Collectors.joining(" + \", \"\n"));
-        String toStringDeclaration = toStringDeclarationFormat
-                .formatted(INDENTATION.repeat(2),
-                        INDENTATION.repeat(3),
-                        implName,
-                        propertiesValues,
-                        INDENTATION.repeat(5));
-        writer.write(toStringDeclaration);
+        generateAppendTo();
+        String newBuilder = "appendTo(new StringBuilder(" + toStringCapacity() + ")).toString()";
+        if (options.cacheToString()) {
+            String cachedToStringFormat = """
+                                          %1$s@Override
+                                          %1$spublic String toString(){
+                                          %2$sString result = this.toString;
+                                          %2$sif(result == null){
+                                          %3$sresult = %4$s;
+                                          %3$sthis.toString = result;
+                                          %2$s}
+                                          %2$sreturn result;
+                                          %1$s}
+
+                                          """;
+            writer.write(cachedToStringFormat.formatted(INDENTATION.repeat(2),
+                    INDENTATION.repeat(3),
+                    INDENTATION.repeat(4),
+                    newBuilder));
+        } else {
+            String toStringDeclarationFormat = """
+                                         %1$s@Override
+                                         %1$spublic String toString(){
+                                         %2$sreturn %3$s;
+                                         %1$s}
+
+                                         """;
+            writer.write(toStringDeclarationFormat.formatted(INDENTATION.repeat(2),
+                    INDENTATION.repeat(3),
+                    newBuilder));
+        }
+        if (typeHandlers.stream().anyMatch(TypeHandler::collectionBased)) {
+            generateAppendCollection();
+        }
+        if (typeHandlers.stream().anyMatch(MapTypeHandler.class::isInstance)) {
+            generateAppendMap();
+        }
+    }
+
+    private void generatePrimitiveListViews() throws IOException {
+        var elements = typeHandlers.stream()
+                .filter(PrimitiveListTypeHandler.class::isInstance)
+                .map(PrimitiveListTypeHandler.class::cast)
+                .map(PrimitiveListTypeHandler::element)
+                .distinct()
+                .sorted()
+                .toList();
+        for (var element : elements) {
+            String viewFormat = """
+                                %1$sprivate static final class %3$s extends AbstractList<%4$s> implements RandomAccess {
+
+                                %2$sprivate final %5$s[] values;
+
+                                %2$s%3$s(final %5$s[] values){
+                                %6$sthis.values = values;
+                                %2$s}
+
+                                %2$s@Override
+                                %2$spublic %4$s get(final int index){
+                                %6$sreturn values[index];
+                                %2$s}
+
+                                %2$s@Override
+                                %2$spublic int size(){
+                                %6$sreturn values.length;
+                                %2$s}
+                                %1$s}
+
+                                """;
+            writer.write(viewFormat.formatted(INDENTATION.repeat(2),
+                    INDENTATION.repeat(3),
+                    element.viewType(),
+                    element.boxedType(),
+                    element.primitiveType(),
+                    INDENTATION.repeat(4)));
+        }
+    }
+
+    private void generateMapTables() throws IOException {
+        var maps = typeHandlers.stream()
+                .filter(MapTypeHandler.class::isInstance)
+                .map(MapTypeHandler.class::cast)
+                .toList();
+        if (maps.stream().allMatch(it -> it.storage() == MapTypeHandler.Storage.ENUM_MAP)) {
+            return;
+        }
+        String slotFormat = """
+                            %1$s// spreads the hash then maps it onto [0, capacity) with a multiply instead of a division
+                            %1$sprivate static int tableSlot(final int hash, final int capacity){
+                            %2$sint mixed = hash * 0x9E3779B9;
+                            %2$smixed ^= mixed >>> 16;
+                            %2$sreturn (int) (((mixed & 0xFFFFFFFFL) * capacity) >>> 32);
+                            %1$s}
+
+                            """;
+        writer.write(slotFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3)));
+        if (maps.stream().anyMatch(it -> it.storage() == MapTypeHandler.Storage.OBJECT)) {
+            generateObjectTable();
+        }
+        var tables = maps.stream()
+                .filter(it -> it.storage() == MapTypeHandler.Storage.PRIMITIVE)
+                .map(MapTypeHandler::tableName)
+                .distinct()
+                .toList();
+        for (String table : tables) {
+            MapTypeHandler map = maps.stream()
+                    .filter(it -> table.equals(it.tableName()))
+                    .findFirst()
+                    .orElseThrow();
+            generatePrimitiveTable(map.keyElement(), map.valueElement());
+        }
+    }
+
+    private void generateObjectTable() throws IOException {
+        String objectTableFormat = """
+                                   %1$s// open addressing with linear probing, keys and values interleaved in a single array
+                                   %1$s// sized for a 0.75 load factor (Map.copyOf uses 0.5)
+                                   %1$sprivate static final class ObjectTable<K, V> extends AbstractMap<K, V> {
+
+                                   %2$sprivate final Object[] table;
+                                   %2$sprivate final int size;
+
+                                   %2$sprivate ObjectTable(final Map<? extends K, ? extends V> map){
+                                   %3$sint capacity = map.size() + map.size() / 3 + 1;
+                                   %3$sObject[] table = new Object[capacity << 1];
+                                   %3$sint size = 0;
+                                   %3$sfor(Map.Entry<? extends K, ? extends V> entry : map.entrySet()){
+                                   %4$sObject key = Objects.requireNonNull(entry.getKey());
+                                   %4$sObject value = Objects.requireNonNull(entry.getValue());
+                                   %4$sint index = tableSlot(key.hashCode(), capacity);
+                                   %4$swhile(table[index << 1] != null && !table[index << 1].equals(key)){
+                                   %5$sindex = index + 1 == capacity ? 0 : index + 1;
+                                   %4$s}
+                                   %4$sif(table[index << 1] == null){
+                                   %5$ssize++;
+                                   %4$s}
+                                   %4$stable[index << 1] = key;
+                                   %4$stable[(index << 1) + 1] = value;
+                                   %3$s}
+                                   %3$sthis.table = table;
+                                   %3$sthis.size = size;
+                                   %2$s}
+
+                                   %2$s@SuppressWarnings("unchecked")
+                                   %2$sstatic <K, V> Map<K, V> copyOf(final Map<? extends K, ? extends V> map){
+                                   %3$sreturn map instanceof ObjectTable<?, ?> table ? (Map<K, V>) table : new ObjectTable<>(map);
+                                   %2$s}
+
+                                   %2$sprivate int indexOf(final Object key){
+                                   %3$sif(key == null){
+                                   %4$sreturn -1;
+                                   %3$s}
+                                   %3$sint capacity = table.length >> 1;
+                                   %3$sint index = tableSlot(key.hashCode(), capacity);
+                                   %3$sObject current;
+                                   %3$swhile((current = table[index << 1]) != null){
+                                   %4$sif(current.equals(key)){
+                                   %5$sreturn index;
+                                   %4$s}
+                                   %4$sindex = index + 1 == capacity ? 0 : index + 1;
+                                   %3$s}
+                                   %3$sreturn -1;
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$spublic int size(){
+                                   %3$sreturn size;
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$spublic boolean containsKey(final Object key){
+                                   %3$sreturn indexOf(key) >= 0;
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$s@SuppressWarnings("unchecked")
+                                   %2$spublic V get(final Object key){
+                                   %3$sint index = indexOf(key);
+                                   %3$sreturn index < 0 ? null : (V) table[(index << 1) + 1];
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$s@SuppressWarnings("unchecked")
+                                   %2$spublic V getOrDefault(final Object key, final V defaultValue){
+                                   %3$sint index = indexOf(key);
+                                   %3$sreturn index < 0 ? defaultValue : (V) table[(index << 1) + 1];
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$s@SuppressWarnings("unchecked")
+                                   %2$spublic void forEach(final BiConsumer<? super K, ? super V> action){
+                                   %3$sfor(int i = 0; i < table.length; i += 2){
+                                   %4$sif(table[i] != null){
+                                   %5$saction.accept((K) table[i], (V) table[i + 1]);
+                                   %4$s}
+                                   %3$s}
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$spublic int hashCode(){
+                                   %3$sint result = 0;
+                                   %3$sfor(int i = 0; i < table.length; i += 2){
+                                   %4$sif(table[i] != null){
+                                   %5$sresult += table[i].hashCode() ^ table[i + 1].hashCode();
+                                   %4$s}
+                                   %3$s}
+                                   %3$sreturn result;
+                                   %2$s}
+
+                                   %2$s@Override
+                                   %2$spublic Set<Map.Entry<K, V>> entrySet(){
+                                   %3$sreturn new AbstractSet<>(){
+                                   %4$s@Override
+                                   %4$spublic Iterator<Map.Entry<K, V>> iterator(){
+                                   %5$sreturn new Iterator<>(){
+                                   %6$sprivate int index = occupied(0);
+
+                                   %6$s@Override
+                                   %6$spublic boolean hasNext(){
+                                   %7$sreturn index < table.length;
+                                   %6$s}
+
+                                   %6$s@Override
+                                   %6$s@SuppressWarnings("unchecked")
+                                   %6$spublic Map.Entry<K, V> next(){
+                                   %7$sif(!hasNext()){
+                                   %8$sthrow new NoSuchElementException();
+                                   %7$s}
+                                   %7$sMap.Entry<K, V> entry = new SimpleImmutableEntry<>((K) table[index], (V) table[index + 1]);
+                                   %7$sindex = occupied(index + 2);
+                                   %7$sreturn entry;
+                                   %6$s}
+                                   %5$s};
+                                   %4$s}
+
+                                   %4$s@Override
+                                   %4$spublic int size(){
+                                   %5$sreturn size;
+                                   %4$s}
+                                   %3$s};
+                                   %2$s}
+
+                                   %2$s// first key position at or after from
+                                   %2$sprivate int occupied(int from){
+                                   %3$swhile(from < table.length && table[from] == null){
+                                   %4$sfrom += 2;
+                                   %3$s}
+                                   %3$sreturn from;
+                                   %2$s}
+                                   %1$s}
+
+                                   """;
+        writer.write(objectTableFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                INDENTATION.repeat(5), INDENTATION.repeat(6), INDENTATION.repeat(7), INDENTATION.repeat(8),
+                INDENTATION.repeat(9)));
+    }
+
+    private void generatePrimitiveTable(PrimitiveListTypeHandler.Element key, PrimitiveListTypeHandler.Element value)
+            throws IOException {
+        String primitiveTableFormat = """
+                                      %1$s// open addressing with linear probing over primitive arrays sized for a 0.75 load factor,
+                                      %1$s// 0 marks an empty slot so the entry of key 0 is kept aside
+                                      %1$sprivate static final class %9$s extends AbstractMap<%11$s, %13$s> {
+
+                                      %2$sprivate final %10$s[] keys;
+                                      %2$sprivate final %12$s[] values;
+                                      %2$sprivate final boolean zeroKey;
+                                      %2$sprivate final %12$s zeroValue;
+                                      %2$sprivate final int size;
+
+                                      %2$sprivate %9$s(final Map<? extends %11$s, ? extends %13$s> map){
+                                      %3$sint capacity = map.size() + map.size() / 3 + 1;
+                                      %3$s%10$s[] keys = new %10$s[capacity];
+                                      %3$s%12$s[] values = new %12$s[capacity];
+                                      %3$sboolean zeroKey = false;
+                                      %3$s%12$s zeroValue = 0;
+                                      %3$sint size = 0;
+                                      %3$sfor(Map.Entry<? extends %11$s, ? extends %13$s> entry : map.entrySet()){
+                                      %4$s%10$s key = entry.getKey();
+                                      %4$s%12$s value = entry.getValue();
+                                      %4$sif(key == 0){
+                                      %5$ssize += zeroKey ? 0 : 1;
+                                      %5$szeroKey = true;
+                                      %5$szeroValue = value;
+                                      %5$scontinue;
+                                      %4$s}
+                                      %4$sint index = tableSlot(%11$s.hashCode(key), capacity);
+                                      %4$swhile(keys[index] != 0 && keys[index] != key){
+                                      %5$sindex = index + 1 == capacity ? 0 : index + 1;
+                                      %4$s}
+                                      %4$sif(keys[index] == 0){
+                                      %5$ssize++;
+                                      %4$s}
+                                      %4$skeys[index] = key;
+                                      %4$svalues[index] = value;
+                                      %3$s}
+                                      %3$sthis.keys = keys;
+                                      %3$sthis.values = values;
+                                      %3$sthis.zeroKey = zeroKey;
+                                      %3$sthis.zeroValue = zeroValue;
+                                      %3$sthis.size = size;
+                                      %2$s}
+
+                                      %2$sstatic Map<%11$s, %13$s> copyOf(final Map<? extends %11$s, ? extends %13$s> map){
+                                      %3$sreturn map instanceof %9$s table ? table : new %9$s(map);
+                                      %2$s}
+
+                                      %2$sprivate int indexOf(final %10$s key){
+                                      %3$sint index = tableSlot(%11$s.hashCode(key), keys.length);
+                                      %3$s%10$s current;
+                                      %3$swhile((current = keys[index]) != 0){
+                                      %4$sif(current == key){
+                                      %5$sreturn index;
+                                      %4$s}
+                                      %4$sindex = index + 1 == keys.length ? 0 : index + 1;
+                                      %3$s}
+                                      %3$sreturn -1;
+                                      %2$s}
+
+                                      %2$sboolean containsKey(final %10$s key){
+                                      %3$sreturn key == 0 ? zeroKey : indexOf(key) >= 0;
+                                      %2$s}
+
+                                      %2$s%12$s getOrDefault(final %10$s key, final %12$s defaultValue){
+                                      %3$sif(key == 0){
+                                      %4$sreturn zeroKey ? zeroValue : defaultValue;
+                                      %3$s}
+                                      %3$sint index = indexOf(key);
+                                      %3$sreturn index < 0 ? defaultValue : values[index];
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic int size(){
+                                      %3$sreturn size;
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic boolean containsKey(final Object key){
+                                      %3$sreturn key instanceof %11$s k && containsKey(k.%10$sValue());
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic %13$s get(final Object key){
+                                      %3$sif(key instanceof %11$s k && containsKey(k.%10$sValue())){
+                                      %4$sreturn getOrDefault(k.%10$sValue(), zeroValue);
+                                      %3$s}
+                                      %3$sreturn null;
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic boolean equals(final Object obj){
+                                      %3$sif(!(obj instanceof %9$s other)){
+                                      %4$sreturn super.equals(obj);
+                                      %3$s}
+                                      %3$sif(size != other.size || zeroKey != other.zeroKey
+                                      %5$s|| (zeroKey && %13$s.compare(zeroValue, other.zeroValue) != 0)){
+                                      %4$sreturn false;
+                                      %3$s}
+                                      %3$sfor(int i = 0; i < keys.length; i++){
+                                      %4$sif(keys[i] != 0){
+                                      %5$sint index = other.indexOf(keys[i]);
+                                      %5$sif(index < 0 || %13$s.compare(values[i], other.values[index]) != 0){
+                                      %6$sreturn false;
+                                      %5$s}
+                                      %4$s}
+                                      %3$s}
+                                      %3$sreturn true;
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic int hashCode(){
+                                      %3$sint result = zeroKey ? %13$s.hashCode(zeroValue) : 0;
+                                      %3$sfor(int i = 0; i < keys.length; i++){
+                                      %4$sif(keys[i] != 0){
+                                      %5$sresult += %11$s.hashCode(keys[i]) ^ %13$s.hashCode(values[i]);
+                                      %4$s}
+                                      %3$s}
+                                      %3$sreturn result;
+                                      %2$s}
+
+                                      %2$s@Override
+                                      %2$spublic Set<Map.Entry<%11$s, %13$s>> entrySet(){
+                                      %3$sreturn new AbstractSet<>(){
+                                      %4$s@Override
+                                      %4$spublic Iterator<Map.Entry<%11$s, %13$s>> iterator(){
+                                      %5$sreturn new Iterator<>(){
+                                      %6$s// -1 stands for the entry of key 0
+                                      %6$sprivate int index = zeroKey ? -1 : occupied(0);
+
+                                      %6$s@Override
+                                      %6$spublic boolean hasNext(){
+                                      %7$sreturn index < keys.length;
+                                      %6$s}
+
+                                      %6$s@Override
+                                      %6$spublic Map.Entry<%11$s, %13$s> next(){
+                                      %7$sif(!hasNext()){
+                                      %8$sthrow new NoSuchElementException();
+                                      %7$s}
+                                      %7$sMap.Entry<%11$s, %13$s> entry;
+                                      %7$sif(index < 0){
+                                      %8$sentry = new SimpleImmutableEntry<>((%10$s) 0, zeroValue);
+                                      %7$s} else {
+                                      %8$sentry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                                      %7$s}
+                                      %7$sindex = occupied(index + 1);
+                                      %7$sreturn entry;
+                                      %6$s}
+                                      %5$s};
+                                      %4$s}
+
+                                      %4$s@Override
+                                      %4$spublic int size(){
+                                      %5$sreturn size;
+                                      %4$s}
+                                      %3$s};
+                                      %2$s}
+
+                                      %2$s// first occupied slot at or after from
+                                      %2$sprivate int occupied(int from){
+                                      %3$swhile(from < keys.length && keys[from] == 0){
+                                      %4$sfrom++;
+                                      %3$s}
+                                      %3$sreturn from;
+                                      %2$s}
+                                      %1$s}
+
+                                      """;
+        writer.write(primitiveTableFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3),
+                INDENTATION.repeat(4), INDENTATION.repeat(5), INDENTATION.repeat(6), INDENTATION.repeat(7),
+                INDENTATION.repeat(8), INDENTATION.repeat(9),
+                MapTypeHandler.tableName(key, value),
+                key.primitiveType(),
+                key.boxedType(),
+                value.primitiveType(),
+                value.boxedType()));
+    }
+
+    private void generateAppendTo() throws IOException {
+        writer.write(INDENTATION.repeat(2) + "@Override\n");
+        writer.write(INDENTATION.repeat(2) + "public StringBuilder appendTo(final StringBuilder builder){\n");
+        generateAppendStatements(writer, 3, typeHandlers, implName, "",
+                it -> it instanceof PrimitiveListTypeHandler ? it.name() + "()" : fieldValue(it, ""));
+        writer.write(INDENTATION.repeat(3) + "return builder.append('}');\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
+
+    // renders implName{name=value, ...} without the closing brace, value reads a property (primitive lists as their
+    // list view), helpers qualifies appendCollection and appendMap of the implementation
+    static void generateAppendStatements(Writer writer, int indentationLevel, Collection<TypeHandler> typeHandlers,
+            String implName, String helpers, Function<TypeHandler, String> value) throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        writer.write(prefix + "builder.append(\"" + implName + "{\");\n");
+        String separator = "";
+        for (var typeHandler : typeHandlers) {
+            String name = value.apply(typeHandler);
+            String label = separator + typeHandler.name() + "=";
+            String statement = switch (typeHandler) {
+                case CollectionTypeHandler c ->
+                    "builder.append(\"" + label + "\");\n"
+                    + prefix + helpers + "appendCollection(builder, " + name + ");\n";
+                case PrimitiveListTypeHandler p ->
+                    "builder.append(\"" + label + "\");\n"
+                    + prefix + helpers + "appendCollection(builder, " + name + ");\n";
+                case MapTypeHandler m ->
+                    "builder.append(\"" + label + "\");\n"
+                    + prefix + helpers + "appendMap(builder, " + name + ");\n";
+                case OptionalTypeHandler o ->
+                    "if(" + name + " != null){\n"
+                    + prefix + INDENTATION + "builder.append(\"" + label + "Optional[\").append(" + name + ").append(']');\n"
+                    + prefix + "} else {\n"
+                    + prefix + INDENTATION + "builder.append(\"" + label + "Optional.empty\");\n"
+                    + prefix + "}\n";
+                case SimpleTypeHandler simple ->
+                    "builder.append(\"" + label + "\").append(" + name + ");\n";
+            };
+            writer.write(prefix + statement);
+            separator = ", ";
+        }
+    }
+
+    private String toStringLimit() {
+        if (!options.limitToString()) {
+            return "";
+        }
+        // a limit of 0 renders the count alone, without separator
+        return """
+               %1$sif(count == %2$s){
+               %3$sbuilder.append(count > 0 ? ", ...(" : "...(").append(values.size() - count).append(" more)");
+               %3$sbreak;
+               %1$s}
+               """.formatted(INDENTATION.repeat(4), options.toStringMaxElements(), INDENTATION.repeat(5));
+    }
+
+    private void generateAppendCollection() throws IOException {
+        String limit = toStringLimit();
+        String appendCollectionFormat = """
+                                        %1$sprivate static void appendCollection(final StringBuilder builder, final Collection<?> values){
+                                        %2$sbuilder.append('[');
+                                        %2$sint count = 0;
+                                        %2$sfor(Object value : values){
+                                        %4$s%3$sif(count > 0){
+                                        %5$sbuilder.append(", ");
+                                        %3$s}
+                                        %3$sbuilder.append(value);
+                                        %3$scount++;
+                                        %2$s}
+                                        %2$sbuilder.append(']');
+                                        %1$s}
+
+                                        """;
+        writer.write(appendCollectionFormat.formatted(INDENTATION.repeat(2),
+                INDENTATION.repeat(3),
+                INDENTATION.repeat(4),
+                limit,
+                INDENTATION.repeat(5)));
+    }
+
+    private void generateAppendMap() throws IOException {
+        String appendMapFormat = """
+                                 %1$sprivate static void appendMap(final StringBuilder builder, final Map<?, ?> values){
+                                 %2$sbuilder.append('{');
+                                 %2$sint count = 0;
+                                 %2$sfor(Map.Entry<?, ?> entry : values.entrySet()){
+                                 %4$s%3$sif(count > 0){
+                                 %5$sbuilder.append(", ");
+                                 %3$s}
+                                 %3$sbuilder.append(entry.getKey()).append('=').append(entry.getValue());
+                                 %3$scount++;
+                                 %2$s}
+                                 %2$sbuilder.append('}');
+                                 %1$s}
+
+                                 """;
+        writer.write(appendMapFormat.formatted(INDENTATION.repeat(2),
+                INDENTATION.repeat(3),
+                INDENTATION.repeat(4),
+                toStringLimit(),
+                INDENTATION.repeat(5)));
+    }
+
+    private int toStringCapacity() {
+        // name=value pairs assuming short values, collections are rendered past the initial capacity anyway
+        int capacity = implName.length() + 2;
+        for (var typeHandler : typeHandlers) {
+            capacity += typeHandler.name().length() + 3 + 16;
+        }
+        return capacity;
+    }
+
+    private void generateInternTable() throws IOException {
+        String internFormat = """
+
+                              %1$s// canonical instances, keys and values are weak so the table never keeps an instance alive
+                              %1$sprivate static final InternStripe[] INTERN_STRIPES = InternStripe.create();
+
+                              %1$sstatic %4$s intern(final %4$s candidate){
+                              %2$sint hash = candidate.hashCode();
+                              %2$sInternStripe stripe = INTERN_STRIPES[(hash ^ (hash >>> 16)) & (INTERN_STRIPES.length - 1)];
+                              %2$s// a lock rather than a monitor: a virtual thread waiting for it does not pin its carrier
+                              %2$sstripe.lock.lock();
+                              %2$stry{
+                              %3$sWeakReference<%4$s> reference = stripe.table.get(candidate);
+                              %3$s%4$s canonical = reference == null ? null : reference.get();
+                              %3$sif(canonical != null){
+                              %5$sreturn canonical;
+                              %3$s}
+                              %3$sstripe.table.put(candidate, new WeakReference<>(candidate));
+                              %3$sstripe.insertions++;
+                              %3$scandidate.interned = true;
+                              %3$sreturn candidate;
+                              %2$s} finally {
+                              %3$sstripe.lock.unlock();
+                              %2$s}
+                              %1$s}
+
+                              %1$sstatic int internedCount(){
+                              %2$sint count = 0;
+                              %2$sfor(InternStripe stripe : INTERN_STRIPES){
+                              %3$sstripe.lock.lock();
+                              %3$stry{
+                              %5$scount += stripe.table.size();
+                              %3$s} finally {
+                              %5$sstripe.lock.unlock();
+                              %3$s}
+                              %2$s}
+                              %2$sreturn count;
+                              %1$s}
+
+                              %1$sstatic long internEvictionCount(){
+                              %2$slong count = 0;
+                              %2$sfor(InternStripe stripe : INTERN_STRIPES){
+                              %3$sstripe.lock.lock();
+                              %3$stry{
+                              %5$scount += stripe.insertions - stripe.table.size();
+                              %3$s} finally {
+                              %5$sstripe.lock.unlock();
+                              %3$s}
+                              %2$s}
+                              %2$sreturn count;
+                              %1$s}
+
+                              %1$sprivate static final class InternStripe {
+
+                              %2$sprivate final ReentrantLock lock = new ReentrantLock();
+                              %2$sprivate final WeakHashMap<%4$s, WeakReference<%4$s>> table = new WeakHashMap<>();
+                              %2$sprivate long insertions;
+
+                              %2$sprivate static InternStripe[] create(){
+                              %3$sint size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+                              %3$sInternStripe[] stripes = new InternStripe[size];
+                              %3$sfor(int i = 0; i < size; i++){
+                              %5$sstripes[i] = new InternStripe();
+                              %3$s}
+                              %3$sreturn stripes;
+                              %2$s}
+                              %1$s}
+                              """;
+        writer.write(internFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                implName, INDENTATION.repeat(5)));
     }
 }
@@ -0,0 +1,782 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * streaming JSON enabled by {@link GenerationOptions#JSON}: the implementation writes its properties to an
+ * {@code Appendable} and parses objects with a small pull reader nested in the implementation, member names are
+ * dispatched by a switch on their {@code String.hashCode()} computed at generation time, so neither reflection nor a
+ * tree model nor a runtime dependency is involved. empty optionals are omitted, collections are arrays, maps are
+ * objects keyed by the string form of their keys and unknown members are skipped.
+ *
+ * @author khaled
+ */
+record JsonCodec(List<TypeHandler> typeHandlers, Set<String> enums, Function<TypeHandler, String> fieldValue,
+        String builderName) {
+
+    static JsonCodec create(GenerationInfo generationInfo, Function<TypeHandler, String> fieldValue) {
+        return new JsonCodec(List.copyOf(generationInfo.typeHandlers()), generationInfo.enums().keySet(),
+                fieldValue, generationInfo.builderName());
+    }
+
+    static void generateDeclarations(Writer writer, String prototypeName, String implName) throws IOException {
+        String declarationsFormat = """
+                                    %1$svoid writeJson(Appendable out) throws IOException;
+
+                                    %1$s// UTF-8 encoded, the stream is neither flushed nor closed
+                                    %1$svoid writeJson(OutputStream output) throws IOException;
+
+                                    %1$sdefault String toJson(){
+                                    %2$sStringBuilder json = new StringBuilder();
+                                    %2$stry{
+                                    %3$swriteJson(json);
+                                    %2$s} catch(IOException ex){
+                                    %3$sthrow new UncheckedIOException(ex);
+                                    %2$s}
+                                    %2$sreturn json.toString();
+                                    %1$s}
+
+                                    %1$sstatic %4$s fromJson(final Reader reader) throws IOException{
+                                    %2$sreturn %5$s.fromJson(reader);
+                                    %1$s}
+
+                                    %1$s// UTF-8 encoded
+                                    %1$sstatic %4$s fromJson(final byte[] json){
+                                    %2$sreturn %5$s.fromJson(json);
+                                    %1$s}
+
+                                    """;
+        writer.write(declarationsFormat.formatted(INDENTATION, INDENTATION.repeat(2), INDENTATION.repeat(3),
+                prototypeName, implName));
+    }
+
+    void generate(Writer writer, String prototypeName) throws IOException {
+        generateWriteJson(writer);
+        generateFromJson(writer, prototypeName);
+        generateWriteHelpers(writer);
+        generateJsonReader(writer);
+    }
+
+    private void generateWriteJson(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(3);
+        writer.write(INDENTATION.repeat(2) + "@Override\n");
+        writer.write(INDENTATION.repeat(2) + "public void writeJson(final Appendable out) throws IOException{\n");
+        // a leading optional may be absent, the separator of the members after it is decided at runtime
+        boolean leadingOptional = !typeHandlers.isEmpty() && typeHandlers.getFirst() instanceof OptionalTypeHandler;
+        if (leadingOptional) {
+            writer.write(prefix + "boolean comma = false;\n");
+        }
+        if (typeHandlers.stream().anyMatch(it -> container(it) && !(it instanceof PrimitiveListTypeHandler))) {
+            writer.write(prefix + "boolean first;\n");
+        }
+        writer.write(prefix + "out.append('{');\n");
+        Written written = Written.NONE;
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            String key = switch (written) {
+                case NONE ->
+                    "\"\\\"" + name + "\\\":\"";
+                case SOME ->
+                    "\",\\\"" + name + "\\\":\"";
+                case MAYBE ->
+                    "comma ? \",\\\"" + name + "\\\":\" : \"\\\"" + name + "\\\":\"";
+            };
+            String value = fieldValue.apply(typeHandler);
+            if (typeHandler instanceof OptionalTypeHandler o) {
+                writer.write(prefix + "if(" + value + " != null){\n");
+                writer.write(prefix + INDENTATION + "out.append(" + key + ");\n");
+                writer.write(prefix + INDENTATION + write(o.type().typeArguments().getFirst(), value) + ";\n");
+                if (written != Written.SOME) {
+                    writer.write(prefix + INDENTATION + "comma = true;\n");
+                    written = Written.MAYBE;
+                }
+                writer.write(prefix + "}\n");
+                continue;
+            }
+            writer.write(prefix + "out.append(" + key + ");\n");
+            written = Written.SOME;
+            switch (typeHandler) {
+                case SimpleTypeHandler s ->
+                    writer.write(prefix + write(s.type(), value) + ";\n");
+                case PrimitiveListTypeHandler p -> {
+                    writer.write(prefix + "out.append('[');\n");
+                    writer.write(prefix + "for(int i = 0; i < " + value + ".length; i++){\n");
+                    writer.write(prefix + INDENTATION + "if(i > 0){\n");
+                    writer.write(prefix + INDENTATION.repeat(2) + "out.append(',');\n");
+                    writer.write(prefix + INDENTATION + "}\n");
+                    writer.write(prefix + INDENTATION + write(TypeName.create(p.element().boxedType()), value + "[i]")
+                            + ";\n");
+                    writer.write(prefix + "}\n");
+                    writer.write(prefix + "out.append(']');\n");
+                }
+                case MapTypeHandler m -> {
+                    writer.write(prefix + "out.append('{');\n");
+                    writer.write(prefix + "first = true;\n");
+                    writer.write(prefix + "for(Map.Entry<" + m.keyType().className() + ", " + m.valueType().className()
+                            + "> entry : " + value + ".entrySet()){\n");
+                    writeSeparator(writer, prefix + INDENTATION);
+                    writer.write(prefix + INDENTATION + "writeJsonString(out, " + keyString(m.keyType(), "entry.getKey()")
+                            + ");\n");
+                    writer.write(prefix + INDENTATION + "out.append(':');\n");
+                    writer.write(prefix + INDENTATION + write(m.valueType(), "entry.getValue()") + ";\n");
+                    writer.write(prefix + "}\n");
+                    writer.write(prefix + "out.append('}');\n");
+                }
+                default -> {
+                    TypeName element = typeHandler.type().typeArguments().getFirst();
+                    writer.write(prefix + "out.append('[');\n");
+                    writer.write(prefix + "first = true;\n");
+                    writer.write(prefix + "for(" + element.className() + " value : " + value + "){\n");
+                    writeSeparator(writer, prefix + INDENTATION);
+                    writer.write(prefix + INDENTATION + write(element, "value") + ";\n");
+                    writer.write(prefix + "}\n");
+                    writer.write(prefix + "out.append(']');\n");
+                }
+            }
+        }
+        writer.write(prefix + "out.append('}');\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+
+        String outputStreamFormat = """
+                                    %1$s@Override
+                                    %1$spublic void writeJson(final OutputStream output) throws IOException{
+                                    %2$s// encoded as it is written, output is flushed and left open
+                                    %2$sWriter out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                                    %2$swriteJson(out);
+                                    %2$sout.flush();
+                                    %1$s}
+
+                                    """;
+        writer.write(outputStreamFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3)));
+    }
+
+    private enum Written {
+        NONE,
+        SOME,
+        MAYBE
+    }
+
+    private static void writeSeparator(Writer writer, String prefix) throws IOException {
+        writer.write(prefix + "if(!first){\n");
+        writer.write(prefix + INDENTATION + "out.append(',');\n");
+        writer.write(prefix + "}\n");
+        writer.write(prefix + "first = false;\n");
+    }
+
+    private void generateFromJson(Writer writer, String prototypeName) throws IOException {
+        String entryPointsFormat = """
+                                   %1$sstatic %4$s fromJson(final Reader reader) throws IOException{
+                                   %2$sreturn fromJson(new JsonReader(reader));
+                                   %1$s}
+
+                                   %1$sstatic %4$s fromJson(final byte[] json){
+                                   %2$stry{
+                                   %3$sreturn fromJson(new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)));
+                                   %2$s} catch(IOException ex){
+                                   %3$s// reading an array does not fail
+                                   %3$sthrow new UncheckedIOException(ex);
+                                   %2$s}
+                                   %1$s}
+
+                                   """;
+        writer.write(entryPointsFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                prototypeName));
+
+        String prefix = INDENTATION.repeat(4);
+        String body = INDENTATION.repeat(5);
+        writer.write(INDENTATION.repeat(2) + "private static " + prototypeName
+                + " fromJson(final JsonReader reader) throws IOException{\n");
+        writer.write(INDENTATION.repeat(3) + builderName + " builder = new " + builderName + "();\n");
+        writer.write(INDENTATION.repeat(3) + "reader.beginObject();\n");
+        writer.write(INDENTATION.repeat(3) + "while(reader.hasNext()){\n");
+        writer.write(prefix + "switch(reader.nextName()){\n");
+        // names sharing a hash share a case and are told apart by nameIs
+        Map<Integer, List<TypeHandler>> byHash = new LinkedHashMap<>();
+        for (var typeHandler : typeHandlers) {
+            byHash.computeIfAbsent(typeHandler.name().hashCode(), it -> new ArrayList<>()).add(typeHandler);
+        }
+        for (var entry : byHash.entrySet()) {
+            writer.write(body + "case " + entry.getKey() + " -> {\n");
+            String condition = "if";
+            for (var typeHandler : entry.getValue()) {
+                writer.write(body + INDENTATION + condition + "(reader.nameIs(\"" + typeHandler.name() + "\")){\n");
+                for (String statement : readStatements(typeHandler)) {
+                    writer.write(body + INDENTATION.repeat(2) + statement + "\n");
+                }
+                condition = "} else if";
+            }
+            writer.write(body + INDENTATION + "} else {\n");
+            writer.write(body + INDENTATION.repeat(2) + "reader.skipValue();\n");
+            writer.write(body + INDENTATION + "}\n");
+            writer.write(body + "}\n");
+        }
+        writer.write(body + "default -> reader.skipValue();\n");
+        writer.write(prefix + "}\n");
+        writer.write(INDENTATION.repeat(3) + "}\n");
+        writer.write(INDENTATION.repeat(3) + "reader.endObject();\n");
+        writer.write(INDENTATION.repeat(3) + "reader.end();\n");
+        writer.write(INDENTATION.repeat(3) + "return builder.build();\n");
+        writer.write(INDENTATION.repeat(2) + "}\n\n");
+    }
+
+    private List<String> readStatements(TypeHandler typeHandler) {
+        String name = typeHandler.name();
+        List<String> statements = new ArrayList<>();
+        switch (typeHandler) {
+            case OptionalTypeHandler o -> {
+                // null leaves the property empty
+                statements.add("if(!reader.nextNull()){");
+                statements.add(INDENTATION + "builder." + name + "(" + read(o.type().typeArguments().getFirst()) + ");");
+                statements.add("}");
+            }
+            case SimpleTypeHandler s ->
+                statements.add("builder." + name + "(" + read(s.type()) + ");");
+            case PrimitiveListTypeHandler p -> {
+                // the builder owns the array, the implementation copies it to its exact size
+                String primitive = p.element().primitiveType();
+                statements.add(primitive + "[] values = new " + primitive + "[8];");
+                statements.add("int size = 0;");
+                statements.add("reader.beginArray();");
+                statements.add("while(reader.hasNext()){");
+                statements.add(INDENTATION + "if(size == values.length){");
+                statements.add(INDENTATION.repeat(2) + "values = Arrays.copyOf(values, size * 2);");
+                statements.add(INDENTATION + "}");
+                statements.add(INDENTATION + "values[size++] = " + read(TypeName.create(p.element().boxedType())) + ";");
+                statements.add("}");
+                statements.add("reader.endArray();");
+                statements.add("builder." + name + " = values;");
+                statements.add("builder." + p.sizeName() + " = size;");
+                statements.add("builder." + p.ownedName() + " = true;");
+            }
+            case CollectionTypeHandler c -> {
+                TypeName element = c.type().typeArguments().getFirst();
+                statements.add(switch (c.collectionType()) {
+                    case LIST ->
+                        "List<" + element.className() + "> values = new ArrayList<>();";
+                    case SET ->
+                        "Set<" + element.className() + "> values = new LinkedHashSet<>();";
+                    case ENUM_SET ->
+                        "Set<" + element.className() + "> values = EnumSet.noneOf(" + element.className() + ".class);";
+                });
+                statements.add("reader.beginArray();");
+                statements.add("while(reader.hasNext()){");
+                statements.add(INDENTATION + "values.add(" + read(element) + ");");
+                statements.add("}");
+                statements.add("reader.endArray();");
+                statements.add("builder." + name + "(values);");
+            }
+            case MapTypeHandler m -> {
+                TypeName key = m.keyType();
+                TypeName value = m.valueType();
+                statements.add("Map<" + key.className() + ", " + value.className() + "> values = new LinkedHashMap<>();");
+                statements.add("reader.beginObject();");
+                statements.add("while(reader.hasNext()){");
+                statements.add(INDENTATION + "reader.nextName();");
+                statements.add(INDENTATION + key.className() + " key = " + readKey(key) + ";");
+                statements.add(INDENTATION + "values.put(key, " + read(value) + ");");
+                statements.add("}");
+                statements.add("reader.endObject();");
+                statements.add("builder." + name + "(values);");
+            }
+        }
+        return statements;
+    }
+
+    private static boolean container(TypeHandler typeHandler) {
+        return !(typeHandler instanceof SimpleTypeHandler) && !(typeHandler instanceof OptionalTypeHandler);
+    }
+
+    private boolean enumBased(TypeName type) {
+        return enums.contains(type.fqName());
+    }
+
+    private String write(TypeName type, String value) {
+        if (enumBased(type)) {
+            // constant names need no escaping
+            return "out.append('\"').append(" + value + ".name()).append('\"')";
+        }
+        return switch (type.boxed().className()) {
+            case "Boolean" ->
+                "out.append(" + value + " ? \"true\" : \"false\")";
+            case "Byte", "Short", "Integer", "Long" ->
+                "writeJsonLong(out, " + value + ")";
+            case "Float" ->
+                "writeJsonFloat(out, " + value + ")";
+            case "Double" ->
+                "writeJsonDouble(out, " + value + ")";
+            case "Character" ->
+                "writeJsonString(out, String.valueOf(" + value + "))";
+            case "String" ->
+                "writeJsonString(out, " + value + ")";
+            default ->
+                throw new IllegalStateException("no JSON encoding for " + type);
+        };
+    }
+
+    private String read(TypeName type) {
+        if (enumBased(type)) {
+            return "reader.nextEnum(" + type.className() + ".class)";
+        }
+        return switch (type.boxed().className()) {
+            case "Boolean" ->
+                "reader.nextBoolean()";
+            case "Byte" ->
+                "(byte) reader.nextInt(Byte.MIN_VALUE, Byte.MAX_VALUE)";
+            case "Short" ->
+                "(short) reader.nextInt(Short.MIN_VALUE, Short.MAX_VALUE)";
+            case "Integer" ->
+                "reader.nextInt(Integer.MIN_VALUE, Integer.MAX_VALUE)";
+            case "Long" ->
+                "reader.nextLong()";
+            case "Float" ->
+                "reader.nextFloat()";
+            case "Double" ->
+                "reader.nextDouble()";
+            case "Character" ->
+                "reader.nextChar()";
+            case "String" ->
+                "reader.nextString()";
+            default ->
+                throw new IllegalStateException("no JSON encoding for " + type);
+        };
+    }
+
+    // map keys are member names
+    private String keyString(TypeName type, String value) {
+        if (enumBased(type)) {
+            return value + ".name()";
+        }
+        return "String".equals(type.className()) ? value : "String.valueOf(" + value + ")";
+    }
+
+    private String readKey(TypeName type) {
+        if (enumBased(type)) {
+            return "reader.key(" + type.className() + "::valueOf)";
+        }
+        return switch (type.boxed().className()) {
+            case "String" ->
+                "reader.name()";
+            case "Character" ->
+                "reader.charKey()";
+            case "Boolean" ->
+                "reader.booleanKey()";
+            case "Byte" ->
+                "reader.key(Byte::parseByte)";
+            case "Short" ->
+                "reader.key(Short::parseShort)";
+            case "Integer" ->
+                "reader.key(Integer::parseInt)";
+            case "Long" ->
+                "reader.key(Long::parseLong)";
+            case "Float" ->
+                "reader.key(Float::parseFloat)";
+            case "Double" ->
+                "reader.key(Double::parseDouble)";
+            default ->
+                throw new IllegalStateException("no JSON encoding for " + type);
+        };
+    }
+
+    private void generateWriteHelpers(Writer writer) throws IOException {
+        String helpersFormat = """
+                               %1$sprivate static void writeJsonString(final Appendable out, final String value) throws IOException{
+                               %2$sout.append('"');
+                               %2$sint start = 0;
+                               %2$sfor(int i = 0; i < value.length(); i++){
+                               %3$schar c = value.charAt(i);
+                               %3$sif(c < 0x20 || c == '"' || c == '\\\\'){
+                               %4$sout.append(value, start, i);
+                               %4$sif(c < 0x20){
+                               %5$sout.append("\\\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                               %4$s} else {
+                               %5$sout.append('\\\\').append(c);
+                               %4$s}
+                               %4$sstart = i + 1;
+                               %3$s}
+                               %2$s}
+                               %2$sout.append(value, start, value.length()).append('"');
+                               %1$s}
+
+                               %1$sprivate static void writeJsonLong(final Appendable out, final long value) throws IOException{
+                               %2$sif(out instanceof StringBuilder json){
+                               %3$sjson.append(value);
+                               %2$s} else {
+                               %3$sout.append(Long.toString(value));
+                               %2$s}
+                               %1$s}
+
+                               %1$sprivate static void writeJsonFloat(final Appendable out, final float value) throws IOException{
+                               %2$sif(!Float.isFinite(value)){
+                               %3$sthrow new IllegalStateException(value + " has no JSON representation");
+                               %2$s}
+                               %2$sif(out instanceof StringBuilder json){
+                               %3$sjson.append(value);
+                               %2$s} else {
+                               %3$sout.append(Float.toString(value));
+                               %2$s}
+                               %1$s}
+
+                               %1$sprivate static void writeJsonDouble(final Appendable out, final double value) throws IOException{
+                               %2$sif(!Double.isFinite(value)){
+                               %3$sthrow new IllegalStateException(value + " has no JSON representation");
+                               %2$s}
+                               %2$sif(out instanceof StringBuilder json){
+                               %3$sjson.append(value);
+                               %2$s} else {
+                               %3$sout.append(Double.toString(value));
+                               %2$s}
+                               %1$s}
+
+                               """;
+        writer.write(helpersFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                INDENTATION.repeat(5), INDENTATION.repeat(6)));
+    }
+
+    private void generateJsonReader(Writer writer) throws IOException {
+        String readerFormat = """
+                              %1$s// pull parser over a char buffer refilled from the reader
+                              %1$sprivate static final class JsonReader{
+
+                              %2$sprivate final char[] buffer = new char[8192];
+                              %2$sprivate final Reader reader;
+                              %2$sprivate int position;
+                              %2$sprivate int limit;
+                              %2$s// chars consumed by the previous fills, for error offsets
+                              %2$sprivate long consumed;
+                              %2$s// the last string, name or number read
+                              %2$sprivate char[] scratch = new char[64];
+                              %2$sprivate int scratchLength;
+                              %2$s// no element of the current object or array has been read yet
+                              %2$sprivate boolean first;
+
+                              %2$sJsonReader(final Reader reader){
+                              %3$sthis.reader = reader;
+                              %2$s}
+
+                              %2$svoid beginObject() throws IOException{
+                              %3$sexpect('{');
+                              %3$sfirst = true;
+                              %2$s}
+
+                              %2$svoid endObject() throws IOException{
+                              %3$sexpect('}');
+                              %3$sfirst = false;
+                              %2$s}
+
+                              %2$svoid beginArray() throws IOException{
+                              %3$sexpect('[');
+                              %3$sfirst = true;
+                              %2$s}
+
+                              %2$svoid endArray() throws IOException{
+                              %3$sexpect(']');
+                              %3$sfirst = false;
+                              %2$s}
+
+                              %2$s// consumes the separator before the next element of the current object or array
+                              %2$sboolean hasNext() throws IOException{
+                              %3$sint c = peek();
+                              %3$sif(c == '}' || c == ']'){
+                              %4$sreturn false;
+                              %3$s}
+                              %3$sif(!first){
+                              %4$sexpect(',');
+                              %3$s}
+                              %3$sfirst = false;
+                              %3$sreturn true;
+                              %2$s}
+
+                              %2$s// reads a member name and its colon, returns the String.hashCode() of the name
+                              %2$sint nextName() throws IOException{
+                              %3$sint hash = readString();
+                              %3$sexpect(':');
+                              %3$sreturn hash;
+                              %2$s}
+
+                              %2$sboolean nameIs(final String name){
+                              %3$sif(name.length() != scratchLength){
+                              %4$sreturn false;
+                              %3$s}
+                              %3$sfor(int i = 0; i < scratchLength; i++){
+                              %4$sif(scratch[i] != name.charAt(i)){
+                              %5$sreturn false;
+                              %4$s}
+                              %3$s}
+                              %3$sreturn true;
+                              %2$s}
+
+                              %2$sString name(){
+                              %3$sreturn new String(scratch, 0, scratchLength);
+                              %2$s}
+
+                              %2$sString nextString() throws IOException{
+                              %3$sreadString();
+                              %3$sreturn new String(scratch, 0, scratchLength);
+                              %2$s}
+
+                              %2$s<E extends Enum<E>> E nextEnum(final Class<E> type) throws IOException{
+                              %3$sString name = nextString();
+                              %3$stry{
+                              %4$sreturn Enum.valueOf(type, name);
+                              %3$s} catch(IllegalArgumentException ex){
+                              %4$sthrow error(name + " is not a constant of " + type.getSimpleName());
+                              %3$s}
+                              %2$s}
+
+                              %2$sboolean booleanKey(){
+                              %3$sif(nameIs("true")){
+                              %4$sreturn true;
+                              %3$s}
+                              %3$sif(nameIs("false")){
+                              %4$sreturn false;
+                              %3$s}
+                              %3$sthrow error("unexpected key " + name());
+                              %2$s}
+
+                              %2$schar charKey(){
+                              %3$sif(scratchLength != 1){
+                              %4$sthrow error("unexpected key " + name());
+                              %3$s}
+                              %3$sreturn scratch[0];
+                              %2$s}
+
+                              %2$s// converts the last member name to a map key
+                              %2$s<K> K key(final Function<String, K> parser){
+                              %3$sString name = name();
+                              %3$stry{
+                              %4$sreturn parser.apply(name);
+                              %3$s} catch(IllegalArgumentException ex){
+                              %4$sthrow error("unexpected key " + name);
+                              %3$s}
+                              %2$s}
+
+                              %2$schar nextChar() throws IOException{
+                              %3$sreadString();
+                              %3$sif(scratchLength != 1){
+                              %4$sthrow error("expected a single character");
+                              %3$s}
+                              %3$sreturn scratch[0];
+                              %2$s}
+
+                              %2$sboolean nextBoolean() throws IOException{
+                              %3$sint c = peek();
+                              %3$sif(c == 't'){
+                              %4$sliteral("true");
+                              %4$sreturn true;
+                              %3$s}
+                              %3$sif(c == 'f'){
+                              %4$sliteral("false");
+                              %4$sreturn false;
+                              %3$s}
+                              %3$sthrow error("expected a boolean");
+                              %2$s}
+
+                              %2$s// consumes a null literal
+                              %2$sboolean nextNull() throws IOException{
+                              %3$sif(peek() == 'n'){
+                              %4$sliteral("null");
+                              %4$sreturn true;
+                              %3$s}
+                              %3$sreturn false;
+                              %2$s}
+
+                              %2$slong nextLong() throws IOException{
+                              %3$sreadNumber();
+                              %3$sboolean negative = scratchLength > 1 && scratch[0] == '-';
+                              %3$s// accumulated negatively, Long.MIN_VALUE has no positive counterpart
+                              %3$slong value = 0;
+                              %3$sfor(int i = negative ? 1 : 0; i < scratchLength; i++){
+                              %4$sint digit = scratch[i] - '0';
+                              %4$sif(digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10){
+                              %5$sthrow error("expected a long");
+                              %4$s}
+                              %4$svalue = value * 10 - digit;
+                              %3$s}
+                              %3$sif(!negative && value == Long.MIN_VALUE){
+                              %4$sthrow error("expected a long");
+                              %3$s}
+                              %3$sreturn negative ? value : -value;
+                              %2$s}
+
+                              %2$sint nextInt(final int min, final int max) throws IOException{
+                              %3$slong value = nextLong();
+                              %3$sif(value < min || value > max){
+                              %4$sthrow error(value + " is out of range");
+                              %3$s}
+                              %3$sreturn (int) value;
+                              %2$s}
+
+                              %2$sdouble nextDouble() throws IOException{
+                              %3$sreadNumber();
+                              %3$sString text = new String(scratch, 0, scratchLength);
+                              %3$sdouble value;
+                              %3$stry{
+                              %4$svalue = Double.parseDouble(text);
+                              %3$s} catch(NumberFormatException ex){
+                              %4$sthrow error("expected a number");
+                              %3$s}
+                              %3$sif(!Double.isFinite(value)){
+                              %4$sthrow error(text + " is out of range");
+                              %3$s}
+                              %3$sreturn value;
+                              %2$s}
+
+                              %2$sfloat nextFloat() throws IOException{
+                              %3$sdouble value = nextDouble();
+                              %3$sif(Math.abs(value) > Float.MAX_VALUE){
+                              %4$sthrow error(value + " is out of range");
+                              %3$s}
+                              %3$sreturn (float) value;
+                              %2$s}
+
+                              %2$svoid skipValue() throws IOException{
+                              %3$sswitch(peek()){
+                              %4$scase '{' -> {
+                              %5$sbeginObject();
+                              %5$swhile(hasNext()){
+                              %6$snextName();
+                              %6$sskipValue();
+                              %5$s}
+                              %5$sendObject();
+                              %4$s}
+                              %4$scase '[' -> {
+                              %5$sbeginArray();
+                              %5$swhile(hasNext()){
+                              %6$sskipValue();
+                              %5$s}
+                              %5$sendArray();
+                              %4$s}
+                              %4$scase '"' -> readString();
+                              %4$scase 't', 'f' -> nextBoolean();
+                              %4$scase 'n' -> literal("null");
+                              %4$sdefault -> readNumber();
+                              %3$s}
+                              %2$s}
+
+                              %2$s// nothing but whitespace may follow the top level value
+                              %2$svoid end() throws IOException{
+                              %3$sif(peek() != -1){
+                              %4$sthrow error("trailing data");
+                              %3$s}
+                              %2$s}
+
+                              %2$sprivate int readString() throws IOException{
+                              %3$sexpect('"');
+                              %3$sint hash = 0;
+                              %3$sscratchLength = 0;
+                              %3$swhile(true){
+                              %4$sint c = read();
+                              %4$sif(c == '"'){
+                              %5$sreturn hash;
+                              %4$s}
+                              %4$sif(c == '\\\\'){
+                              %5$sc = escape();
+                              %4$s} else if(c < 0x20){
+                              %5$sthrow error(c == -1 ? "unterminated string" : "unescaped control character");
+                              %4$s}
+                              %4$sappend((char) c);
+                              %4$shash = 31 * hash + c;
+                              %3$s}
+                              %2$s}
+
+                              %2$sprivate int escape() throws IOException{
+                              %3$sint c = read();
+                              %3$sreturn switch(c){
+                              %4$scase '"', '\\\\', '/' -> c;
+                              %4$scase 'b' -> '\\b';
+                              %4$scase 'f' -> '\\f';
+                              %4$scase 'n' -> '\\n';
+                              %4$scase 'r' -> '\\r';
+                              %4$scase 't' -> '\\t';
+                              %4$scase 'u' -> {
+                              %5$sint value = 0;
+                              %5$sfor(int i = 0; i < 4; i++){
+                              %6$sint digit = Character.digit(read(), 16);
+                              %6$sif(digit < 0){
+                              %7$sthrow error("malformed unicode escape");
+                              %6$s}
+                              %6$svalue = value << 4 | digit;
+                              %5$s}
+                              %5$syield value;
+                              %4$s}
+                              %4$sdefault -> throw error("malformed escape");
+                              %3$s};
+                              %2$s}
+
+                              %2$sprivate void readNumber() throws IOException{
+                              %3$sscratchLength = 0;
+                              %3$sint c = peek();
+                              %3$swhile(c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')){
+                              %4$sappend((char) c);
+                              %4$sposition++;
+                              %4$sc = position < limit || fill() ? buffer[position] : -1;
+                              %3$s}
+                              %3$sif(scratchLength == 0){
+                              %4$sthrow error("expected a value");
+                              %3$s}
+                              %2$s}
+
+                              %2$sprivate void literal(final String literal) throws IOException{
+                              %3$sfor(int i = 0; i < literal.length(); i++){
+                              %4$sif(read() != literal.charAt(i)){
+                              %5$sthrow error("expected " + literal);
+                              %4$s}
+                              %3$s}
+                              %2$s}
+
+                              %2$sprivate void expect(final char expected) throws IOException{
+                              %3$sif(peek() != expected){
+                              %4$sthrow error("expected '" + expected + "'");
+                              %3$s}
+                              %3$sposition++;
+                              %2$s}
+
+                              %2$s// skips whitespace, the next char is not consumed, -1 at the end of the input
+                              %2$sprivate int peek() throws IOException{
+                              %3$swhile(position < limit || fill()){
+                              %4$schar c = buffer[position];
+                              %4$sif(c != ' ' && c != '\\n' && c != '\\r' && c != '\\t'){
+                              %5$sreturn c;
+                              %4$s}
+                              %4$sposition++;
+                              %3$s}
+                              %3$sreturn -1;
+                              %2$s}
+
+                              %2$sprivate int read() throws IOException{
+                              %3$sreturn position < limit || fill() ? buffer[position++] : -1;
+                              %2$s}
+
+                              %2$sprivate boolean fill() throws IOException{
+                              %3$sconsumed += limit;
+                              %3$sposition = 0;
+                              %3$slimit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                              %3$sreturn limit > 0;
+                              %2$s}
+
+                              %2$sprivate void append(final char c){
+                              %3$sif(scratchLength == scratch.length){
+                              %4$sscratch = Arrays.copyOf(scratch, scratchLength * 2);
+                              %3$s}
+                              %3$sscratch[scratchLength++] = c;
+                              %2$s}
+
+                              %2$sprivate IllegalStateException error(final String message){
+                              %3$sreturn new IllegalStateException("malformed JSON at offset " + (consumed + position) + ": " + message);
+                              %2$s}
+                              %1$s}
+
+                              """;
+        writer.write(readerFormat.formatted(INDENTATION.repeat(2), INDENTATION.repeat(3), INDENTATION.repeat(4),
+                INDENTATION.repeat(5), INDENTATION.repeat(6), INDENTATION.repeat(7), INDENTATION.repeat(8)));
+    }
+}
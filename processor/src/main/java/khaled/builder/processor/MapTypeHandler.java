@@ -0,0 +1,201 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import static khaled.builder.processor.CollectionTypeHandler.capitalize;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * {@code Map<K, V>} properties, the implementation keeps an immutable open-addressing table: keys and values
+ * interleaved in a single array, or primitive key and value arrays for {@code Integer}/{@code Long} keys with
+ * {@code Integer}/{@code Long}/{@code Double} values, enum keys are kept in an {@code EnumMap}.
+ *
+ * @author khaled
+ */
+// enumValues: the values are enum constants, enum keys are stored in an ENUM_MAP
+public record MapTypeHandler(String name, TypeName type, String singular, List<?> defaultValues, Storage storage,
+        boolean enumValues)
+        implements TypeHandler {
+
+    enum Storage {
+        OBJECT,
+        ENUM_MAP,
+        PRIMITIVE;
+
+        static Storage of(TypeName keyType, TypeName valueType, boolean enumKeys) {
+            if (enumKeys) {
+                return ENUM_MAP;
+            }
+            var key = PrimitiveListTypeHandler.Element.of(keyType);
+            var value = PrimitiveListTypeHandler.Element.of(valueType);
+            // double keys would need NaN and -0.0 handling, they stay boxed
+            boolean primitiveKey = key == PrimitiveListTypeHandler.Element.INT
+                    || key == PrimitiveListTypeHandler.Element.LONG;
+            return primitiveKey && null != value ? PRIMITIVE : OBJECT;
+        }
+    }
+
+    TypeName keyType() {
+        return type.typeArguments().get(0);
+    }
+
+    TypeName valueType() {
+        return type.typeArguments().get(1);
+    }
+
+    PrimitiveListTypeHandler.Element keyElement() {
+        return PrimitiveListTypeHandler.Element.of(keyType());
+    }
+
+    PrimitiveListTypeHandler.Element valueElement() {
+        return PrimitiveListTypeHandler.Element.of(valueType());
+    }
+
+    // the implementation class holding the entries
+    String tableName() {
+        return switch (storage) {
+            case OBJECT ->
+                "ObjectTable";
+            case ENUM_MAP ->
+                "EnumMap";
+            case PRIMITIVE ->
+                tableName(keyElement(), valueElement());
+        };
+    }
+
+    static String tableName(PrimitiveListTypeHandler.Element key, PrimitiveListTypeHandler.Element value) {
+        return capitalize(key.primitiveType()) + capitalize(value.primitiveType()) + "Table";
+    }
+
+    // the prototype helper copying a map into its immutable storage
+    String copyName() {
+        return switch (storage) {
+            case OBJECT ->
+                "mapCopy";
+            case ENUM_MAP ->
+                "enumMapCopy";
+            case PRIMITIVE ->
+                keyElement().primitiveType() + capitalize(valueElement().primitiveType()) + "MapCopy";
+        };
+    }
+
+    String copyOf(String value) {
+        if (storage == Storage.ENUM_MAP) {
+            return copyName() + "(" + keyType().className() + ".class, " + value + ")";
+        }
+        return copyName() + "(" + value + ")";
+    }
+
+    String immutable(String entries) {
+        return copyOf(entries.isEmpty() ? "Map.of()" : "Map.ofEntries(" + entries + ")");
+    }
+
+    @Override
+    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        String paramType = CollectionTypeHandler.covary(type);
+        String mark = setMask.tracked(name) ? body + setMask.markStatement(name) + "\n" : "";
+
+        writer.write(prefix + "public " + builderName + " " + name + "(final " + paramType + " " + name + "){\n");
+        writer.write(body + "Objects.requireNonNull(" + name + ");\n");
+        // one immutable copy, reused as is by the implementation unless mutated again
+        writer.write(body + "this." + name + " = " + copyOf(name) + ";\n");
+        writer.write(body + "this." + ownedName() + " = false;\n");
+        writer.write(mark);
+        writer.write(body + "return self();\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "public " + builderName + " add" + capitalize(name) + "(final " + paramType + " " + name
+                + "){\n");
+        writer.write(body + "Objects.requireNonNull(" + name + ");\n");
+        writer.write(body + mutableName() + "().putAll(" + name + ");\n");
+        writer.write(mark);
+        writer.write(body + "return self();\n");
+        writer.write(prefix + "}\n\n");
+
+        if (null != singular) {
+            String methodName = singular.isBlank() ? "put" + capitalize(CollectionTypeHandler.singular(name)) : singular;
+            writer.write(prefix + "public " + builderName + " " + methodName + "(final " + keyType().className()
+                    + " key, final " + valueType().className() + " value){\n");
+            writer.write(body + "Objects.requireNonNull(key);\n");
+            writer.write(body + "Objects.requireNonNull(value);\n");
+            writer.write(body + mutableName() + "().put(key, value);\n");
+            writer.write(mark);
+        writer.write(body + "return self();\n");
+            writer.write(prefix + "}\n\n");
+        }
+        generateMutable(writer, indentationLevel);
+    }
+
+    @Override
+    public void generateAccessors(Writer writer, int indentationLevel, Generator generator) throws IOException {
+        if (storage != Storage.PRIMITIVE) {
+            TypeHandler.super.generateAccessors(writer, indentationLevel, generator);
+            return;
+        }
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        String key = keyElement().primitiveType();
+        String value = valueElement().primitiveType();
+        switch (generator) {
+            case BuilderGenerator b ->
+                TypeHandler.super.generateAccessors(writer, indentationLevel, generator);
+            case ImplementationGenerator i -> {
+                TypeHandler.super.generateAccessors(writer, indentationLevel, generator);
+
+                // the field always holds the primitive table, lookups neither box nor allocate
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + value + " " + getOrDefaultName() + "(final " + key
+                        + " key, final " + value + " defaultValue){\n");
+                writer.write(body + "return ((" + tableName() + ") this." + name + ").getOrDefault(key, defaultValue);\n");
+                writer.write(prefix + "}\n\n");
+
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public boolean " + containsKeyName() + "(final " + key + " key){\n");
+                writer.write(body + "return ((" + tableName() + ") this." + name + ").containsKey(key);\n");
+                writer.write(prefix + "}\n\n");
+            }
+            case PrototypeGenerator p -> {
+                writer.write(prefix + value + " " + getOrDefaultName() + "(" + key + " key, " + value
+                        + " defaultValue);\n\n");
+                writer.write(prefix + "boolean " + containsKeyName() + "(" + key + " key);\n\n");
+            }
+        }
+    }
+
+    String getOrDefaultName() {
+        return name + "GetOrDefault";
+    }
+
+    String containsKeyName() {
+        return name + "ContainsKey";
+    }
+
+    private void generateMutable(Writer writer, int indentationLevel) throws IOException {
+        String mutableFormat = """
+                               %1$sprivate %4$s %5$s(){
+                               %2$sif(!this.%6$s){
+                               %3$sthis.%7$s = new LinkedHashMap<>(this.%7$s);
+                               %3$sthis.%6$s = true;
+                               %2$s}
+                               %2$sreturn this.%7$s;
+                               %1$s}
+
+                               """;
+        writer.write(mutableFormat.formatted(INDENTATION.repeat(indentationLevel),
+                INDENTATION.repeat(indentationLevel + 1),
+                INDENTATION.repeat(indentationLevel + 2),
+                type.classNameWithTypes(),
+                mutableName(),
+                ownedName(),
+                name));
+    }
+
+    private String mutableName() {
+        return "mutable" + capitalize(name);
+    }
+}
@@ -0,0 +1,294 @@
+package khaled.builder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * reusable scratch instance enabled by {@link GenerationOptions#MUTABLE}: {@code Xxx.Mutable} implements the
+ * prototype over plain fields, its setters store the values as given (collections, maps and arrays are not copied),
+ * {@code clear()} restores the builder defaults and {@code freeze()} validates the required properties like
+ * {@code build()} and copies the values into an implementation, so a read only pass only allocates for the records it
+ * keeps. equals, hashCode and toString read the fields like the implementation, a half filled instance compares.
+ *
+ * @author khaled
+ */
+record MutableFlyweight(List<TypeHandler> typeHandlers, SetMask setMask, String prototypeName, String implName,
+        String builderName, GenerationOptions options) {
+
+    static MutableFlyweight create(GenerationInfo generationInfo) {
+        return new MutableFlyweight(List.copyOf(generationInfo.typeHandlers()),
+                SetMask.create(generationInfo.typeHandlers()), generationInfo.prototypeName(),
+                generationInfo.implName(), generationInfo.builderName(), generationInfo.options());
+    }
+
+    void generate(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        String mutableFormat = """
+                               %1$s// one instance reused for every record: set, read through the prototype, freeze() the ones to keep
+                               %1$s// and clear() before the next; not thread safe
+                               %1$sfinal class Mutable implements %2$s{
+
+                               %3$s// a builder never mutated, its fields hold the defaults
+                               %3$sprivate static final %4$s DEFAULTS = new %4$s();
+
+                               """;
+        writer.write(mutableFormat.formatted(INDENTATION, prototypeName, prefix, builderName));
+        for (var typeHandler : typeHandlers) {
+            writer.write(prefix + "private " + ImplementationGenerator.implementationFieldType(typeHandler) + " "
+                    + typeHandler.name() + ";\n");
+        }
+        for (int word = 0; word < setMask.wordCount(); word++) {
+            writer.write(prefix + "private long " + setMask.wordName(word) + ";\n");
+        }
+        writer.write("\n");
+
+        writer.write(prefix + "public Mutable(){\n");
+        writer.write(body + "clear();\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "public Mutable clear(){\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(body + "this." + typeHandler.name() + " = DEFAULTS." + typeHandler.name() + ";\n");
+        }
+        for (int word = 0; word < setMask.wordCount(); word++) {
+            writer.write(body + "this." + setMask.wordName(word) + " = 0L;\n");
+        }
+        writer.write(body + "return this;\n");
+        writer.write(prefix + "}\n\n");
+
+        generateSetters(writer);
+        generateAccessors(writer);
+        generateFreeze(writer);
+
+        OffHeapLayout.generateMaterializedDelegates(writer, 2, typeHandlers, prototypeName, options, "freeze()",
+                false);
+        generateEquality(writer);
+        writer.write(INDENTATION + "}\n\n");
+    }
+
+    // the current values as the implementation compares, hashes and renders them, without validating nor copying
+    private void generateEquality(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public boolean equals(final Object obj){\n");
+        writer.write(body + "if(this == obj){\n");
+        writer.write(body + INDENTATION + "return true;\n");
+        writer.write(body + "}\n");
+        writer.write(body + "if(!(obj instanceof " + prototypeName + " other)){\n");
+        writer.write(body + INDENTATION + "return false;\n");
+        writer.write(body + "}\n");
+        String comparisons = typeHandlers.stream()
+                .map(MutableFlyweight::equality)
+                .collect(Collectors.joining("\n" + body + INDENTATION + "&& "));
+        writer.write(body + "return " + (typeHandlers.isEmpty() ? "true" : comparisons) + ";\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public int hashCode(){\n");
+        writer.write(body + "int result = 1;\n");
+        for (var typeHandler : typeHandlers) {
+            writer.write(body + "result = 31 * result + " + hash(typeHandler) + ";\n");
+        }
+        writer.write(body + "return result;\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public StringBuilder appendTo(final StringBuilder builder){\n");
+        ImplementationGenerator.generateAppendStatements(writer, 3, typeHandlers, implName, implName + ".",
+                MutableFlyweight::value);
+        writer.write(body + "return builder.append('}');\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public String toString(){\n");
+        writer.write(body + "return appendTo(new StringBuilder()).toString();\n");
+        writer.write(prefix + "}\n");
+    }
+
+    // the field, lazy defaults resolved and primitive lists as their list view
+    private static String value(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case SimpleTypeHandler s when s.lazyDefault() ->
+                s.name() + "()";
+            case PrimitiveListTypeHandler p ->
+                p.name() + "()";
+            default ->
+                "this." + typeHandler.name();
+        };
+    }
+
+    private static String equality(TypeHandler typeHandler) {
+        String name = typeHandler.name();
+        String field = "this." + name;
+        return switch (typeHandler) {
+            case SimpleTypeHandler s when "double".equals(s.type().className()) ->
+                "Double.compare(" + field + ", other." + name + "()) == 0";
+            case SimpleTypeHandler s when "float".equals(s.type().className()) ->
+                "Float.compare(" + field + ", other." + name + "()) == 0";
+            case SimpleTypeHandler s when s.type().primitive() ->
+                field + " == other." + name + "()";
+            case OptionalTypeHandler o ->
+                "Objects.equals(" + field + ", other." + o.orNullName() + "())";
+            default ->
+                "Objects.equals(" + value(typeHandler) + ", other." + name + "())";
+        };
+    }
+
+    // same values as the implementation hashCode()
+    private static String hash(TypeHandler typeHandler) {
+        String field = "this." + typeHandler.name();
+        return switch (typeHandler) {
+            case SimpleTypeHandler s when s.type().primitive() ->
+                s.type().boxed().className() + ".hashCode(" + field + ")";
+            case PrimitiveListTypeHandler p ->
+                "Arrays.hashCode(" + field + ")";
+            default ->
+                "Objects.hashCode(" + value(typeHandler) + ")";
+        };
+    }
+
+    private void generateSetters(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            // the implementation field types: optionals are nullable values, primitive lists are arrays
+            String type = ImplementationGenerator.implementationFieldType(typeHandler);
+            writer.write(prefix + "public Mutable " + name + "(final " + type + " " + name + "){\n");
+            switch (typeHandler) {
+                case SimpleTypeHandler s when s.type().primitive() ->
+                    writer.write(body + "this." + name + " = " + name + ";\n");
+                // null empties the optional
+                case OptionalTypeHandler o ->
+                    writer.write(body + "this." + name + " = " + name + ";\n");
+                default ->
+                    writer.write(body + "this." + name + " = Objects.requireNonNull(" + name + ");\n");
+            }
+            if (setMask.tracked(name)) {
+                writer.write(body + setMask.markStatement(name) + "\n");
+            }
+            writer.write(body + "return this;\n");
+            writer.write(prefix + "}\n\n");
+        }
+    }
+
+    private void generateAccessors(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        for (var typeHandler : typeHandlers) {
+            String name = typeHandler.name();
+            String value = "this." + name;
+            String accessor = switch (typeHandler) {
+                case SimpleTypeHandler s when s.lazyDefault() ->
+                    s.resolved(value, implName);
+                case OptionalTypeHandler o ->
+                    "Optional.ofNullable(" + value + ")";
+                // a new view per call, the array is replaced by the setter
+                case PrimitiveListTypeHandler p ->
+                    "new " + implName + "." + p.element().viewType() + "(" + value + ")";
+                default ->
+                    value;
+            };
+            writer.write(prefix + "@Override\n");
+            writer.write(prefix + "public " + typeHandler.type().classNameWithTypes() + " " + name + "(){\n");
+            writer.write(body + "return " + accessor + ";\n");
+            writer.write(prefix + "}\n\n");
+            switch (typeHandler) {
+                case OptionalTypeHandler o -> {
+                    String valueType = o.mutatorType();
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + valueType + " " + o.orNullName() + "(){\n");
+                    writer.write(body + "return " + value + ";\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + valueType + " " + o.orElseName() + "(final " + valueType
+                            + " other){\n");
+                    writer.write(body + "return " + value + " != null ? " + value + " : other;\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                case PrimitiveListTypeHandler p -> {
+                    var element = p.element();
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.primitiveType() + "[] " + name + "Array(){\n");
+                    writer.write(body + "return " + value + ".clone();\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.streamType() + " " + name + "Stream(){\n");
+                    writer.write(body + "return Arrays.stream(" + value + ");\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + element.primitiveType() + " " + name + "At(final int index){\n");
+                    writer.write(body + "return " + value + "[index];\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                // any map until frozen, the lookups box
+                case MapTypeHandler m when m.storage() == MapTypeHandler.Storage.PRIMITIVE -> {
+                    String key = m.keyElement().primitiveType();
+                    String mapped = m.valueElement().primitiveType();
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public " + mapped + " " + m.getOrDefaultName() + "(final " + key
+                            + " key, final " + mapped + " defaultValue){\n");
+                    writer.write(body + "return " + value + ".getOrDefault(key, defaultValue);\n");
+                    writer.write(prefix + "}\n\n");
+
+                    writer.write(prefix + "@Override\n");
+                    writer.write(prefix + "public boolean " + m.containsKeyName() + "(final " + key + " key){\n");
+                    writer.write(body + "return " + value + ".containsKey(key);\n");
+                    writer.write(prefix + "}\n\n");
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void generateFreeze(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "// an immutable copy of the current values, this instance can be cleared and reused\n");
+        writer.write(prefix + "public " + prototypeName + " freeze(){\n");
+        if (setMask.hasRequired()) {
+            String incomplete = setMask.incompleteExpression("this.", builderName + ".");
+            String words = IntStream.range(0, setMask.requiredWordCount())
+                    .mapToObj(word -> "this." + setMask.wordName(word))
+                    .collect(Collectors.joining(", "));
+            writer.write(body + "if(" + incomplete + "){\n");
+            writer.write(body + INDENTATION + "throw new IllegalStateException(" + builderName + ".missingProperties("
+                    + words + "));\n");
+            writer.write(body + "}\n");
+        }
+        String arguments = typeHandlers.stream()
+                .map(MutableFlyweight::frozenValue)
+                .collect(Collectors.joining(", "));
+        String instance = "new " + implName + "(" + arguments + ")";
+        if (options.intern()) {
+            instance = implName + ".intern(" + instance + ")";
+        }
+        writer.write(body + "return " + instance + ";\n");
+        writer.write(prefix + "}\n\n");
+    }
+
+    // the implementation value of a field, what was set is copied
+    private static String frozenValue(TypeHandler typeHandler) {
+        String value = "this." + typeHandler.name();
+        return switch (typeHandler) {
+            case CollectionTypeHandler c ->
+                c.copyOf(value);
+            case MapTypeHandler m ->
+                m.copyOf(value);
+            case PrimitiveListTypeHandler p ->
+                value + ".clone()";
+            default ->
+                value;
+        };
+    }
+}
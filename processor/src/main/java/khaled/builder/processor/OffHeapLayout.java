@@ -0,0 +1,294 @@
+package khaled.builder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * fixed off-heap record of a primitive only prototype enabled by {@link GenerationOptions#OFF_HEAP}: the prototype
+ * declares its little endian {@code LAYOUT} struct (widest properties first so every one is naturally aligned, padded
+ * to the struct alignment), {@code copyTo(MemorySegment, long)} writing any instance as such a record and a
+ * {@code View} flyweight implementing the prototype by reading the record it is positioned at.
+ *
+ * @author khaled
+ */
+record OffHeapLayout(List<Slot> slots, long size, List<TypeHandler> declared, String prototypeName,
+        GenerationOptions options) {
+
+    record Slot(TypeHandler typeHandler, long offset, long size) {
+
+        String name() {
+            return typeHandler.name();
+        }
+
+        String type() {
+            return typeHandler.type().className();
+        }
+
+        String layoutName() {
+            return type().toUpperCase(Locale.ROOT) + "_LAYOUT";
+        }
+    }
+
+    static OffHeapLayout create(GenerationInfo generationInfo) {
+        List<TypeHandler> ordered = generationInfo.typeHandlers().stream()
+                .sorted(Comparator.comparingInt(OffHeapLayout::byteSize).reversed())
+                .toList();
+        List<Slot> slots = new ArrayList<>();
+        long offset = 0;
+        for (var typeHandler : ordered) {
+            int size = byteSize(typeHandler);
+            slots.add(new Slot(typeHandler, offset, size));
+            offset += size;
+        }
+        long alignment = slots.isEmpty() ? 1 : slots.getFirst().size();
+        long size = (offset + alignment - 1) / alignment * alignment;
+        return new OffHeapLayout(List.copyOf(slots), size, List.copyOf(generationInfo.typeHandlers()),
+                generationInfo.prototypeName(), generationInfo.options());
+    }
+
+    // only primitive properties have a fixed size record
+    static boolean supported(TypeHandler typeHandler) {
+        return typeHandler instanceof SimpleTypeHandler && typeHandler.type().primitive();
+    }
+
+    void generate(Writer writer) throws IOException {
+        generateLayout(writer);
+        generateCopyTo(writer);
+        generateView(writer);
+    }
+
+    private void generateLayout(Writer writer) throws IOException {
+        writer.write(INDENTATION + "// little endian record of the properties, widest first\n");
+        writer.write(INDENTATION + "StructLayout LAYOUT = MemoryLayout.structLayout(\n");
+        List<String> members = new ArrayList<>();
+        for (Slot slot : slots) {
+            String order = "boolean".equals(slot.type()) || "byte".equals(slot.type())
+                    ? ""
+                    : ".withOrder(ByteOrder.LITTLE_ENDIAN)";
+            members.add("ValueLayout.JAVA_" + slot.type().toUpperCase(Locale.ROOT) + order + ".withName(\"" + slot.name()
+                    + "\")");
+        }
+        long padding = size - slots.stream().mapToLong(Slot::size).sum();
+        if (padding > 0) {
+            members.add("MemoryLayout.paddingLayout(" + padding + ")");
+        }
+        writer.write(members.stream()
+                .map(it -> INDENTATION.repeat(3) + it)
+                .collect(Collectors.joining(",\n")));
+        writer.write(")\n" + INDENTATION.repeat(3) + ".withName(\"" + prototypeName + "\");\n\n");
+    }
+
+    private void generateCopyTo(Writer writer) throws IOException {
+        writer.write(INDENTATION + "default void copyTo(final MemorySegment segment){\n");
+        writer.write(INDENTATION.repeat(2) + "copyTo(segment, 0);\n");
+        writer.write(INDENTATION + "}\n\n");
+
+        writer.write(INDENTATION + "// writes this instance as a LAYOUT record at offset\n");
+        writer.write(INDENTATION + "default void copyTo(final MemorySegment segment, final long offset){\n");
+        writer.write(INDENTATION.repeat(2) + "Objects.checkFromIndexSize(offset, LAYOUT.byteSize(), segment.byteSize());\n");
+        for (Slot slot : slots) {
+            writer.write(INDENTATION.repeat(2) + "segment.set(View." + slot.layoutName() + ", " + at("offset", slot)
+                    + ", " + slot.name() + "());\n");
+        }
+        writer.write(INDENTATION + "}\n\n");
+    }
+
+    private void generateView(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        String viewFormat = """
+                            %1$s// flyweight over the LAYOUT records of a segment, the properties are read on access and at(index)
+                            %1$s// moves the same view to another record
+                            %1$sfinal class View implements %2$s{
+
+                            """;
+        writer.write(viewFormat.formatted(INDENTATION, prototypeName));
+        for (String type : slots.stream().map(Slot::type).distinct().toList()) {
+            writeValueLayout(writer, type);
+        }
+
+        String membersFormat = """
+
+                               %1$sprivate final MemorySegment segment;
+                               %1$sprivate long offset;
+
+                               %1$sprivate View(final MemorySegment segment){
+                               %2$sthis.segment = segment;
+                               %1$s}
+
+                               %1$s// positioned at the first record
+                               %1$spublic static View over(final MemorySegment segment){
+                               %2$sreturn new View(Objects.requireNonNull(segment));
+                               %1$s}
+
+                               %1$spublic long count(){
+                               %2$sreturn segment.byteSize() / LAYOUT.byteSize();
+                               %1$s}
+
+                               %1$spublic View at(final long index){
+                               %2$sthis.offset = Objects.checkIndex(index, count()) * LAYOUT.byteSize();
+                               %2$sreturn this;
+                               %1$s}
+
+                               %1$s// a heap copy of the current record
+                               %1$spublic %3$s materialize(){
+                               %2$sreturn %3$s.builder().from(this).build();
+                               %1$s}
+
+                               %1$s@Override
+                               %1$spublic void copyTo(final MemorySegment target, final long targetOffset){
+                               %2$sMemorySegment.copy(segment, offset, target, targetOffset, LAYOUT.byteSize());
+                               %1$s}
+
+                               """;
+        writer.write(membersFormat.formatted(prefix, body, prototypeName));
+
+        for (Slot slot : slots) {
+            writer.write(prefix + "@Override\n");
+            writer.write(prefix + "public " + slot.type() + " " + slot.name() + "(){\n");
+            writer.write(body + "return segment.get(" + slot.layoutName() + ", " + at("offset", slot) + ");\n");
+            writer.write(prefix + "}\n\n");
+        }
+
+        generateMaterializedDelegates(writer, 2, declared, prototypeName, options, "materialize()", true);
+        generateViewEquality(writer);
+        writer.write(INDENTATION + "}\n\n");
+    }
+
+    // the views only read properties, everything else goes through copy: an expression evaluating to a heap copy of
+    // the viewed instance; appendTo is left to the views rendering themselves
+    static void generateMaterializedDelegates(Writer writer, int indentationLevel, List<TypeHandler> typeHandlers,
+            String prototypeName, GenerationOptions options, String copy, boolean appendTo) throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        for (var typeHandler : typeHandlers) {
+            writer.write(prefix + "@Override\n");
+            writer.write(prefix + "public " + prototypeName + " " + typeHandler.witherName() + "(final "
+                    + typeHandler.witherParameterType() + " " + typeHandler.name() + "){\n");
+            writer.write(body + "return " + copy + "." + typeHandler.witherName() + "(" + typeHandler.name() + ");\n");
+            writer.write(prefix + "}\n\n");
+        }
+        if (appendTo) {
+            writer.write(prefix + "@Override\n");
+            writer.write(prefix + "public StringBuilder appendTo(final StringBuilder builder){\n");
+            writer.write(body + "return " + copy + ".appendTo(builder);\n");
+            writer.write(prefix + "}\n\n");
+        }
+        if (options.binary()) {
+            String binaryFormat = """
+                                  %1$s@Override
+                                  %1$spublic void writeTo(final ByteBuffer buffer){
+                                  %2$s%3$s.writeTo(buffer);
+                                  %1$s}
+
+                                  %1$s@Override
+                                  %1$spublic void writeTo(final DataOutput output) throws IOException{
+                                  %2$s%3$s.writeTo(output);
+                                  %1$s}
+
+                                  %1$s@Override
+                                  %1$spublic int serializedSize(){
+                                  %2$sreturn %3$s.serializedSize();
+                                  %1$s}
+
+                                  """;
+            writer.write(binaryFormat.formatted(prefix, body, copy));
+        }
+        if (options.json()) {
+            String jsonFormat = """
+                                %1$s@Override
+                                %1$spublic void writeJson(final Appendable out) throws IOException{
+                                %2$s%3$s.writeJson(out);
+                                %1$s}
+
+                                %1$s@Override
+                                %1$spublic void writeJson(final OutputStream output) throws IOException{
+                                %2$s%3$s.writeJson(output);
+                                %1$s}
+
+                                """;
+            writer.write(jsonFormat.formatted(prefix, body, copy));
+        }
+        if (options.hash64()) {
+            writer.write(prefix + "@Override\n");
+            writer.write(prefix + "public void hashInto(final Hasher hasher){\n");
+            writer.write(body + copy + ".hashInto(hasher);\n");
+            writer.write(prefix + "}\n\n");
+        }
+    }
+
+    private void writeValueLayout(Writer writer, String type) throws IOException {
+        String constant = type.toUpperCase(Locale.ROOT);
+        String layoutType = "ValueLayout.Of" + Character.toUpperCase(type.charAt(0)) + type.substring(1);
+        // records of a mapped file are not necessarily aligned
+        String layout = "boolean".equals(type) || "byte".equals(type)
+                ? "ValueLayout.JAVA_" + constant
+                : "ValueLayout.JAVA_" + constant + "_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN)";
+        writer.write(INDENTATION.repeat(2) + "private static final " + layoutType + " " + constant + "_LAYOUT = "
+                + layout + ";\n");
+    }
+
+    // same contract as the implementation: equal to any instance with the same properties, same hash code
+    private void generateViewEquality(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public boolean equals(final Object obj){\n");
+        writer.write(body + "if(this == obj){\n");
+        writer.write(body + INDENTATION + "return true;\n");
+        writer.write(body + "}\n");
+        writer.write(body + "if(!(obj instanceof " + prototypeName + " other)){\n");
+        writer.write(body + INDENTATION + "return false;\n");
+        writer.write(body + "}\n");
+        String comparisons = declared.stream()
+                .map(it -> switch (it.type().className()) {
+                    case "double" ->
+                        "Double.compare(" + it.name() + "(), other." + it.name() + "()) == 0";
+                    case "float" ->
+                        "Float.compare(" + it.name() + "(), other." + it.name() + "()) == 0";
+                    default ->
+                        it.name() + "() == other." + it.name() + "()";
+                })
+                .collect(Collectors.joining("\n" + body + INDENTATION + "&& "));
+        writer.write(body + "return " + (declared.isEmpty() ? "true" : comparisons) + ";\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public int hashCode(){\n");
+        writer.write(body + "int result = 1;\n");
+        for (var typeHandler : declared) {
+            writer.write(body + "result = 31 * result + " + typeHandler.type().boxed().className() + ".hashCode("
+                    + typeHandler.name() + "());\n");
+        }
+        writer.write(body + "return result;\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public String toString(){\n");
+        writer.write(body + "return materialize().toString();\n");
+        writer.write(prefix + "}\n");
+    }
+
+    private static String at(String base, Slot slot) {
+        return slot.offset() == 0 ? base : base + " + " + slot.offset();
+    }
+
+    private static int byteSize(TypeHandler typeHandler) {
+        return switch (typeHandler.type().className()) {
+            case "long", "double" ->
+                8;
+            case "int", "float" ->
+                4;
+            case "short", "char" ->
+                2;
+            default ->
+                1;
+        };
+    }
+}
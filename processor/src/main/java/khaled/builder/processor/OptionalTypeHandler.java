@@ -13,7 +13,8 @@ public record OptionalTypeHandler(String name, TypeName type) implements TypeHan
 
 
     @Override
-    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel) throws IOException {
+    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException {
         String propertyName = name();
         String declaration = INDENTATION.repeat(indentationLevel) + "public " + builderName + " " + propertyName
                 + "(final "
@@ -28,6 +29,43 @@ public record OptionalTypeHandler(String name, TypeName type) implements TypeHan
         writer.write(INDENTATION.repeat(indentationLevel) + "}\n");
     }
 
+    @Override
+    public void generateAccessors(Writer writer, int indentationLevel, Generator generator) throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        String valueType = mutatorType();
+        switch (generator) {
+            case BuilderGenerator b ->
+                TypeHandler.super.generateAccessors(writer, indentationLevel, generator);
+            case ImplementationGenerator i -> {
+                TypeHandler.super.generateAccessors(writer, indentationLevel, generator);
+
+                // the value is stored as a nullable reference, these never allocate
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + valueType + " " + orNullName() + "(){\n");
+                writer.write(body + "return this." + name + ";\n");
+                writer.write(prefix + "}\n\n");
+
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + valueType + " " + orElseName() + "(final " + valueType + " other){\n");
+                writer.write(body + "return this." + name + " != null ? this." + name + " : other;\n");
+                writer.write(prefix + "}\n\n");
+            }
+            case PrototypeGenerator p -> {
+                writer.write(prefix + valueType + " " + orNullName() + "();\n\n");
+                writer.write(prefix + valueType + " " + orElseName() + "(" + valueType + " other);\n\n");
+            }
+        }
+    }
+
+    String orNullName() {
+        return name + "OrNull";
+    }
+
+    String orElseName() {
+        return name + "OrElse";
+    }
+
     String mutatorType() {
         return type().typeArguments().getFirst().className();
     }
@@ -0,0 +1,207 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import static khaled.builder.processor.CollectionTypeHandler.capitalize;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * {@code List<Integer>}, {@code List<Long>} and {@code List<Double>} properties stored as primitive arrays,
+ * enabled by {@link GenerationOptions#PRIMITIVE_LISTS}.
+ *
+ * @author khaled
+ */
+public record PrimitiveListTypeHandler(String name, TypeName type, String singular, List<?> defaultValues,
+        Element element) implements TypeHandler {
+
+    enum Element {
+        INT("int", "Integer", "IntStream", "IntList"),
+        LONG("long", "Long", "LongStream", "LongList"),
+        DOUBLE("double", "Double", "DoubleStream", "DoubleList");
+
+        private final String primitiveType;
+        private final String boxedType;
+        private final String streamType;
+        private final String viewType;
+
+        Element(String primitiveType, String boxedType, String streamType, String viewType) {
+            this.primitiveType = primitiveType;
+            this.boxedType = boxedType;
+            this.streamType = streamType;
+            this.viewType = viewType;
+        }
+
+        String primitiveType() {
+            return primitiveType;
+        }
+
+        String boxedType() {
+            return boxedType;
+        }
+
+        String streamType() {
+            return streamType;
+        }
+
+        String viewType() {
+            return viewType;
+        }
+
+        static Element of(TypeName elementType) {
+            return switch (elementType.className()) {
+                case "Integer" ->
+                    INT;
+                case "Long" ->
+                    LONG;
+                case "Double" ->
+                    DOUBLE;
+                default ->
+                    null;
+            };
+        }
+    }
+
+    String sizeName() {
+        return name + "Size";
+    }
+
+    @Override
+    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException {
+        String paramType = "List<? extends " + element.boxedType() + ">";
+        String mark = setMask.tracked(name) ? INDENTATION.repeat(indentationLevel + 1) + setMask.markStatement(name)
+                + "\n" : "";
+        generateAddAll(writer, builderName, indentationLevel, name, paramType, true, mark);
+        generateAddAll(writer, builderName, indentationLevel, "add" + capitalize(name), paramType, false, mark);
+        if (null != singular) {
+            generateAdd(writer, builderName, indentationLevel, CollectionTypeHandler.singularName(name, singular),
+                    mark);
+        }
+        generateEnsureCapacity(writer, indentationLevel);
+    }
+
+    @Override
+    public void generateAccessors(Writer writer, int indentationLevel, Generator generator) throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        switch (generator) {
+            case BuilderGenerator b -> {
+                writer.write(prefix + "public List<" + element.boxedType() + "> " + name + "(){\n");
+                // boxing copy, build() reads the array directly
+                writer.write(body + "return Arrays.stream(this." + name + ", 0, this." + sizeName()
+                        + ").boxed().toList();\n");
+                writer.write(prefix + "}\n\n");
+            }
+            case ImplementationGenerator i -> {
+                // racy single-check like the cached hash code, the view only holds the final array
+                writer.write(prefix + "public List<" + element.boxedType() + "> " + name + "(){\n");
+                writer.write(body + "List<" + element.boxedType() + "> view = this." + viewName() + ";\n");
+                writer.write(body + "if(view == null){\n");
+                writer.write(INDENTATION.repeat(indentationLevel + 2) + "view = new " + element.viewType() + "(this."
+                        + name + ");\n");
+                writer.write(INDENTATION.repeat(indentationLevel + 2) + "this." + viewName() + " = view;\n");
+                writer.write(body + "}\n");
+                writer.write(body + "return view;\n");
+                writer.write(prefix + "}\n\n");
+
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + element.primitiveType() + "[] " + name + "Array(){\n");
+                writer.write(body + "return this." + name + ".clone();\n");
+                writer.write(prefix + "}\n\n");
+
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + element.streamType() + " " + name + "Stream(){\n");
+                writer.write(body + "return Arrays.stream(this." + name + ");\n");
+                writer.write(prefix + "}\n\n");
+
+                writer.write(prefix + "@Override\n");
+                writer.write(prefix + "public " + element.primitiveType() + " " + name + "At(final int index){\n");
+                writer.write(body + "return this." + name + "[index];\n");
+                writer.write(prefix + "}\n\n");
+            }
+            case PrototypeGenerator p -> {
+                writer.write(prefix + element.primitiveType() + "[] " + name + "Array();\n\n");
+                writer.write(prefix + element.streamType() + " " + name + "Stream();\n\n");
+                writer.write(prefix + element.primitiveType() + " " + name + "At(int index);\n\n");
+            }
+        }
+    }
+
+    @Override
+    public void generateImplementationProperty(Writer writer, int indentationLevel) throws IOException {
+        writer.write(INDENTATION.repeat(indentationLevel) + "private final " + element.primitiveType() + "[] "
+                + name + ";\n");
+        writer.write(INDENTATION.repeat(indentationLevel) + "private List<" + element.boxedType() + "> "
+                + viewName() + ";\n");
+    }
+
+    private String viewName() {
+        return name + "View";
+    }
+
+    private void generateAddAll(Writer writer, String builderName, int indentationLevel, String methodName,
+            String paramType, boolean clear, String mark) throws IOException {
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        writer.write(INDENTATION.repeat(indentationLevel) + "public " + builderName + " " + methodName + "(final "
+                + paramType + " " + name + "){\n");
+        writer.write(body + "Objects.requireNonNull(" + name + ");\n");
+        if (clear) {
+            // a null element fails before the current elements are overwritten
+            writer.write(body + "for(" + element.boxedType() + " value : " + name + "){\n");
+            writer.write(INDENTATION.repeat(indentationLevel + 2) + "Objects.requireNonNull(value);\n");
+            writer.write(body + "}\n");
+            writer.write(body + ensureCapacityName() + "(" + name + ".size());\n");
+        } else {
+            writer.write(body + ensureCapacityName() + "(this." + sizeName() + " + " + name + ".size());\n");
+        }
+        // the size only grows once every element is unboxed
+        writer.write(body + "int size = " + (clear ? "0" : "this." + sizeName()) + ";\n");
+        writer.write(body + "for(" + element.boxedType() + " value : " + name + "){\n");
+        writer.write(INDENTATION.repeat(indentationLevel + 2) + "this." + name + "[size++] = value;\n");
+        writer.write(body + "}\n");
+        writer.write(body + "this." + sizeName() + " = size;\n");
+        writer.write(mark);
+        writer.write(body + "return self();\n");
+        writer.write(INDENTATION.repeat(indentationLevel) + "}\n\n");
+    }
+
+    private void generateEnsureCapacity(Writer writer, int indentationLevel) throws IOException {
+        String ensureCapacityFormat = """
+                                      %1$sprivate void %4$s(final int capacity){
+                                      %2$sif(!this.%5$s){
+                                      %3$sthis.%6$s = Arrays.copyOf(this.%6$s, Math.max(capacity, this.%7$s));
+                                      %3$sthis.%5$s = true;
+                                      %2$s} else {
+                                      %3$sthis.%6$s = ensureCapacity(this.%6$s, capacity);
+                                      %2$s}
+                                      %1$s}
+
+                                      """;
+        writer.write(ensureCapacityFormat.formatted(INDENTATION.repeat(indentationLevel),
+                INDENTATION.repeat(indentationLevel + 1),
+                INDENTATION.repeat(indentationLevel + 2),
+                ensureCapacityName(),
+                ownedName(),
+                name,
+                sizeName()));
+    }
+
+    String ensureCapacityName() {
+        return "ensure" + capitalize(name) + "Capacity";
+    }
+
+    private void generateAdd(Writer writer, String builderName, int indentationLevel, String methodName, String mark)
+            throws IOException {
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        String paramName = CollectionTypeHandler.singular(name);
+        writer.write(INDENTATION.repeat(indentationLevel) + "public " + builderName + " " + methodName + "(final "
+                + element.primitiveType() + " " + paramName + "){\n");
+        writer.write(body + ensureCapacityName() + "(this." + sizeName() + " + 1);\n");
+        writer.write(body + "this." + name + "[this." + sizeName() + "++] = " + paramName + ";\n");
+        writer.write(mark);
+        writer.write(body + "return self();\n");
+        writer.write(INDENTATION.repeat(indentationLevel) + "}\n\n");
+    }
+}
@@ -3,7 +3,10 @@ package khaled.builder.processor;
 import io.helidon.common.types.TypeName;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static khaled.builder.processor.GenerationInfo.PROTOTYPE;
 import static khaled.builder.processor.GenerationInfo.INDENTATION;
@@ -22,32 +25,96 @@ public final class PrototypeGenerator implements Generator{
     private final ImplementationGenerator implGenerator;
 
     private final String builderName;
+    private final String implName;
     private final Set<TypeHandler> typeHandlers;
+    private final Set<String> enums;
+    private final GenerationOptions options;
+    private final OffHeapLayout offHeapLayout;
+    private final BatchContainer batchContainer;
+    private final SortKeys sortKeys;
+    private final MutableFlyweight mutableFlyweight;
+    private final BuilderMerge builderMerge;
 
     public PrototypeGenerator(GenerationInfo generationInfo, Writer writer) {
         this.prototypeName = generationInfo.prototypeName();
         this.packageName = generationInfo.packageName();
         this.superTypeName = generationInfo.superTypeName();
         this.builderName = generationInfo.builderName();
+        this.implName = generationInfo.implName();
         this.writer = writer;
         this.builderGenerator = new BuilderGenerator(generationInfo, writer);
         this.implGenerator = new ImplementationGenerator(generationInfo, writer);
         this.typeHandlers = generationInfo.typeHandlers();
+        this.enums = generationInfo.enums().keySet();
+        this.options = generationInfo.options();
+        this.offHeapLayout = OffHeapLayout.create(generationInfo);
+        this.batchContainer = BatchContainer.create(generationInfo);
+        this.sortKeys = SortKeys.create(generationInfo);
+        this.mutableFlyweight = MutableFlyweight.create(generationInfo);
+        this.builderMerge = BuilderMerge.create(generationInfo);
     }
 
     @Override
     public void generate() throws IOException {
         this.writer.write("package " + packageName + ";\n\n");
 
-        this.writer.write("import " + PROTOTYPE + ";\n");
+        for (String type : imports()) {
+            this.writer.write("import " + type + ";\n");
+        }
+        this.writer.write("\n\n");
 
-        this.writer.write("import java.util.Objects;\n\n\n");
+        String comparable = options.comparable() ? ", Comparable<" + prototypeName + ">" : "";
+        this.writer.write("public interface " + prototypeName + " extends " + superTypeName + comparable + "{\n\n\n");
 
-        importCollectionAndOptional();
+        generateBuilderMethod();
 
-        this.writer.write("public interface " + prototypeName + " extends " + superTypeName + "{\n\n\n");
+        generateAppendToMethod();
 
-        generateBuilderMethod();
+        if (options.binary()) {
+            BinaryCodec.generateDeclarations(writer, prototypeName, implName);
+        }
+
+        if (options.json()) {
+            JsonCodec.generateDeclarations(writer, prototypeName, implName);
+        }
+
+        if (options.comparable()) {
+            sortKeys.generateDeclarations(writer);
+        }
+
+        if (options.hash64()) {
+            StableHash.generateDeclarations(writer);
+        }
+
+        generateFastAccessors();
+
+        if (hasEnumSets()) {
+            generateEnumSetCopies();
+        }
+
+        generateMapCopies();
+
+        generateWithers();
+
+        if (options.merge()) {
+            builderMerge.generateCollectors(writer);
+        }
+
+        if (options.intern()) {
+            generateInternMetrics();
+        }
+
+        if (options.offHeap()) {
+            offHeapLayout.generate(writer);
+        }
+
+        if (options.batch()) {
+            batchContainer.generate(writer);
+        }
+
+        if (options.mutable()) {
+            mutableFlyweight.generate(writer);
+        }
 
         builderGenerator.generate();
         implGenerator.generate();
@@ -66,49 +133,330 @@ public final class PrototypeGenerator implements Generator{
                 + "}\n";
         writer.write(builderMethodBody);
 
+        String toBuilderMethod = "\n" + INDENTATION + "default " + builderName + " toBuilder(){\n"
+                + INDENTATION.repeat(2)
+                + "return builder().from(this);\n"
+                + INDENTATION
+                + "}\n";
+        writer.write(toBuilderMethod);
+
+    }
+
+    private void generateAppendToMethod() throws IOException {
+        writer.write("\n" + INDENTATION + "StringBuilder appendTo(StringBuilder builder);\n\n");
+    }
+
+    private void generateWithers() throws IOException {
+        for (var typeHandler : typeHandlers) {
+            writer.write(INDENTATION + prototypeName + " " + typeHandler.witherName() + "("
+                    + typeHandler.witherParameterType() + " " + typeHandler.name() + ");\n\n");
+        }
+    }
+
+    private void generateInternMetrics() throws IOException {
+        String metricsFormat = """
+                               %1$s// canonical instances currently held by the intern table
+                               %1$sstatic int internedCount(){
+                               %2$sreturn %3$s.internedCount();
+                               %1$s}
+
+                               %1$s// canonical instances reclaimed by the garbage collector since startup
+                               %1$sstatic long internEvictionCount(){
+                               %2$sreturn %3$s.internEvictionCount();
+                               %1$s}
+
+                               """;
+        writer.write(metricsFormat.formatted(INDENTATION, INDENTATION.repeat(2), implName));
+    }
+
+    private void generateFastAccessors() throws IOException {
+        for (var typeHandler : typeHandlers) {
+            if (typeHandler instanceof PrimitiveListTypeHandler || typeHandler instanceof OptionalTypeHandler) {
+                typeHandler.generateAccessors(writer, 1, this);
+            } else if (typeHandler instanceof MapTypeHandler m && m.storage() == MapTypeHandler.Storage.PRIMITIVE) {
+                typeHandler.generateAccessors(writer, 1, this);
+            }
+        }
+    }
+
+    // every type the generated file refers to, sorted and written once
+    private Set<String> imports() {
+        Set<String> imports = new TreeSet<>();
+        imports.add(PROTOTYPE);
+        imports.add("java.util.Objects");
+        importCollectionAndOptional(imports);
+        if (options.builderPool()) {
+            Collections.addAll(imports,
+                    "java.util.concurrent.atomic.AtomicReferenceArray",
+                    "java.util.function.Consumer");
+        }
+        if (options.concurrent()) {
+            Collections.addAll(imports,
+                    "java.util.ArrayList",
+                    "java.util.List",
+                    "java.util.concurrent.ConcurrentLinkedQueue",
+                    "java.util.concurrent.atomic.AtomicReferenceArray");
+        }
+        if (options.intern()) {
+            Collections.addAll(imports,
+                    "java.lang.ref.WeakReference",
+                    "java.util.WeakHashMap",
+                    "java.util.concurrent.locks.ReentrantLock");
+        }
+        if (options.binary()) {
+            importBinary(imports);
+        }
+        if (options.json()) {
+            importJson(imports);
+        }
+        if (options.offHeap()) {
+            Collections.addAll(imports,
+                    "java.lang.foreign.MemoryLayout",
+                    "java.lang.foreign.MemorySegment",
+                    "java.lang.foreign.StructLayout",
+                    "java.lang.foreign.ValueLayout",
+                    "java.nio.ByteOrder");
+        }
+        if (options.batch()) {
+            Collections.addAll(imports,
+                    "java.util.Arrays",
+                    "java.util.Iterator",
+                    "java.util.Spliterator",
+                    "java.util.Spliterators",
+                    "java.util.function.Consumer",
+                    "java.util.stream.DoubleStream",
+                    "java.util.stream.IntStream",
+                    "java.util.stream.LongStream",
+                    "java.util.stream.Stream",
+                    "java.util.stream.StreamSupport");
+        }
+        if (options.comparable()) {
+            imports.add("java.util.Comparator");
+        }
+        if (options.merge()) {
+            imports.add("java.util.stream.Collector");
+        }
+        if (options.hash64()) {
+            Collections.addAll(imports,
+                    "java.lang.invoke.MethodHandles",
+                    "java.lang.invoke.VarHandle",
+                    "java.nio.ByteOrder",
+                    "java.util.Map");
+        }
+        if (hasLazyDefaults()) {
+            Collections.addAll(imports,
+                    "java.lang.invoke.MethodHandles",
+                    "java.lang.invoke.VarHandle");
+        }
+        return imports;
     }
 
-    private void importCollectionAndOptional() throws IOException {
+    private void importCollectionAndOptional(Set<String> imports) {
+        boolean importCollection = typeHandlers.stream()
+                .anyMatch(TypeHandler::collectionBased);
+        if(importCollection){
+            imports.add("java.util.Collection");
+        }
+        // the builder accessors return unmodifiable views of its collections and maps
+        if (importCollection || !mapTypeHandlers().isEmpty()) {
+            imports.add("java.util.Collections");
+        }
         //import List
         boolean importList = typeHandlers.stream()
                 .map(TypeHandler::type)
                 .anyMatch(TypeName::isList);
                 
         if(importList){
-            importLists();
+            importLists(imports);
+        } else if (hasEnumSets()) {
+            // enum set defaults are copied from List.of(...)
+            imports.add("java.util.List");
+        }
+        if (hasEnumSets()) {
+            imports.add("java.util.EnumSet");
         }
+        imports.addAll(enums);
         boolean importSet = typeHandlers.stream()
                 .map(TypeHandler::type)
                 .anyMatch(TypeName::isSet);
         if(importSet){
-            importSets();
+            importSets(imports);
+        }
+        var primitiveElements = typeHandlers.stream()
+                .filter(PrimitiveListTypeHandler.class::isInstance)
+                .map(PrimitiveListTypeHandler.class::cast)
+                .map(PrimitiveListTypeHandler::element)
+                .distinct()
+                .sorted()
+                .toList();
+        if (!primitiveElements.isEmpty()) {
+            importPrimitiveLists(imports, primitiveElements);
+        }
+        var maps = mapTypeHandlers();
+        if (!maps.isEmpty()) {
+            importMaps(imports, maps);
         }
         boolean importOptional = typeHandlers.stream()
                 .map(TypeHandler::type)
                 .anyMatch(TypeName::isOptional);
         if(importOptional){
-            importOptional();
+            imports.add("java.util.Optional");
+        }
+    }
+
+    private boolean hasLazyDefaults() {
+        return typeHandlers.stream()
+                .anyMatch(it -> it instanceof SimpleTypeHandler s && s.lazyDefault());
+    }
+
+    private boolean hasEnumSets() {
+        return typeHandlers.stream()
+                .anyMatch(it -> it instanceof CollectionTypeHandler c
+                        && c.collectionType() == CollectionTypeHandler.Type.ENUM_SET);
+    }
+
+    private void generateEnumSetCopies() throws IOException {
+        String enumSetCopiesFormat = """
+                                     %1$sprivate static <E extends Enum<E>> Set<E> enumSetCopy(final Class<E> type, final Collection<? extends E> values){
+                                     %2$sreturn Collections.unmodifiableSet(mutableEnumSet(type, values));
+                                     %1$s}
+
+                                     %1$sprivate static <E extends Enum<E>> Set<E> mutableEnumSet(final Class<E> type, final Collection<? extends E> values){
+                                     %2$sSet<E> copy = EnumSet.noneOf(type);
+                                     %2$scopy.addAll(values);
+                                     %2$sreturn copy;
+                                     %1$s}
+
+                                     """;
+        writer.write(enumSetCopiesFormat.formatted(INDENTATION, INDENTATION.repeat(2)));
+    }
+
+    private List<MapTypeHandler> mapTypeHandlers() {
+        return typeHandlers.stream()
+                .filter(MapTypeHandler.class::isInstance)
+                .map(MapTypeHandler.class::cast)
+                .toList();
+    }
+
+    // one helper per storage, the builder and the implementation copy maps through them
+    private void generateMapCopies() throws IOException {
+        var maps = mapTypeHandlers();
+        var copies = maps.stream()
+                .map(MapTypeHandler::copyName)
+                .distinct()
+                .toList();
+        for (String copy : copies) {
+            MapTypeHandler map = maps.stream()
+                    .filter(it -> copy.equals(it.copyName()))
+                    .findFirst()
+                    .orElseThrow();
+            String mapCopyFormat = switch (map.storage()) {
+                case OBJECT ->
+                    """
+                    %1$sprivate static <K, V> Map<K, V> %3$s(final Map<? extends K, ? extends V> map){
+                    %2$sreturn %4$s.%5$s.copyOf(map);
+                    %1$s}
+
+                    """;
+                case ENUM_MAP ->
+                    """
+                    %1$sprivate static <K extends Enum<K>, V> Map<K, V> %3$s(final Class<K> type, final Map<? extends K, ? extends V> map){
+                    %2$sEnumMap<K, V> copy = new EnumMap<>(type);
+                    %2$smap.forEach((key, value) -> copy.put(Objects.requireNonNull(key), Objects.requireNonNull(value)));
+                    %2$sreturn Collections.unmodifiableMap(copy);
+                    %1$s}
+
+                    """;
+                case PRIMITIVE ->
+                    """
+                    %1$sprivate static Map<%6$s, %7$s> %3$s(final Map<? extends %6$s, ? extends %7$s> map){
+                    %2$sreturn %4$s.%5$s.copyOf(map);
+                    %1$s}
+
+                    """;
+            };
+            writer.write(mapCopyFormat.formatted(INDENTATION, INDENTATION.repeat(2), copy, implName, map.tableName(),
+                    map.keyType().className(), map.valueType().className()));
         }
-        
-        writer.write("\n\n");
+    }
+
+    private static void importMaps(Set<String> imports, List<MapTypeHandler> maps) {
+        Collections.addAll(imports,
+                "java.util.Map",
+                "java.util.LinkedHashMap");
+        if (maps.stream().anyMatch(it -> it.storage() != MapTypeHandler.Storage.ENUM_MAP)) {
+            Collections.addAll(imports,
+                    "java.util.AbstractMap",
+                    "java.util.AbstractSet",
+                    "java.util.Iterator",
+                    "java.util.NoSuchElementException",
+                    "java.util.Set",
+                    "java.util.function.BiConsumer");
+        }
+        if (maps.stream().anyMatch(it -> it.storage() == MapTypeHandler.Storage.ENUM_MAP)) {
+            imports.add("java.util.EnumMap");
+        }
+    }
 
+    // the decoder collects packed properties before handing them to the builder
+    private static void importBinary(Set<String> imports) {
+        Collections.addAll(imports,
+                "java.io.DataOutput",
+                "java.io.IOException",
+                "java.nio.ByteBuffer",
+                "java.nio.ByteOrder",
+                "java.nio.charset.StandardCharsets",
+                "java.util.ArrayList",
+                "java.util.EnumSet",
+                "java.util.LinkedHashMap",
+                "java.util.LinkedHashSet",
+                "java.util.List",
+                "java.util.Map",
+                "java.util.Set");
     }
 
-    private void importLists() throws IOException {
-        writer.write("""
-                     import java.util.List;
-                     import java.util.ArrayList;                     
-                     """);
+    private static void importJson(Set<String> imports) {
+        Collections.addAll(imports,
+                "java.io.BufferedWriter",
+                "java.io.ByteArrayInputStream",
+                "java.io.IOException",
+                "java.io.InputStreamReader",
+                "java.io.OutputStream",
+                "java.io.OutputStreamWriter",
+                "java.io.Reader",
+                "java.io.UncheckedIOException",
+                "java.io.Writer",
+                "java.nio.charset.StandardCharsets",
+                "java.util.ArrayList",
+                "java.util.Arrays",
+                "java.util.EnumSet",
+                "java.util.LinkedHashMap",
+                "java.util.LinkedHashSet",
+                "java.util.List",
+                "java.util.Map",
+                "java.util.Set",
+                "java.util.function.Function");
     }
-    private void importSets() throws IOException {
-        writer.write("""
-                     import java.util.Set;
-                     import java.util.LinkedHashSet;                     
-                     """);
+
+    private static void importLists(Set<String> imports) {
+        Collections.addAll(imports,
+                "java.util.List",
+                "java.util.ArrayList");
+    }
+
+    private static void importSets(Set<String> imports) {
+        Collections.addAll(imports,
+                "java.util.Set",
+                "java.util.LinkedHashSet");
     }
-    private void importOptional() throws IOException {
-        writer.write("""
-                     import java.util.Optional;\n
-                     """);
+
+    private static void importPrimitiveLists(Set<String> imports, List<PrimitiveListTypeHandler.Element> elements) {
+        Collections.addAll(imports,
+                "java.util.AbstractList",
+                "java.util.Arrays",
+                "java.util.RandomAccess");
+        for (var element : elements) {
+            imports.add("java.util.stream." + element.streamType());
+        }
     }
 }
@@ -0,0 +1,137 @@
+package khaled.builder.processor;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * builder bookkeeping of the set properties: one bit per property packed into {@code long} words, the required
+ * properties (simple properties without default value) first, in declaration order, so the bit of a required
+ * property is its index in {@code REQUIRED_PROPERTIES}, then the simple ones with a default value and the collections,
+ * primitive lists and maps with default elements. build() checks the required bits, merge() takes the properties
+ * whose bit is set.
+ *
+ * @author khaled
+ */
+record SetMask(List<String> properties, int requiredCount) {
+
+    static final String WORD_PREFIX = "setMask";
+
+    static final String REQUIRED_PREFIX = "REQUIRED_MASK";
+
+    static final String PROPERTIES_NAME = "REQUIRED_PROPERTIES";
+
+    static SetMask create(Set<TypeHandler> typeHandlers) {
+        List<String> required = typeHandlers.stream()
+                .filter(it -> it instanceof SimpleTypeHandler && !it.hasDefaultValue())
+                .map(TypeHandler::name)
+                .toList();
+        List<String> defaulted = typeHandlers.stream()
+                .filter(it -> it instanceof SimpleTypeHandler ? it.hasDefaultValue() : defaultElements(it))
+                .map(TypeHandler::name)
+                .toList();
+        return new SetMask(Stream.concat(required.stream(), defaulted.stream()).toList(), required.size());
+    }
+
+    // a collection, primitive list or map whose builder starts with elements
+    static boolean defaultElements(TypeHandler typeHandler) {
+        List<?> defaultValues = switch (typeHandler) {
+            case CollectionTypeHandler c ->
+                c.defaultValues();
+            case PrimitiveListTypeHandler p ->
+                p.defaultValues();
+            case MapTypeHandler m ->
+                m.defaultValues();
+            default ->
+                null;
+        };
+        return defaultValues != null && !defaultValues.isEmpty();
+    }
+
+    boolean isEmpty() {
+        return properties.isEmpty();
+    }
+
+    boolean hasRequired() {
+        return requiredCount > 0;
+    }
+
+    List<String> requiredProperties() {
+        return properties.subList(0, requiredCount);
+    }
+
+    int wordCount() {
+        return (properties.size() + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    // the words holding a required bit, the first ones
+    int requiredWordCount() {
+        return (requiredCount + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    String wordName(int word) {
+        return wordCount() == 1 ? WORD_PREFIX : WORD_PREFIX + word;
+    }
+
+    String requiredName(int word) {
+        return wordCount() == 1 ? REQUIRED_PREFIX : REQUIRED_PREFIX + word;
+    }
+
+    // every bit of the word that belongs to a required property
+    String requiredLiteral(int word) {
+        return hexLiteral(bits(word, requiredCount));
+    }
+
+    // every bit of the word that belongs to a property
+    String allLiteral(int word) {
+        return hexLiteral(bits(word, properties.size()));
+    }
+
+    // expression true when a required property of instance is not set, the required masks are read from owner
+    String incompleteExpression(String instance, String owner) {
+        return IntStream.range(0, requiredWordCount())
+                .mapToObj(word -> {
+                    String value = instance + wordName(word);
+                    String required = owner + requiredName(word);
+                    // no other property shares the word
+                    return bits(word, requiredCount) == bits(word, properties.size())
+                            ? value + " != " + required
+                            : "(" + value + " & " + required + ") != " + required;
+                })
+                .collect(Collectors.joining(" || "));
+    }
+
+    boolean required(String property) {
+        int index = properties.indexOf(property);
+        return index >= 0 && index < requiredCount;
+    }
+
+    boolean tracked(String property) {
+        return properties.contains(property);
+    }
+
+    // statement recording that the property was set
+    String markStatement(String property) {
+        int index = properties.indexOf(property);
+        return "this." + wordName(index / Long.SIZE) + " |= " + hexLiteral(1L << index) + ";";
+    }
+
+    // expression true when the property was set on instance
+    String isSetExpression(String instance, String property) {
+        int index = properties.indexOf(property);
+        return "(" + instance + "." + wordName(index / Long.SIZE) + " & " + hexLiteral(1L << index) + ") != 0";
+    }
+
+    // the low count bits of the properties, restricted to the word
+    private static long bits(int word, int count) {
+        int bits = Math.max(0, Math.min(Long.SIZE, count - word * Long.SIZE));
+        return bits == Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+
+    private static String hexLiteral(long value) {
+        return "0x" + Long.toHexString(value).toUpperCase(Locale.ROOT) + "L";
+    }
+}
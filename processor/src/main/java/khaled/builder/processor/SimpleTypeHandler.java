@@ -3,54 +3,46 @@ package khaled.builder.processor;
 import io.helidon.common.types.TypeName;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
 import static khaled.builder.processor.GenerationInfo.INDENTATION;
-import static khaled.builder.processor.GenerationInfo.CHECKER_SUFFIX;
 
 /**
  *
  * @author khaled
  */
-public record SimpleTypeHandler(String name, TypeName type, Object defaultValue) implements TypeHandler {
+public record SimpleTypeHandler(String name, TypeName type, Object defaultValue, List<String> enumConstants,
+        String defaultMethod) implements TypeHandler {
 
-    private static final String CHECKER_FORMAT = """
-                                                    %1$sprivate boolean %2$s%3$s = false;\n
-                                                    """;
+    public SimpleTypeHandler(String name, TypeName type, Object defaultValue) {
+        this(name, type, defaultValue, List.of());
+    }
 
-    private static final String VALIDATION_STATEMENT = """
-                                                           %1$sif(!%2$s){
-                                                           %3$s throw new IllegalStateException(\"%4$s\");\n
-                                                           %1$s}
-                                                           
-                                                           """;
+    public SimpleTypeHandler(String name, TypeName type, Object defaultValue, List<String> enumConstants) {
+        this(name, type, defaultValue, enumConstants, null);
+    }
 
-    @Override
-    public void generateBuilderChecker(Writer writer, int indentationLevel) throws IOException {
-        if (!hasDefaultValue()) {
-            String declaration = CHECKER_FORMAT.formatted(
-                    INDENTATION.repeat(indentationLevel),
-                    name,
-                    CHECKER_SUFFIX);
-            writer.write(declaration);
-        }
+    boolean enumBased() {
+        return !enumConstants.isEmpty();
     }
 
-    @Override
-    public void generateBuilderValidateStatement(Writer writer, int indentationLevel) throws IOException {
-        if (!hasDefaultValue()) {
-            String checkerName = name + "Checker";
-            String message = "property " + name + " must be initialized before building";
-            String statement = VALIDATION_STATEMENT.formatted(INDENTATION.repeat(indentationLevel),
-                    checkerName,
-                    INDENTATION.repeat(indentationLevel + 1),
-                    message
-            );
-            writer.write(statement);
-        }
-        writer.write("");
+    // @Option.DefaultMethod: the value stays null until read, the default is then computed once per implementation
+    boolean lazyDefault() {
+        return null != defaultMethod;
+    }
+
+    // the implementation method returning the memoized default
+    String defaultMethodName() {
+        return "default" + CollectionTypeHandler.capitalize(name);
+    }
+
+    // the property value held by owner, the default when it is not set
+    String resolved(String value, String implName) {
+        return value + " != null ? " + value + " : " + implName + "." + defaultMethodName() + "()";
     }
 
     @Override
-    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel) throws IOException {
+    public void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException {
         String mutatorDeclarationPrefix = INDENTATION.repeat(indentationLevel) + "public ";
         String builderType = builderName;
         String paramType = type().className();
@@ -74,10 +66,9 @@ public record SimpleTypeHandler(String name, TypeName type, Object defaultValue)
         writer.write(mutatorBody);
 
         // set checker
-        String checkerName = name + "Checker";
-        if (!hasDefaultValue()) {
+        if (setMask.tracked(name)) {
 
-            String setChecker = INDENTATION.repeat(3) + "this." + checkerName + " = true;\n";
+            String setChecker = INDENTATION.repeat(indentationLevel + 1) + setMask.markStatement(name) + "\n";
             writer.write(setChecker);
 
         }
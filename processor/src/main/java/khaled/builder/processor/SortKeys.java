@@ -0,0 +1,221 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * primitive specialized ordering enabled by {@link GenerationOptions#COMPARABLE}: the scalar properties (primitives,
+ * boxed primitives, strings, enums and their optionals, empty first) are the sort keys. the prototype is
+ * {@code Comparable} on its sort keys in declaration order, and {@code Xxx.comparator(SortKey...)} returns one static
+ * comparator per key, or per key order declared with {@link GenerationOptions#SORT_KEYS}, comparing with
+ * {@code Integer.compare}, {@code Double.compare}... on the accessors in straight-line code, nothing is boxed. any
+ * other key order chains the comparators of its keys.
+ *
+ * @author khaled
+ */
+record SortKeys(List<TypeHandler> keys, List<List<TypeHandler>> orders, String prototypeName, String implName) {
+
+    static SortKeys create(GenerationInfo generationInfo) {
+        Set<String> enums = generationInfo.enums().keySet();
+        List<TypeHandler> keys = generationInfo.typeHandlers().stream()
+                .filter(it -> comparable(it, enums))
+                .toList();
+        List<List<TypeHandler>> orders = generationInfo.options()
+                .sortKeys()
+                .stream()
+                .map(order -> order.stream()
+                        .map(name -> key(keys, name, generationInfo.prototypeName()))
+                        .toList())
+                .toList();
+        return new SortKeys(keys, orders, generationInfo.prototypeName(), generationInfo.implName());
+    }
+
+    private static TypeHandler key(List<TypeHandler> keys, String name, String prototypeName) {
+        return keys.stream()
+                .filter(it -> it.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(GenerationOptions.SORT_KEYS + ": " + name
+                        + " is not a sort key of " + prototypeName));
+    }
+
+    private static boolean comparable(TypeHandler typeHandler, Set<String> enums) {
+        TypeName type = switch (typeHandler) {
+            case SimpleTypeHandler s ->
+                s.type();
+            case OptionalTypeHandler o ->
+                o.type().typeArguments().getFirst();
+            default ->
+                null;
+        };
+        if (null == type) {
+            return false;
+        }
+        return switch (type.boxed().className()) {
+            case "Boolean", "Byte", "Short", "Character", "Integer", "Long", "Float", "Double", "String" ->
+                true;
+            default ->
+                enums.contains(type.fqName());
+        };
+    }
+
+    void generateDeclarations(Writer writer) throws IOException {
+        String body = INDENTATION.repeat(2);
+        writer.write(INDENTATION + "// the properties a comparator can sort on\n");
+        writer.write(INDENTATION + "enum SortKey {\n");
+        writer.write(keys.stream()
+                .map(it -> body + constantName(it))
+                .collect(Collectors.joining(",\n", "", "\n")));
+        writer.write(INDENTATION + "}\n\n");
+
+        String comparatorFormat = """
+                                  %1$s// compares the keys in order, comparator(SortKey.AGE, SortKey.NAME) sorts by age then by name
+                                  %1$sstatic Comparator<%3$s> comparator(final SortKey... keys){
+                                  %2$sreturn %4$s.comparator(keys);
+                                  %1$s}
+
+                                  %1$s// the sort keys in declaration order, collections and maps are not compared
+                                  %1$s@Override
+                                  %1$sdefault int compareTo(final %3$s other){
+                                  """;
+        writer.write(comparatorFormat.formatted(INDENTATION, body, prototypeName, implName));
+        if (keys.isEmpty()) {
+            writer.write(body + "return 0;\n");
+        } else {
+            writer.write(body + "int result;\n");
+            for (var key : keys.subList(0, keys.size() - 1)) {
+                writer.write(body + "result = " + compare(key, "", "other.") + ";\n");
+                writer.write(body + "if(result != 0){\n");
+                writer.write(body + INDENTATION + "return result;\n");
+                writer.write(body + "}\n");
+            }
+            writer.write(body + "return " + compare(keys.getLast(), "", "other.") + ";\n");
+        }
+        writer.write(INDENTATION + "}\n\n");
+    }
+
+    void generate(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        String block = INDENTATION.repeat(4);
+        writer.write("\n" + prefix + "// one straight-line comparator per sort key and per declared key order\n");
+        for (var key : keys) {
+            writer.write(prefix + "private static final Comparator<" + prototypeName + "> " + comparatorName(List.of(key))
+                    + " = (left, right) -> " + compare(key, "left.", "right.") + ";\n");
+        }
+        for (var order : orders) {
+            writer.write(prefix + "private static final Comparator<" + prototypeName + "> " + comparatorName(order)
+                    + " = (left, right) -> {\n");
+            writer.write(body + "int result;\n");
+            for (var key : order.subList(0, order.size() - 1)) {
+                writer.write(body + "result = " + compare(key, "left.", "right.") + ";\n");
+                writer.write(body + "if(result != 0){\n");
+                writer.write(block + "return result;\n");
+                writer.write(body + "}\n");
+            }
+            writer.write(body + "return " + compare(order.getLast(), "left.", "right.") + ";\n");
+            writer.write(prefix + "};\n");
+        }
+
+        writer.write("\n" + prefix + "static Comparator<" + prototypeName + "> comparator(final SortKey[] keys){\n");
+        writer.write(body + "for(SortKey key : keys){\n");
+        writer.write(block + "Objects.requireNonNull(key);\n");
+        writer.write(body + "}\n");
+        for (var order : orders) {
+            StringBuilder condition = new StringBuilder("keys.length == " + order.size());
+            for (int i = 0; i < order.size(); i++) {
+                condition.append(" && keys[").append(i).append("] == SortKey.").append(constantName(order.get(i)));
+            }
+            writer.write(body + "if(" + condition + "){\n");
+            writer.write(block + "return " + comparatorName(order) + ";\n");
+            writer.write(body + "}\n");
+        }
+        writer.write(body + "return keys.length == 1 ? byKey(keys[0]) : new KeyComparator(keys);\n");
+        writer.write(prefix + "}\n\n");
+
+        writer.write(prefix + "private static Comparator<" + prototypeName + "> byKey(final SortKey key){\n");
+        writer.write(body + "return switch(key){\n");
+        for (var key : keys) {
+            writer.write(block + "case " + constantName(key) + " -> " + comparatorName(List.of(key)) + ";\n");
+        }
+        if (keys.isEmpty()) {
+            writer.write(block + "default -> throw new IllegalStateException(\"no sort key\");\n");
+        }
+        writer.write(body + "};\n");
+        writer.write(prefix + "}\n");
+
+        String comparatorFormat = """
+
+                                  %1$s// any other key order, the comparators of its keys are resolved once
+                                  %1$sprivate static final class KeyComparator implements Comparator<%3$s>{
+
+                                  %2$sprivate final Comparator<%3$s>[] comparators;
+
+                                  %2$s@SuppressWarnings("unchecked")
+                                  %2$sprivate KeyComparator(final SortKey[] keys){
+                                  %4$sthis.comparators = new Comparator[keys.length];
+                                  %4$sfor(int i = 0; i < keys.length; i++){
+                                  %5$sthis.comparators[i] = byKey(keys[i]);
+                                  %4$s}
+                                  %2$s}
+
+                                  %2$s@Override
+                                  %2$spublic int compare(final %3$s left, final %3$s right){
+                                  %4$sfor(Comparator<%3$s> comparator : comparators){
+                                  %5$sint result = comparator.compare(left, right);
+                                  %5$sif(result != 0){
+                                  %6$sreturn result;
+                                  %5$s}
+                                  %4$s}
+                                  %4$sreturn 0;
+                                  %2$s}
+                                  %1$s}
+
+                                  %1$s// empty optionals first
+                                  %1$sstatic <T extends Comparable<? super T>> int compareNullable(final T left, final T right){
+                                  %2$sif(left == right){
+                                  %4$sreturn 0;
+                                  %2$s}
+                                  %2$sif(left == null || right == null){
+                                  %4$sreturn left == null ? -1 : 1;
+                                  %2$s}
+                                  %2$sreturn left.compareTo(right);
+                                  %1$s}
+                                  """;
+        writer.write(comparatorFormat.formatted(prefix, body, prototypeName, block, INDENTATION.repeat(5),
+                INDENTATION.repeat(6)));
+    }
+
+    private String compare(TypeHandler key, String left, String right) {
+        return switch (key) {
+            case OptionalTypeHandler o ->
+                implName + ".compareNullable(" + left + o.orNullName() + "(), " + right + o.orNullName() + "())";
+            default -> {
+                String name = key.name() + "()";
+                String type = key.type().boxed().className();
+                yield switch (type) {
+                    case "Boolean", "Byte", "Short", "Character", "Integer", "Long", "Float", "Double" ->
+                        type + ".compare(" + left + name + ", " + right + name + ")";
+                    default ->
+                        left + name + ".compareTo(" + right + name + ")";
+                };
+            }
+        };
+    }
+
+    // BY_AGE, BY_AGE_THEN_NAME...
+    private static String comparatorName(List<TypeHandler> order) {
+        return order.stream()
+                .map(SortKeys::constantName)
+                .collect(Collectors.joining("_THEN_", "BY_", ""));
+    }
+
+    private static String constantName(TypeHandler typeHandler) {
+        return typeHandler.name().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,303 @@
+package khaled.builder.processor;
+
+import io.helidon.common.types.TypeName;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import static khaled.builder.processor.GenerationInfo.INDENTATION;
+
+/**
+ * stable 64-bit hash enabled by {@link GenerationOptions#HASH64}: {@code hashInto(Hasher)} streams every property into
+ * {@code Xxx.Hasher}, a seedable XXH64 over the little endian encoding of the values (strings as their length and UTF-16
+ * chars, enums by name, optionals by a presence byte, collections by their size and elements). sets and maps are
+ * unordered, the hashes of their elements are summed. the result only depends on the values, never on the JVM or the
+ * iteration order.
+ *
+ * @author khaled
+ */
+record StableHash(List<TypeHandler> typeHandlers, Set<String> enums, Function<TypeHandler, String> fieldValue) {
+
+    static StableHash create(GenerationInfo generationInfo, Function<TypeHandler, String> fieldValue) {
+        return new StableHash(List.copyOf(generationInfo.typeHandlers()), generationInfo.enums().keySet(), fieldValue);
+    }
+
+    static void generateDeclarations(Writer writer) throws IOException {
+        String declarationsFormat = """
+                                    %1$s// streams every property into hasher, equal instances stream the same values
+                                    %1$svoid hashInto(Hasher hasher);
+
+                                    %1$sdefault long hash64(){
+                                    %2$sreturn hash64(0);
+                                    %1$s}
+
+                                    %1$sdefault long hash64(final long seed){
+                                    %2$sHasher hasher = new Hasher(seed);
+                                    %2$shashInto(hasher);
+                                    %2$sreturn hasher.hash();
+                                    %1$s}
+
+                                    %1$s// streaming XXH64, hash() can be called at any point and the hasher reused after reset()
+                                    %1$sfinal class Hasher{
+
+                                    %2$sprivate static final long PRIME_1 = 0x9E3779B185EBCA87L;
+                                    %2$sprivate static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+                                    %2$sprivate static final long PRIME_3 = 0x165667B19E3779F9L;
+                                    %2$sprivate static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+                                    %2$sprivate static final long PRIME_5 = 0x27D4EB2F165667C5L;
+                                    %2$sprivate static final int STRIPE = 32;
+                                    %2$sprivate static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+                                    %2$sprivate static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+                                    %2$sprivate static final VarHandle SHORTS = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+                                    %2$sprivate final long seed;
+                                    %2$sprivate final byte[] buffer = new byte[STRIPE];
+                                    %2$sprivate int buffered;
+                                    %2$sprivate long length;
+                                    %2$sprivate long v1;
+                                    %2$sprivate long v2;
+                                    %2$sprivate long v3;
+                                    %2$sprivate long v4;
+
+                                    %2$spublic Hasher(){
+                                    %3$sthis(0);
+                                    %2$s}
+
+                                    %2$spublic Hasher(final long seed){
+                                    %3$sthis.seed = seed;
+                                    %3$sreset();
+                                    %2$s}
+
+                                    %2$spublic long seed(){
+                                    %3$sreturn seed;
+                                    %2$s}
+
+                                    %2$spublic Hasher reset(){
+                                    %3$sv1 = seed + PRIME_1 + PRIME_2;
+                                    %3$sv2 = seed + PRIME_2;
+                                    %3$sv3 = seed;
+                                    %3$sv4 = seed - PRIME_1;
+                                    %3$sbuffered = 0;
+                                    %3$slength = 0;
+                                    %3$sreturn this;
+                                    %2$s}
+
+                                    %2$spublic Hasher putBoolean(final boolean value){
+                                    %3$sreturn putByte(value ? (byte) 1 : (byte) 0);
+                                    %2$s}
+
+                                    %2$spublic Hasher putByte(final byte value){
+                                    %3$sbuffer[buffered] = value;
+                                    %3$sreturn advance(1);
+                                    %2$s}
+
+                                    %2$spublic Hasher putShort(final short value){
+                                    %3$sif(buffered > STRIPE - 2){
+                                    %4$sreturn putByte((byte) value).putByte((byte) (value >>> 8));
+                                    %3$s}
+                                    %3$sSHORTS.set(buffer, buffered, value);
+                                    %3$sreturn advance(2);
+                                    %2$s}
+
+                                    %2$spublic Hasher putChar(final char value){
+                                    %3$sreturn putShort((short) value);
+                                    %2$s}
+
+                                    %2$spublic Hasher putInt(final int value){
+                                    %3$sif(buffered > STRIPE - 4){
+                                    %4$sreturn putShort((short) value).putShort((short) (value >>> 16));
+                                    %3$s}
+                                    %3$sINTS.set(buffer, buffered, value);
+                                    %3$sreturn advance(4);
+                                    %2$s}
+
+                                    %2$spublic Hasher putLong(final long value){
+                                    %3$sif(buffered > STRIPE - 8){
+                                    %4$sreturn putInt((int) value).putInt((int) (value >>> 32));
+                                    %3$s}
+                                    %3$sLONGS.set(buffer, buffered, value);
+                                    %3$sreturn advance(8);
+                                    %2$s}
+
+                                    %2$s// the canonical bits, consistent with Float.equals
+                                    %2$spublic Hasher putFloat(final float value){
+                                    %3$sreturn putInt(Float.floatToIntBits(value));
+                                    %2$s}
+
+                                    %2$spublic Hasher putDouble(final double value){
+                                    %3$sreturn putLong(Double.doubleToLongBits(value));
+                                    %2$s}
+
+                                    %2$s// the length then the chars, nothing is encoded
+                                    %2$spublic Hasher putString(final CharSequence value){
+                                    %3$sint length = value.length();
+                                    %3$sputInt(length);
+                                    %3$sfor(int i = 0; i < length; i++){
+                                    %4$sputChar(value.charAt(i));
+                                    %3$s}
+                                    %3$sreturn this;
+                                    %2$s}
+
+                                    %2$spublic Hasher putBytes(final byte[] bytes){
+                                    %3$sint offset = 0;
+                                    %3$swhile(offset < bytes.length){
+                                    %4$sint count = Math.min(STRIPE - buffered, bytes.length - offset);
+                                    %4$sSystem.arraycopy(bytes, offset, buffer, buffered, count);
+                                    %4$soffset += count;
+                                    %4$sadvance(count);
+                                    %3$s}
+                                    %3$sreturn this;
+                                    %2$s}
+
+                                    %2$spublic long hash(){
+                                    %3$slong hash;
+                                    %3$sif(length >= STRIPE){
+                                    %4$shash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                                    %4$shash = merge(hash, v1);
+                                    %4$shash = merge(hash, v2);
+                                    %4$shash = merge(hash, v3);
+                                    %4$shash = merge(hash, v4);
+                                    %3$s} else {
+                                    %4$shash = seed + PRIME_5;
+                                    %3$s}
+                                    %3$shash += length;
+                                    %3$sint index = 0;
+                                    %3$sfor(; index + 8 <= buffered; index += 8){
+                                    %4$shash ^= round(0, (long) LONGS.get(buffer, index));
+                                    %4$shash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+                                    %3$s}
+                                    %3$sif(index + 4 <= buffered){
+                                    %4$shash ^= ((int) INTS.get(buffer, index) & 0xFFFFFFFFL) * PRIME_1;
+                                    %4$shash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+                                    %4$sindex += 4;
+                                    %3$s}
+                                    %3$sfor(; index < buffered; index++){
+                                    %4$shash ^= (buffer[index] & 0xFFL) * PRIME_5;
+                                    %4$shash = Long.rotateLeft(hash, 11) * PRIME_1;
+                                    %3$s}
+                                    %3$shash ^= hash >>> 33;
+                                    %3$shash *= PRIME_2;
+                                    %3$shash ^= hash >>> 29;
+                                    %3$shash *= PRIME_3;
+                                    %3$sreturn hash ^ (hash >>> 32);
+                                    %2$s}
+
+                                    %2$sprivate Hasher advance(final int count){
+                                    %3$sbuffered += count;
+                                    %3$slength += count;
+                                    %3$sif(buffered == STRIPE){
+                                    %4$sv1 = round(v1, (long) LONGS.get(buffer, 0));
+                                    %4$sv2 = round(v2, (long) LONGS.get(buffer, 8));
+                                    %4$sv3 = round(v3, (long) LONGS.get(buffer, 16));
+                                    %4$sv4 = round(v4, (long) LONGS.get(buffer, 24));
+                                    %4$sbuffered = 0;
+                                    %3$s}
+                                    %3$sreturn this;
+                                    %2$s}
+
+                                    %2$sprivate static long round(final long accumulator, final long input){
+                                    %3$sreturn Long.rotateLeft(accumulator + input * PRIME_2, 31) * PRIME_1;
+                                    %2$s}
+
+                                    %2$sprivate static long merge(final long hash, final long accumulator){
+                                    %3$sreturn (hash ^ round(0, accumulator)) * PRIME_1 + PRIME_4;
+                                    %2$s}
+                                    %1$s}
+
+                                    """;
+        writer.write(declarationsFormat.formatted(INDENTATION, INDENTATION.repeat(2), INDENTATION.repeat(3),
+                INDENTATION.repeat(4)));
+    }
+
+    void generate(Writer writer) throws IOException {
+        String prefix = INDENTATION.repeat(2);
+        String body = INDENTATION.repeat(3);
+        writer.write(prefix + "@Override\n");
+        writer.write(prefix + "public void hashInto(final Hasher hasher){\n");
+        if (typeHandlers.stream().anyMatch(StableHash::unordered)) {
+            // sets and maps are unordered, the hashes of their elements are summed
+            writer.write(body + "Hasher element = new Hasher(hasher.seed());\n");
+        }
+        for (var typeHandler : typeHandlers) {
+            String value = fieldValue.apply(typeHandler);
+            switch (typeHandler) {
+                case SimpleTypeHandler s ->
+                    writer.write(body + "hasher." + put(s.type(), value) + ";\n");
+                case OptionalTypeHandler o -> {
+                    writer.write(body + "if(" + value + " == null){\n");
+                    writer.write(body + INDENTATION + "hasher.putBoolean(false);\n");
+                    writer.write(body + "} else {\n");
+                    writer.write(body + INDENTATION + "hasher.putBoolean(true)."
+                            + put(o.type().typeArguments().getFirst(), value) + ";\n");
+                    writer.write(body + "}\n");
+                }
+                case PrimitiveListTypeHandler p -> {
+                    String element = p.element().primitiveType();
+                    writer.write(body + "hasher.putInt(" + value + ".length);\n");
+                    writer.write(body + "for(" + element + " value : " + value + "){\n");
+                    writer.write(body + INDENTATION + "hasher.put" + CollectionTypeHandler.capitalize(element)
+                            + "(value);\n");
+                    writer.write(body + "}\n");
+                }
+                case CollectionTypeHandler c when !unordered(c) -> {
+                    TypeName element = c.type().typeArguments().getFirst();
+                    writer.write(body + "hasher.putInt(" + value + ".size());\n");
+                    writer.write(body + "for(" + element.className() + " value : " + value + "){\n");
+                    writer.write(body + INDENTATION + "hasher." + put(element, "value") + ";\n");
+                    writer.write(body + "}\n");
+                }
+                case CollectionTypeHandler c -> {
+                    TypeName element = c.type().typeArguments().getFirst();
+                    String sum = c.name() + "Hash";
+                    writer.write(body + "long " + sum + " = 0;\n");
+                    writer.write(body + "for(" + element.className() + " value : " + value + "){\n");
+                    writer.write(body + INDENTATION + sum + " += element.reset()." + put(element, "value")
+                            + ".hash();\n");
+                    writer.write(body + "}\n");
+                    writer.write(body + "hasher.putInt(" + value + ".size()).putLong(" + sum + ");\n");
+                }
+                case MapTypeHandler m -> {
+                    String sum = m.name() + "Hash";
+                    writer.write(body + "long " + sum + " = 0;\n");
+                    writer.write(body + "for(Map.Entry<" + m.keyType().className() + ", " + m.valueType().className()
+                            + "> entry : " + value + ".entrySet()){\n");
+                    writer.write(body + INDENTATION + sum + " += element.reset()." + put(m.keyType(), "entry.getKey()")
+                            + "." + put(m.valueType(), "entry.getValue()") + ".hash();\n");
+                    writer.write(body + "}\n");
+                    writer.write(body + "hasher.putInt(" + value + ".size()).putLong(" + sum + ");\n");
+                }
+            }
+        }
+        writer.write(prefix + "}\n\n");
+    }
+
+    private static boolean unordered(TypeHandler typeHandler) {
+        return switch (typeHandler) {
+            case CollectionTypeHandler c ->
+                c.collectionType() != CollectionTypeHandler.Type.LIST;
+            case MapTypeHandler m ->
+                true;
+            default ->
+                false;
+        };
+    }
+
+    private String put(TypeName type, String value) {
+        return switch (type.boxed().className()) {
+            case "Boolean", "Byte", "Short", "Long", "Float", "Double" ->
+                "put" + type.boxed().className() + "(" + value + ")";
+            case "Integer" ->
+                "putInt(" + value + ")";
+            case "Character" ->
+                "putChar(" + value + ")";
+            case "String" ->
+                "putString(" + value + ")";
+            // enums by name, reordering the constants does not change the hashes
+            default ->
+                enums.contains(type.fqName())
+                ? "putString(" + value + ".name())"
+                : "putInt(" + value + ".hashCode())";
+        };
+    }
+}
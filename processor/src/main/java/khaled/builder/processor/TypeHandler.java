@@ -6,10 +6,14 @@ import io.helidon.common.types.TypedElementInfo;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import static khaled.builder.processor.GenerationInfo.INDENTATION;
+import static khaled.builder.processor.CollectionTypeHandler.Type.ENUM_SET;
 import static khaled.builder.processor.CollectionTypeHandler.Type.LIST;
 import static khaled.builder.processor.CollectionTypeHandler.Type.SET;
 
@@ -18,7 +22,7 @@ import static khaled.builder.processor.CollectionTypeHandler.Type.SET;
  * @author khaled
  */
 public sealed interface TypeHandler permits SimpleTypeHandler,
-        CollectionTypeHandler, OptionalTypeHandler {
+        CollectionTypeHandler, PrimitiveListTypeHandler, OptionalTypeHandler, MapTypeHandler {
 
     static final String PROPERTY_FORMAT = "%1$sprivate %2$s%3$s %4$s%5$s";
     static final String NO_INITIALIZATION = ";\n";
@@ -26,6 +30,7 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
 
     static final String NONE = "";
     static final String FINAL = "final ";
+    static final String STATIC_FINAL = "static final ";
 
     static final String OPTION_DEFAULT = "io.helidon.builder.api.Option.Default";
     static final TypeName OPTION_DEFAULT_TYPE = TypeName.create(OPTION_DEFAULT);
@@ -39,56 +44,92 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
     static final String OPTION_DEFAULT_DOUBLE = "io.helidon.builder.api.Option.DefaultDouble";
     static final TypeName OPTION_DEFAULT_DOUBLE_TYPE = TypeName.create(OPTION_DEFAULT_DOUBLE);
 
+    static final String OPTION_DEFAULT_METHOD = "io.helidon.builder.api.Option.DefaultMethod";
+    static final TypeName OPTION_DEFAULT_METHOD_TYPE = TypeName.create(OPTION_DEFAULT_METHOD);
+
     static final String OPTION_SINGULAR = "io.helidon.builder.api.Option.Singular";
     static final TypeName OPTION_SINGULAR_TYPE = TypeName.create(OPTION_SINGULAR);
 
-    public static TypeHandler create(TypedElementInfo tei) {
+    public static TypeHandler create(TypedElementInfo tei, GenerationOptions options, Map<String, List<String>> enums,
+            TypeName blueprint) {
         TypeName type = tei.typeName();
         String name = tei.elementName();
 
         List<?> defaultValues;
 
-        if (collectionBased(type)) {
+        if (type.isMap()) {
+            TypeName keyType = type.typeArguments().get(0);
+            TypeName valueType = type.typeArguments().get(1);
+            List<String> keyConstants = enums.get(keyType.fqName());
+            List<String> valueConstants = enums.get(valueType.fqName());
+            defaultValues = extractMapValues(tei, keyConstants, valueConstants);
+            String singular = tei.findAnnotation(OPTION_SINGULAR_TYPE)
+                    .map(TypeHandler::extractSingularValue)
+                    .orElse(null);
+            MapTypeHandler.Storage storage = MapTypeHandler.Storage.of(keyType, valueType, null != keyConstants);
+            return new MapTypeHandler(name, type, singular, defaultValues, storage, null != valueConstants);
+
+        } else if (collectionBased(type)) {
             TypeName target = targetTypeOfCollection(type);
+            List<String> constants = enums.get(target.fqName());
             
-            defaultValues = extractValues(target.className(), tei);
+            defaultValues = null == constants
+                    ? extractValues(target.className(), tei)
+                    : extractEnumValues(tei, constants);
             String singular = tei.findAnnotation(OPTION_SINGULAR_TYPE)
                     .map(TypeHandler::extractSingularValue)
                     .orElse(null);
-            return type.isList()
-                    ? new CollectionTypeHandler(name, type, singular, defaultValues, LIST)
-                    : new CollectionTypeHandler(name, type, singular, defaultValues, SET);
+            PrimitiveListTypeHandler.Element element = PrimitiveListTypeHandler.Element.of(target);
+            if (options.primitiveLists() && type.isList() && null != element) {
+                return new PrimitiveListTypeHandler(name, type, singular, defaultValues, element);
+            }
+            if (type.isList()) {
+                return new CollectionTypeHandler(name, type, singular, defaultValues, LIST, null != constants);
+            }
+            return null == constants
+                    ? new CollectionTypeHandler(name, type, singular, defaultValues, SET, false)
+                    : new CollectionTypeHandler(name, type, singular, defaultValues, ENUM_SET, true);
 
         } else if (type.isOptional()) {
             return new OptionalTypeHandler(name, type);
 
         } else {
             String target = boxedName(type);
-            defaultValues = extractValues(target, tei);
+            List<String> constants = enums.getOrDefault(type.fqName(), List.of());
+            defaultValues = constants.isEmpty() ? extractValues(target, tei) : extractEnumValues(tei, constants);
             if (defaultValues.size() > 1) {
                 throw new IllegalStateException(type + " " + name + "() can not have multiple default values ");
             }
+            String defaultMethod = tei.findAnnotation(OPTION_DEFAULT_METHOD_TYPE)
+                    .map(it -> extractDefaultMethod(it, blueprint))
+                    .orElse(null);
+            if (null != defaultMethod) {
+                // null stands for the default until it is computed
+                if (type.primitive()) {
+                    throw new IllegalStateException(type + " " + name + "() default method needs a reference type");
+                }
+                if (!defaultValues.isEmpty()) {
+                    throw new IllegalStateException(type + " " + name + "() can not have both a default value and"
+                            + " a default method");
+                }
+                return new SimpleTypeHandler(name, type, null, constants, defaultMethod);
+            }
             if (!defaultValues.isEmpty()) {
-                return new SimpleTypeHandler(name, type, defaultValues.getFirst());
+                return new SimpleTypeHandler(name, type, defaultValues.getFirst(), constants);
             } else {
-                return new SimpleTypeHandler(name, type, null);
+                return new SimpleTypeHandler(name, type, null, constants);
             }
 
         }
     }
 
-    void generateBuilderMutators(Writer writer, String builderName, int indentationLevel) throws IOException;
+    void generateBuilderMutators(Writer writer, String builderName, int indentationLevel, SetMask setMask)
+            throws IOException;
 
     TypeName type();
 
     String name();
 
-    default void generateBuilderChecker(Writer writer, int indentationLevel) throws IOException {
-    }
-
-    default void generateBuilderValidateStatement(Writer writer, int indentationLevel) throws IOException {
-    }
-
     default void generateAccessors(Writer writer, int indentationLevel, Generator generator) throws IOException {
         String accessorDeclarationPrefix = INDENTATION.repeat(indentationLevel) + "public ";
 
@@ -104,9 +145,13 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
     default boolean hasDefaultValue() {
         return switch (this) {
             case SimpleTypeHandler s ->
-                null != s.defaultValue();
+                null != s.defaultValue() || s.lazyDefault();
             case CollectionTypeHandler c ->
                 true;
+            case PrimitiveListTypeHandler p ->
+                true;
+            case MapTypeHandler m ->
+                true;
             case OptionalTypeHandler o ->
                 false;
         };
@@ -128,21 +173,23 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
             }
 
             case CollectionTypeHandler collection -> {
-
-                modifier = FINAL;
-                intialValueLiteral = NO_INITIALIZATION;
-                
-                switch (collection.collectionType()) {
-
-                    case LIST -> {
-                        String constructor = LIST.initialization().formatted(initialValueLiteral());
-                        intialValueLiteral = INITIALIZATION_FORMAT.formatted(constructor);
-                    }
-                    case SET -> {
-                        String constructor = SET.initialization().formatted(initialValueLiteral());
-                        intialValueLiteral = INITIALIZATION_FORMAT.formatted(constructor);
-                    }
-                }
+                // immutable default shared by every builder, copied on the first mutation
+                modifier = NONE;
+                intialValueLiteral = INITIALIZATION_FORMAT.formatted(defaultConstantName());
+                String constant = collection.immutable(initialValueLiteral());
+                writeDefaultConstant(writer, indentationLevel, shortHandType(), constant);
+            }
+            case PrimitiveListTypeHandler p -> {
+                modifier = NONE;
+                intialValueLiteral = INITIALIZATION_FORMAT.formatted(defaultConstantName());
+                String constant = "new " + p.element().primitiveType() + "[]{" + initialValueLiteral() + "}";
+                writeDefaultConstant(writer, indentationLevel, builderPropertyType(), constant);
+            }
+            case MapTypeHandler m -> {
+                modifier = NONE;
+                intialValueLiteral = INITIALIZATION_FORMAT.formatted(defaultConstantName());
+                String constant = m.immutable(initialValueLiteral());
+                writeDefaultConstant(writer, indentationLevel, shortHandType(), constant);
             }
             case OptionalTypeHandler o -> {
                 modifier = NONE;
@@ -158,7 +205,136 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
                 intialValueLiteral
         );
         writer.write(declaration);
+        if (this instanceof PrimitiveListTypeHandler p) {
+            String size = PROPERTY_FORMAT.formatted(
+                    INDENTATION.repeat(indentationLevel),
+                    NONE,
+                    "int",
+                    p.sizeName(),
+                    INITIALIZATION_FORMAT.formatted(p.defaultValues().size()));
+            writer.write(size);
+        }
+        if (collectionBased() || this instanceof MapTypeHandler) {
+            // false while the property still references an immutable value the builder does not own
+            String owned = PROPERTY_FORMAT.formatted(
+                    INDENTATION.repeat(indentationLevel),
+                    NONE,
+                    "boolean",
+                    ownedName(),
+                    NO_INITIALIZATION);
+            writer.write(owned);
+        }
+
+    }
+
+    default void generateBuilderReset(Writer writer, int indentationLevel) throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel);
+        String body = INDENTATION.repeat(indentationLevel + 1);
+        String name = name();
+        switch (this) {
+            case SimpleTypeHandler s when null != s.defaultValue() ->
+                writer.write(prefix + "this." + name + " = " + initialValueLiteral() + ";\n");
+            case SimpleTypeHandler s ->
+                writer.write(prefix + "this." + name + " = " + zeroValueLiteral() + ";\n");
+            case OptionalTypeHandler o ->
+                writer.write(prefix + "this." + name + " = null;\n");
+            case CollectionTypeHandler c -> {
+                // keep the capacity of a collection the builder owns
+                writer.write(prefix + "if(this." + ownedName() + "){\n");
+                writer.write(body + "this." + name + ".clear();\n");
+                writer.write(body + "this." + name + ".addAll(" + defaultConstantName() + ");\n");
+                writer.write(prefix + "} else {\n");
+                writer.write(body + "this." + name + " = " + defaultConstantName() + ";\n");
+                writer.write(prefix + "}\n");
+            }
+            case PrimitiveListTypeHandler p -> {
+                String constant = defaultConstantName();
+                writer.write(prefix + "if(this." + ownedName() + "){\n");
+                writer.write(body + "this." + name + " = ensureCapacity(this." + name + ", " + constant + ".length);\n");
+                writer.write(body + "System.arraycopy(" + constant + ", 0, this." + name + ", 0, " + constant
+                        + ".length);\n");
+                writer.write(prefix + "} else {\n");
+                writer.write(body + "this." + name + " = " + constant + ";\n");
+                writer.write(prefix + "}\n");
+                writer.write(prefix + "this." + p.sizeName() + " = " + constant + ".length;\n");
+            }
+            case MapTypeHandler m -> {
+                writer.write(prefix + "if(this." + ownedName() + "){\n");
+                writer.write(body + "this." + name + ".clear();\n");
+                writer.write(body + "this." + name + ".putAll(" + defaultConstantName() + ");\n");
+                writer.write(prefix + "} else {\n");
+                writer.write(body + "this." + name + " = " + defaultConstantName() + ";\n");
+                writer.write(prefix + "}\n");
+            }
+        }
+    }
+
+    // direct: source is the generated implementation, its fields are read as is
+    default void generateBuilderFrom(Writer writer, int indentationLevel, String source, boolean direct)
+            throws IOException {
+        String prefix = INDENTATION.repeat(indentationLevel) + "this.";
+        String name = name();
+        String value = source + "." + name + (direct ? "" : "()");
+        switch (this) {
+            case SimpleTypeHandler s ->
+                writer.write(prefix + name + " = " + value + ";\n");
+            case OptionalTypeHandler o ->
+                writer.write(prefix + name + " = " + source + "." + (direct ? name : o.orNullName() + "()") + ";\n");
+            case CollectionTypeHandler c -> {
+                String shared = direct ? value : c.copyOf(value);
+                writer.write(prefix + name + " = " + shared + ";\n");
+                writer.write(prefix + ownedName() + " = false;\n");
+            }
+            case PrimitiveListTypeHandler p -> {
+                String shared = direct ? value : source + "." + name + "Array()";
+                writer.write(prefix + name + " = " + shared + ";\n");
+                writer.write(prefix + p.sizeName() + " = this." + name + ".length;\n");
+                writer.write(prefix + ownedName() + " = false;\n");
+            }
+            case MapTypeHandler m -> {
+                String shared = direct ? value : m.copyOf(value);
+                writer.write(prefix + name + " = " + shared + ";\n");
+                writer.write(prefix + ownedName() + " = false;\n");
+            }
+        }
+    }
 
+    default String witherName() {
+        return "with" + CollectionTypeHandler.capitalize(name());
+    }
+
+    default String witherParameterType() {
+        return switch (this) {
+            case SimpleTypeHandler s ->
+                type().className();
+            case OptionalTypeHandler o ->
+                shortHandType();
+            case CollectionTypeHandler c ->
+                CollectionTypeHandler.covary(type());
+            case MapTypeHandler m ->
+                CollectionTypeHandler.covary(type());
+            case PrimitiveListTypeHandler p ->
+                p.element().primitiveType() + "[]";
+        };
+    }
+
+    default String defaultConstantName() {
+        return "DEFAULT_" + name().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+    }
+
+    default String ownedName() {
+        return name() + "Owned";
+    }
+
+    private void writeDefaultConstant(Writer writer, int indentationLevel, String type, String value)
+            throws IOException {
+        String constant = PROPERTY_FORMAT.formatted(
+                INDENTATION.repeat(indentationLevel),
+                STATIC_FINAL,
+                type,
+                defaultConstantName(),
+                INITIALIZATION_FORMAT.formatted(value));
+        writer.write(constant);
     }
 
     default boolean collectionBased() {
@@ -172,12 +348,30 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
             case SimpleTypeHandler s -> {
                 String literalType = boxedName();
                 String defaultValue = s.defaultValue().toString();
-                return mapToLiteral(literalType, defaultValue);
+                return mapToLiteral(literalType, defaultValue, s.enumBased());
             }
             case CollectionTypeHandler c -> {
                 final String target = targetTypeOfCollection(type()).className();
                 List<?> defaultValues = c.defaultValues();
-                return mapListToLiteral(target, defaultValues);
+                return mapListToLiteral(target, defaultValues, c.enumBased());
+            }
+            case PrimitiveListTypeHandler p -> {
+                final String target = targetTypeOfCollection(type()).className();
+                List<?> defaultValues = p.defaultValues();
+                return mapListToLiteral(target, defaultValues, false);
+            }
+            case MapTypeHandler m -> {
+                // Map.entry(key, value) pairs, the default values alternate keys and values
+                List<?> defaultValues = m.defaultValues();
+                String keyType = m.keyType().className();
+                String valueType = m.valueType().className();
+                boolean enumKeys = m.storage() == MapTypeHandler.Storage.ENUM_MAP;
+                return IntStream.range(0, defaultValues.size() / 2)
+                        .mapToObj(i -> "Map.entry("
+                                + mapToLiteral(keyType, defaultValues.get(2 * i).toString(), enumKeys) + ", "
+                                + mapToLiteral(valueType, defaultValues.get(2 * i + 1).toString(), m.enumValues())
+                                + ")")
+                        .collect(Collectors.joining(", "));
             }
             default -> {
                 return "";
@@ -187,16 +381,24 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
     }
 
     default void generateImplementationProperty(Writer writer, int indentationLevel) throws IOException {
+        // optional values are kept as nullable references, the builder and the implementation share the same type
         String declaration = PROPERTY_FORMAT.formatted(
                 INDENTATION.repeat(indentationLevel),
                 FINAL,
-                shortHandType(),
+                builderPropertyType(),
                 name(),
                 NO_INITIALIZATION
         );
         writer.write(declaration);
     }
 
+    private String zeroValueLiteral() {
+        if (!type().primitive()) {
+            return "null";
+        }
+        return "boolean".equals(type().className()) ? "false" : "0";
+    }
+
     private String shortHandType() {
         return type().classNameWithTypes();
     }
@@ -205,6 +407,8 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
         return switch (this) {
             case OptionalTypeHandler o ->
                 o.mutatorType();
+            case PrimitiveListTypeHandler p ->
+                p.element().primitiveType() + "[]";
             default ->
                 shortHandType();
         };
@@ -213,14 +417,29 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
     private String accessMechanism(String propertyName, Generator generator) {
         if (this instanceof OptionalTypeHandler) {
             return switch (generator) {
+                // Optional.empty() is a shared instance, only a present value allocates
                 case ImplementationGenerator i ->
-                    propertyName;
+                    "Optional.ofNullable(%1$s)".formatted(propertyName);
                 case BuilderGenerator b ->
                     "Optional.ofNullable(%1$s)".formatted(propertyName);
                 case PrototypeGenerator p ->
                     throw new IllegalStateException("accessor not supported");
             };
         }
+        // an owned builder collection becomes the implementation's one on build(), it is never handed out mutable
+        if (generator instanceof BuilderGenerator) {
+            String view = switch (this) {
+                case CollectionTypeHandler c ->
+                    c.unmodifiable(propertyName);
+                case MapTypeHandler m ->
+                    "Collections.unmodifiableMap(%1$s)".formatted(propertyName);
+                default ->
+                    null;
+            };
+            if (view != null) {
+                return "this." + ownedName() + " ? " + view + " : " + propertyName;
+            }
+        }
 
         return propertyName;
 
@@ -240,13 +459,17 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
                 .findFirst()
                 .orElseThrow(IllegalStateException::new);
     }
-    private static String mapListToLiteral(final String type, List<?> defaultValues){
+    private static String mapListToLiteral(final String type, List<?> defaultValues, boolean enumBased){
         return defaultValues.stream()
                 .map(Object::toString)
-                .map(it -> mapToLiteral(type, it))
+                .map(it -> mapToLiteral(type, it, enumBased))
                 .collect(Collectors.joining(", "));
     }
-    private static String mapToLiteral(String target, String defaultValue) {
+    private static String mapToLiteral(String target, String defaultValue, boolean enumBased) {
+        // the default values of an enum were checked against its constants
+        if (enumBased) {
+            return target + "." + defaultValue;
+        }
         switch (target) {
             
             case "Boolean" -> {
@@ -279,8 +502,9 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
             case "Float" -> {
                 return floatLiteral(defaultValue);
             }
-            default ->
+            default -> {
                 throw new IllegalStateException("unkown type: " + target);
+            }
 
         }
 
@@ -315,6 +539,22 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
         return Long.valueOf(value) + "L";
     }
 
+    // the qualified static method, declared by the blueprint unless the annotation names another type
+    private static String extractDefaultMethod(final Annotation annotation, TypeName blueprint) {
+        String method = annotation.stringValue()
+                .orElseThrow(() -> new IllegalStateException(OPTION_DEFAULT_METHOD + " needs a method name"));
+        TypeName owner = annotation.typeValue("type")
+                .filter(it -> !defaultMethodAnnotation(it))
+                .orElse(blueprint);
+        return owner.fqName() + "." + method;
+    }
+
+    // type() defaults to the annotation itself, its enclosing Option may be part of the package name or not
+    private static boolean defaultMethodAnnotation(TypeName type) {
+        return OPTION_DEFAULT_METHOD_TYPE.className().equals(type.className())
+                && OPTION_DEFAULT_METHOD.startsWith(type.packageName() + ".");
+    }
+
     private static String extractSingularValue(final Annotation annotation) {
         return annotation.stringValue()
                 .orElse(null);
@@ -341,6 +581,35 @@ public sealed interface TypeHandler permits SimpleTypeHandler,
 
     }
     
+    // @Option.Default names of the enum constants
+    private static List<?> extractEnumValues(TypedElementInfo tei, List<String> constants) {
+        List<?> values = extractStrings(tei);
+        for (Object value : values) {
+            if (!constants.contains(value.toString())) {
+                throw new IllegalStateException(tei.elementName() + "() default value " + value
+                        + " is not one of " + constants);
+            }
+        }
+        return values;
+    }
+
+    // @Option.Default alternating keys and values, enum keys and values are checked against their constants
+    private static List<?> extractMapValues(TypedElementInfo tei, List<String> keyConstants,
+            List<String> valueConstants) {
+        List<?> values = extractStrings(tei);
+        if (values.size() % 2 != 0) {
+            throw new IllegalStateException(tei.elementName() + "() default values must alternate keys and values");
+        }
+        for (int i = 0; i < values.size(); i++) {
+            List<String> constants = i % 2 == 0 ? keyConstants : valueConstants;
+            if (null != constants && !constants.contains(values.get(i).toString())) {
+                throw new IllegalStateException(tei.elementName() + "() default value " + values.get(i)
+                        + " is not one of " + constants);
+            }
+        }
+        return values;
+    }
+
     private static List<?> extractStrings(TypedElementInfo tei){
         
         Optional<Annotation> defOpt = tei.findAnnotation(OPTION_DEFAULT_TYPE);
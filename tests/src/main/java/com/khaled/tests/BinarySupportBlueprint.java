@@ -0,0 +1,48 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface BinarySupportBlueprint {
+
+    boolean active();
+
+    byte priority();
+
+    short port();
+
+    char grade();
+
+    int count();
+
+    long id();
+
+    float ratio();
+
+    double score();
+
+    String name();
+
+    Optional<String> nickname();
+
+    Optional<Long> parent();
+
+    @Option.Singular
+    List<String> tags();
+
+    @Option.Singular
+    List<Integer> samples();
+
+    Set<Double> weights();
+
+    Map<String, Integer> limits();
+}
@@ -0,0 +1,28 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface EnumSupportBlueprint {
+
+    @Option.Default("INFO")
+    Level level();
+
+    Level threshold();
+
+    boolean enabled();
+
+    @Option.Singular
+    @Option.Default({"WARN", "ERROR"})
+    Set<Level> alerts();
+
+    List<Level> history();
+
+}
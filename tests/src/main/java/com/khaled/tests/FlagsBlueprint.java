@@ -0,0 +1,43 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface FlagsBlueprint {
+
+    boolean enabled();
+
+    @Option.Default("true")
+    boolean cached();
+
+    boolean secure();
+
+    boolean compressed();
+
+    boolean retried();
+
+    boolean logged();
+
+    boolean traced();
+
+    boolean pooled();
+
+    boolean shared();
+
+    boolean readOnly();
+
+    boolean async();
+
+    boolean strict();
+
+    byte priority();
+
+    short weight();
+
+    char grade();
+}
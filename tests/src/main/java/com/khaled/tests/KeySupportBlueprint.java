@@ -0,0 +1,17 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Prototype;
+import java.util.Map;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface KeySupportBlueprint {
+
+    Map<Boolean, String> flags();
+
+    Map<Character, Integer> letters();
+
+}
@@ -0,0 +1,36 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface LazyDefaultSupportBlueprint {
+
+    // number of times the banner default was computed
+    static final AtomicInteger BANNER_LOADS = new AtomicInteger();
+
+    static String loadBanner() {
+        BANNER_LOADS.incrementAndGet();
+        return String.join("-", "lazy", "banner");
+    }
+
+    static Level defaultLevel() {
+        return Level.WARN;
+    }
+
+    String name();
+
+    @Option.DefaultMethod("loadBanner")
+    String banner();
+
+    @Option.DefaultMethod("defaultLevel")
+    Level level();
+
+    @Option.DefaultMethod(type = System.class, value = "lineSeparator")
+    String separator();
+}
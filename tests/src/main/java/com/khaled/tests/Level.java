@@ -0,0 +1,9 @@
+package com.khaled.tests;
+
+/**
+ *
+ * @author khaled
+ */
+public enum Level {
+    TRACE, DEBUG, INFO, WARN, ERROR
+}
@@ -0,0 +1,27 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Option;
+import io.helidon.builder.api.Prototype;
+import java.util.Map;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface MapSupportBlueprint {
+
+    @Option.Singular
+    @Option.Default({"timeout", "30", "retries", "3"})
+    Map<String, Integer> settings();
+
+    @Option.Singular
+    Map<Integer, Long> offsets();
+
+    @Option.Singular
+    Map<Long, Double> weights();
+
+    @Option.Default({"WARN", "warning", "ERROR", "error"})
+    Map<Level, String> labels();
+
+}
@@ -0,0 +1,27 @@
+package com.khaled.tests;
+
+import io.helidon.builder.api.Prototype;
+
+/**
+ *
+ * @author khaled
+ */
+@Prototype.Blueprint
+public interface MeasurementBlueprint {
+
+    boolean valid();
+
+    byte quality();
+
+    char unit();
+
+    short channel();
+
+    int sensor();
+
+    float weight();
+
+    long timestamp();
+
+    double value();
+}
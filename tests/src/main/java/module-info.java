@@ -1,3 +1,4 @@
 module khaled.builder.tests{
     requires io.helidon.builder.api;
+    requires jdk.management;
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.khaled.tests;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinarySupport, Measurement, MapSupport, DefaultSupport and EnumSupport are generated with builder.batch
+ *
+ * @author khaled
+ */
+public class BatchTest {
+
+    private static final int ROWS = 100_000;
+
+    @Test
+    void should_store_appended_prototypes_column_wise() {
+        BinarySupport first = row(1);
+        BinarySupport second = row(2).withNickname(Optional.empty());
+        BinarySupport.Batch batch = new BinarySupport.Batch(1)
+                .append(first)
+                .append(second);
+
+        assertThat(batch.size(), is(2));
+        assertThat(batch.count(0), is(1));
+        assertThat(batch.name(1), is("name-2"));
+        assertThat(batch.nickname(0), is(Optional.of("nick")));
+        assertThat(batch.nickname(1), is(Optional.empty()));
+        assertThat(batch.tags(1), contains("a", "2"));
+        assertThat(batch.samples(0), contains(1, 2, 3));
+        assertThat(batch.limits(1), is(Map.of("max", 2)));
+        assertThat(batch.get(0), is(equalTo(first)));
+        assertThat(second, is(equalTo(batch.get(1))));
+        assertThat(batch.get(1).hashCode(), is(second.hashCode()));
+        assertThat(batch.get(1).toString(), is(second.toString()));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.count(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.get(-1));
+    }
+
+    @Test
+    void should_append_from_builder() {
+        BinarySupport.Builder builder = Fixtures.binarySupport()
+                .count(0)
+                .id(0)
+                .name("builder")
+                .addTag("a")
+                .addSample(7)
+                .limits(Map.of("max", 1));
+        BinarySupport.Batch batch = new BinarySupport.Batch();
+
+        batch.appendFrom(builder);
+        builder.addTag("b").addSample(8).addLimits(Map.of("min", 0));
+        batch.appendFrom(builder);
+
+        assertThat(batch.get(0), is(equalTo(builder.name("builder").tags(List.of("a")).samples(List.of(7))
+                .limits(Map.of("max", 1)).build())));
+        assertThat(batch.tags(1), contains("a", "b"));
+        assertThat(batch.get(1).samplesArray().length, is(2));
+        assertThat(batch.get(1).limits().get("min"), is(0));
+        assertThrows(IllegalStateException.class, () -> batch.appendFrom(BinarySupport.builder()));
+        assertThat(batch.size(), is(2));
+    }
+
+    @Test
+    void should_view_rows_through_the_prototype() {
+        MapSupport maps = MapSupport.builder()
+                .putOffset(1, 10L)
+                .putWeight(2L, 0.5)
+                .build();
+        MapSupport.Batch batch = new MapSupport.Batch().append(maps);
+        MapSupport row = batch.get(0);
+
+        assertThat(row.offsetsGetOrDefault(1, -1L), is(10L));
+        assertThat(row.weightsContainsKey(2L), is(true));
+        assertThat(row.settings(), is(maps.settings()));
+        assertThat(row.withOffsets(Map.of()), is(equalTo(maps.withOffsets(Map.of()))));
+        assertThat(row.toBuilder().build(), is(equalTo(maps)));
+
+        EnumSupport enums = EnumSupport.builder().threshold(Level.ERROR).enabled(true).build();
+        EnumSupport.Batch enumBatch = new EnumSupport.Batch().append(enums);
+        assertThat(enumBatch.threshold(0), is(Level.ERROR));
+        assertThat(enumBatch.alerts(0), is(enums.alerts()));
+        assertThat(enumBatch.get(0), is(equalTo(enums)));
+    }
+
+    @Test
+    void should_materialize_interned_instances() {
+        DefaultSupport prototype = DefaultSupport.builder().age(3).doubleValue(1.0).build();
+        DefaultSupport.Batch batch = new DefaultSupport.Batch().append(prototype);
+
+        DefaultSupport row = batch.get(0);
+
+        assertThat(row, is(not(sameInstance(prototype))));
+        assertThat(row.withAge(3), is(sameInstance(prototype)));
+        assertThat(batch.name(0), is(DefaultSupport.builder().age(0).doubleValue(0.0).build().name()));
+    }
+
+    @Test
+    void should_split_rows_for_parallel_streams() {
+        Measurement.Batch batch = new Measurement.Batch();
+        for (int i = 0; i < ROWS; i++) {
+            batch.append(Fixtures.measurement(i));
+        }
+        long expected = (long) ROWS * (ROWS - 1) / 2;
+
+        Spliterator<Measurement> rows = batch.spliterator();
+        Spliterator<Measurement> prefix = rows.trySplit();
+
+        assertThat(prefix.estimateSize() + rows.estimateSize(), is((long) ROWS));
+        assertThat(prefix.hasCharacteristics(Spliterator.SUBSIZED), is(true));
+        assertThat(batch.sensorColumn().asLongStream().sum(), is(expected));
+        assertThat(batch.parallelStream().mapToLong(Measurement::sensor).sum(), is(expected));
+        assertThat(batch.stream().filter(Measurement::valid).count(), is((long) ROWS / 2));
+        assertThat(batch.timestampColumn().max().getAsLong(), is(1_700_000_000_000L + ROWS - 1));
+        assertThat(IntStream.range(0, ROWS).allMatch(i -> batch.get(i).equals(Fixtures.measurement(i))), is(true));
+    }
+
+    @Test
+    void should_iterate_appended_rows() {
+        Measurement.Batch batch = new Measurement.Batch(0);
+        assertThat(batch.iterator().hasNext(), is(false));
+        batch.append(Fixtures.measurement(1)).append(Fixtures.measurement(2));
+
+        int sensors = 0;
+        for (Measurement measurement : batch) {
+            sensors += measurement.sensor();
+        }
+
+        assertThat(sensors, is(3));
+        assertThat(batch.get(1).withSensor(5).sensor(), is(5));
+        assertThrows(IllegalArgumentException.class, () -> new Measurement.Batch(-1));
+    }
+
+    private static BinarySupport row(int i) {
+        return Fixtures.binarySupport()
+                .count(i)
+                .id(i)
+                .name("name-" + i)
+                .nickname("nick")
+                .parent((long) i)
+                .tags(List.of("a", String.valueOf(i)))
+                .samples(List.of(1, 2, 3))
+                .weights(Set.of(0.5))
+                .limits(Map.of("max", i))
+                .build();
+    }
+}
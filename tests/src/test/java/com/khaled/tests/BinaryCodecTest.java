@@ -0,0 +1,157 @@
+package com.khaled.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinarySupport, AllSupport, EnumSupport and MapSupport are generated with builder.binary
+ *
+ * @author khaled
+ */
+public class BinaryCodecTest {
+
+    @Test
+    void should_round_trip_all_types() {
+        BinarySupport binarySupport = binarySupport();
+
+        BinarySupport read = BinarySupport.readFrom(write(binarySupport));
+
+        assertThat(read, is(equalTo(binarySupport)));
+        assertThat(read.name(), is("héllo € 😀"));
+        assertThat(read.samples(), is(equalTo(List.of(0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE))));
+        assertThat(read.ratio(), is(-0.5f));
+        assertThat(read.parent().isPresent(), is(false));
+    }
+
+    @Test
+    void should_write_serialized_size_bytes() throws IOException {
+        BinarySupport binarySupport = binarySupport();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        binarySupport.writeTo(buffer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        binarySupport.writeTo(new DataOutputStream(bytes));
+
+        assertThat(buffer.position(), is(binarySupport.serializedSize()));
+        assertThat(ByteBuffer.wrap(bytes.toByteArray()), is(equalTo(buffer.flip())));
+    }
+
+    @Test
+    void should_not_write_empty_optionals() {
+        AllSupport empty = AllSupport.builder().name("n").age(-3).build();
+        AllSupport present = empty.withOpt(Optional.of(300));
+
+        assertThat(empty.serializedSize(), is(lessThan(present.serializedSize())));
+        assertThat(AllSupport.readFrom(write(empty)), is(equalTo(empty)));
+        assertThat(AllSupport.readFrom(write(present)), is(equalTo(present)));
+    }
+
+    @Test
+    void should_skip_unknown_tags() {
+        AllSupport allSupport = AllSupport.builder().name("n").age(42).addWord("a").addWord("b").build();
+        byte[] known = Arrays.copyOfRange(write(allSupport).array(), 1, allSupport.serializedSize());
+        // fields 15 to 18 of a newer schema: varint 150, fixed64, "abc", fixed32
+        byte[] unknown = {120, (byte) 0x96, 0x01,
+            (byte) 0x81, 0x01, 1, 2, 3, 4, 5, 6, 7, 8,
+            (byte) 0x8A, 0x01, 3, 'a', 'b', 'c',
+            (byte) 0x95, 0x01, 1, 2, 3, 4};
+        ByteBuffer buffer = ByteBuffer.allocate(1 + known.length + unknown.length);
+        buffer.put((byte) (known.length + unknown.length)).put(unknown).put(known).flip();
+
+        assertThat(AllSupport.readFrom(buffer), is(equalTo(allSupport)));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    void should_read_consecutive_messages() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 10; i++) {
+            binarySupport().withCount(i).writeTo(buffer);
+        }
+        buffer.flip();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(BinarySupport.readFrom(buffer), is(equalTo(binarySupport().withCount(i))));
+        }
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    void should_round_trip_compact_enums_and_maps() {
+        EnumSupport enumSupport = EnumSupport.builder()
+                .threshold(Level.WARN)
+                .enabled(true)
+                .addAlert(Level.TRACE)
+                .history(List.of(Level.DEBUG, Level.ERROR))
+                .build();
+        MapSupport mapSupport = MapSupport.builder()
+                .putSetting("depth", -7)
+                .putOffset(-1, Long.MIN_VALUE)
+                .putWeight(0L, 0.25)
+                .labels(Map.of(Level.INFO, "info"))
+                .build();
+
+        EnumSupport readEnums = EnumSupport.readFrom(write(enumSupport));
+        MapSupport readMaps = MapSupport.readFrom(write(mapSupport));
+
+        assertThat(readEnums, is(equalTo(enumSupport)));
+        assertThat(readEnums.alerts(), is(equalTo(EnumSet.of(Level.TRACE, Level.WARN, Level.ERROR))));
+        assertThat(readMaps, is(equalTo(mapSupport)));
+        assertThat(readMaps.offsetsGetOrDefault(-1, 0L), is(Long.MIN_VALUE));
+    }
+
+    @Test
+    void should_reject_truncated_messages() {
+        ByteBuffer buffer = write(binarySupport());
+        buffer.limit(buffer.limit() - 1);
+
+        assertThrows(IllegalStateException.class, () -> BinarySupport.readFrom(buffer));
+    }
+
+    private static ByteBuffer write(Object prototype) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        switch (prototype) {
+            case BinarySupport b -> b.writeTo(buffer);
+            case AllSupport a -> a.writeTo(buffer);
+            case EnumSupport e -> e.writeTo(buffer);
+            case MapSupport m -> m.writeTo(buffer);
+            default -> throw new IllegalArgumentException(String.valueOf(prototype));
+        }
+        return buffer.flip();
+    }
+
+    // the extreme values of every type
+    private static BinarySupport binarySupport() {
+        return Fixtures.binarySupport()
+                .priority((byte) -128)
+                .port((short) 8080)
+                .grade('é')
+                .count(-1)
+                .id(Long.MAX_VALUE)
+                .ratio(-0.5f)
+                .score(Math.PI)
+                .name("héllo € 😀")
+                .nickname("")
+                .addTag("a")
+                .addTag("中文")
+                .samples(List.of(0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .weights(Set.of(1.5))
+                .limits(Map.of("max", 300))
+                .build();
+    }
+}
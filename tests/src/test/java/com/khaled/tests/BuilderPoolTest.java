@@ -0,0 +1,130 @@
+package com.khaled.tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class BuilderPoolTest {
+
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    void should_reset_to_defaults() {
+        DefaultSupport.Builder builder = DefaultSupport.builder()
+                .name("other")
+                .age(3)
+                .doubleValue(2d)
+                .bit((byte) 5);
+
+        builder.reset();
+
+        assertThrows(IllegalStateException.class, builder::build);
+        DefaultSupport prototype = builder.age(3)
+                .doubleValue(2d)
+                .build();
+        assertThat(prototype.name(), is(DefaultSupportBlueprint.DEFAULT_NAME));
+        assertThat(prototype.bit(), is(DefaultSupportBlueprint.DEFAULT_BIT));
+    }
+
+    @Test
+    void should_reset_collections() {
+        SupportAllDefault.Builder builder = SupportAllDefault.builder()
+                .addStrings(List.of("other"))
+                .addInts(List.of(6, 7));
+
+        SupportAllDefault prototype = builder.reset().build();
+
+        assertThat(prototype.strings(), is(equalTo(SupportAllDefaultBlueprint.STRINGS)));
+        assertThat(prototype.ints(), is(equalTo(SupportAllDefaultBlueprint.INTS)));
+    }
+
+    @Test
+    void should_reuse_released_builder() {
+        // Simple and SingularSupport are generated with builder.pool
+        SingularSupport.Builder.Pool pool = new SingularSupport.Builder.Pool(1);
+        SingularSupport.Builder builder = pool.acquire();
+        SingularSupport first = builder.addWord("a").addS(1).build();
+        pool.release(builder);
+
+        SingularSupport.Builder reused = pool.acquire();
+        SingularSupport second = reused.addNumber(1).build();
+
+        assertThat(reused, is(sameInstance(builder)));
+        assertThat(first.word(), is(equalTo(List.of("a"))));
+        assertThat(second.word(), is(equalTo(List.of())));
+        assertThat(second.numbers(), is(equalTo(Set.of(1))));
+    }
+
+    @Test
+    void should_share_pool_between_virtual_threads() throws Exception {
+        Simple.Builder.Pool pool = new Simple.Builder.Pool();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Simple>> futures = IntStream.range(0, 1_000)
+                    .mapToObj(i -> executor.submit(() -> pool.build(it -> it.name("name" + i).age(i))))
+                    .toList();
+            for (int i = 0; i < futures.size(); i++) {
+                Simple prototype = futures.get(i).get();
+                assertThat(prototype.name(), is("name" + i));
+                assertThat(prototype.age(), is(i));
+            }
+        }
+    }
+
+    @Test
+    void should_not_allocate_builders() {
+        Simple.Builder.Pool pool = new Simple.Builder.Pool(1);
+        Simple[] built = new Simple[ITERATIONS];
+        buildPooled(pool, built);
+        buildFresh(built);
+
+        long pooled = bytesPerBuild(() -> buildPooled(pool, built));
+        long fresh = bytesPerBuild(() -> buildFresh(built));
+
+        // only the implementation instance is left per pooled build, a fresh builder adds its own footprint
+        // unless escape analysis removes it
+        assertThat(pooled, is(lessThanOrEqualTo(32L)));
+        assertThat(pooled, is(lessThanOrEqualTo(fresh)));
+    }
+
+    private static void buildPooled(Simple.Builder.Pool pool, Simple[] built) {
+        for (int i = 0; i < built.length; i++) {
+            Simple.Builder builder = pool.acquire();
+            built[i] = builder.name("name")
+                    .age(i)
+                    .build();
+            pool.release(builder);
+        }
+    }
+
+    private static void buildFresh(Simple[] built) {
+        for (int i = 0; i < built.length; i++) {
+            built[i] = Simple.builder()
+                    .name("name")
+                    .age(i)
+                    .build();
+        }
+    }
+
+    private static long bytesPerBuild(Runnable builds) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        builds.run();
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+}
@@ -0,0 +1,93 @@
+package com.khaled.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+
+/**
+ * Flags and AsyncConfig are generated with builder.compact
+ *
+ * @author khaled
+ */
+public class CompactLayoutTest {
+
+    @Test
+    void should_pack_small_primitives() {
+        Flags flags = flags();
+
+        // header and a single long word, instead of a byte per boolean plus the small primitives
+        assertThat(ClassLayout.parseInstance(flags).instanceSize(), is(lessThanOrEqualTo(24L)));
+    }
+
+    @Test
+    void should_decode_packed_values() {
+        Flags flags = flags();
+
+        assertThat(flags.enabled(), is(true));
+        assertThat(flags.cached(), is(true));
+        assertThat(flags.secure(), is(false));
+        assertThat(flags.strict(), is(true));
+        assertThat(flags.priority(), is((byte) -3));
+        assertThat(flags.weight(), is(Short.MIN_VALUE));
+        assertThat(flags.grade(), is(Character.MAX_VALUE));
+    }
+
+    @Test
+    void should_compare_packed_values() {
+        Flags flags = flags();
+
+        assertThat(flags, is(equalTo(flags())));
+        assertThat(flags.hashCode(), is(flags().hashCode()));
+        assertThat(flags.withSecure(true), is(not(equalTo(flags))));
+        assertThat(flags.withSecure(true).withSecure(false), is(equalTo(flags)));
+        assertThat(flags.toBuilder().priority((byte) 4).build().priority(), is((byte) 4));
+        assertThat(flags.toString(), is(equalTo("FlagsImpl{enabled=true, cached=true, secure=false, "
+                + "compressed=false, retried=false, logged=false, traced=false, pooled=false, shared=false, "
+                + "readOnly=false, async=false, strict=true, priority=-3, weight=-32768, grade=" + Character.MAX_VALUE + "}")));
+    }
+
+    @Test
+    void should_pack_mixed_blueprint() {
+        AsyncConfig config = AsyncConfig.builder()
+                .value("value")
+                .booleanValue(true)
+                .byteValue((byte) 1)
+                .charValue('c')
+                .doubleValue(2.5)
+                .floatValue(1.5f)
+                .intValue(-7)
+                .shortValue((short) -2)
+                .build();
+
+        assertThat(config.booleanValue(), is(true));
+        assertThat(config.byteValue(), is((byte) 1));
+        assertThat(config.charValue(), is('c'));
+        assertThat(config.shortValue(), is((short) -2));
+        assertThat(config.intValue(), is(-7));
+        assertThat(config.withShortValue((short) 3).shortValue(), is((short) 3));
+        assertThat(config.withShortValue((short) 3).charValue(), is('c'));
+    }
+
+    private static Flags flags() {
+        return Flags.builder()
+                .enabled(true)
+                .secure(false)
+                .compressed(false)
+                .retried(false)
+                .logged(false)
+                .traced(false)
+                .pooled(false)
+                .shared(false)
+                .readOnly(false)
+                .async(false)
+                .strict(true)
+                .priority((byte) -3)
+                .weight(Short.MIN_VALUE)
+                .grade(Character.MAX_VALUE)
+                .build();
+    }
+}
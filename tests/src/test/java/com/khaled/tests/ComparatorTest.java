@@ -0,0 +1,133 @@
+package com.khaled.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinarySupport, Measurement, EnumSupport and Simple are generated with builder.comparable, Simple declares the
+ * age,name and Measurement the sensor,value sort keys
+ *
+ * @author khaled
+ */
+public class ComparatorTest {
+
+    @Test
+    void should_order_by_declared_properties() {
+        Simple alice = Simple.builder().name("alice").age(40).build();
+        Simple bob = Simple.builder().name("bob").age(20).build();
+        Simple olderBob = bob.withAge(30);
+
+        List<Simple> sorted = new ArrayList<>(List.of(olderBob, bob, alice));
+        Collections.sort(sorted);
+
+        assertThat(sorted, contains(alice, bob, olderBob));
+        assertThat(bob.compareTo(Simple.builder().name("bob").age(20).build()), is(0));
+    }
+
+    @Test
+    void should_sort_like_comparator_chains() {
+        Random random = new Random(42);
+        List<Simple> prototypes = IntStream.range(0, 10_000)
+                .mapToObj(i -> Simple.builder().name("name-" + random.nextInt(100)).age(random.nextInt(100)).build())
+                .toList();
+
+        List<Simple> generated = new ArrayList<>(prototypes);
+        generated.sort(Simple.comparator(Simple.SortKey.AGE, Simple.SortKey.NAME));
+        List<Simple> chained = new ArrayList<>(prototypes);
+        chained.sort(Comparator.comparingInt(Simple::age).thenComparing(Simple::name));
+
+        assertThat(generated, is(equalTo(chained)));
+        assertThat(Simple.comparator().compare(prototypes.get(0), prototypes.get(1)), is(0));
+    }
+
+    @Test
+    void should_share_the_declared_and_single_key_comparators() {
+        Random random = new Random(7);
+        List<Simple> prototypes = IntStream.range(0, 1_000)
+                .mapToObj(i -> Simple.builder().name("name-" + random.nextInt(10)).age(random.nextInt(10)).build())
+                .toList();
+        Comparator<Simple> declared = Simple.comparator(Simple.SortKey.AGE, Simple.SortKey.NAME);
+        Comparator<Simple> undeclared = Simple.comparator(Simple.SortKey.NAME, Simple.SortKey.AGE);
+
+        assertThat(declared, is(sameInstance(Simple.comparator(Simple.SortKey.AGE, Simple.SortKey.NAME))));
+        assertThat(Simple.comparator(Simple.SortKey.NAME), is(sameInstance(Simple.comparator(Simple.SortKey.NAME))));
+        assertThat(undeclared, is(not(sameInstance(declared))));
+
+        List<Simple> sorted = new ArrayList<>(prototypes);
+        sorted.sort(undeclared);
+        List<Simple> chained = new ArrayList<>(prototypes);
+        chained.sort(Comparator.comparing(Simple::name).thenComparingInt(Simple::age));
+        assertThat(sorted, is(equalTo(chained)));
+    }
+
+    @Test
+    void should_compare_without_boxing() {
+        Measurement negative = measurement(1, -0.0);
+        Measurement positive = measurement(1, 0.0);
+        Measurement nan = measurement(1, Double.NaN);
+        Comparator<Measurement> byValue = Measurement.comparator(Measurement.SortKey.VALUE);
+
+        // same total order as Double.compare
+        assertThat(byValue.compare(negative, positive), is(lessThan(0)));
+        assertThat(byValue.compare(nan, positive), is(greaterThan(0)));
+        assertThat(Measurement.comparator(Measurement.SortKey.SENSOR, Measurement.SortKey.VALUE)
+                .reversed()
+                .compare(measurement(2, 0), measurement(1, 5)), is(lessThan(0)));
+        assertThrows(NullPointerException.class, () -> Measurement.comparator(Measurement.SortKey.VALUE, null));
+    }
+
+    @Test
+    void should_order_empty_optionals_and_enums_first() {
+        BinarySupport empty = binarySupport(Optional.empty());
+        BinarySupport nick = binarySupport(Optional.of("nick"));
+        Comparator<BinarySupport> byNickname = BinarySupport.comparator(BinarySupport.SortKey.NICKNAME);
+
+        assertThat(byNickname.compare(empty, nick), is(lessThan(0)));
+        assertThat(byNickname.compare(nick, empty), is(greaterThan(0)));
+        assertThat(byNickname.compare(empty, empty.withName("other")), is(0));
+        assertThat(empty.compareTo(nick), is(lessThan(0)));
+
+        EnumSupport info = EnumSupport.builder().threshold(Level.INFO).enabled(true).build();
+        EnumSupport error = info.withThreshold(Level.ERROR);
+        assertThat(Integer.signum(info.compareTo(error)), is(Integer.signum(Level.INFO.compareTo(Level.ERROR))));
+    }
+
+    @Test
+    void should_sort_rows_of_a_batch() {
+        Measurement.Batch batch = new Measurement.Batch();
+        for (int i = 0; i < 100; i++) {
+            batch.append(measurement(i % 10, -i));
+        }
+
+        List<Measurement> sorted = batch.stream()
+                .sorted(Measurement.comparator(Measurement.SortKey.SENSOR, Measurement.SortKey.VALUE))
+                .toList();
+
+        assertThat(sorted.getFirst(), is(equalTo(measurement(0, -90))));
+        assertThat(sorted.getLast(), is(equalTo(measurement(9, -9))));
+        assertThat(batch.get(3).compareTo(measurement(3, -3)), is(0));
+    }
+
+    private static BinarySupport binarySupport(Optional<String> nickname) {
+        return Fixtures.binarySupport().build().withNickname(nickname);
+    }
+
+    private static Measurement measurement(int sensor, double value) {
+        return Fixtures.measurement(sensor).withValue(value);
+    }
+}
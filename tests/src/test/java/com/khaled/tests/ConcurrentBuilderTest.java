@@ -0,0 +1,113 @@
+package com.khaled.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SingularSupport, EnumSupport and BinarySupport are generated with builder.concurrent
+ *
+ * @author khaled
+ */
+public class ConcurrentBuilderTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ADDS = 50_000;
+
+    @Test
+    void should_keep_every_add_of_every_thread() throws Exception {
+        SingularSupport.Builder.Concurrent concurrent = new SingularSupport.Builder.Concurrent(SingularSupport.builder());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread * ADDS;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + ADDS; i++) {
+                        concurrent.addWord("word-" + i).addS(i).addNumber(i % 100).addL((long) i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        SingularSupport support = concurrent.build();
+
+        assertThat(support.word().size(), is(THREADS * ADDS));
+        assertThat(support.sStream().asLongStream().sum(), is((long) THREADS * ADDS * (THREADS * ADDS - 1) / 2));
+        assertThat(support.numbers().size(), is(100));
+        assertThat(support.l().size(), is(THREADS * ADDS));
+    }
+
+    @Test
+    void should_merge_sorted_like_a_serial_builder() {
+        List<Integer> values = IntStream.range(0, ADDS).map(i -> (i * 7919) % ADDS).boxed().toList();
+        SingularSupport.Builder.Concurrent concurrent = new SingularSupport.Builder.Concurrent(SingularSupport.builder(),
+                true);
+
+        values.parallelStream().forEach(value -> concurrent.addS(value).addWord(Integer.toString(value)));
+        SingularSupport support = concurrent.build();
+
+        SingularSupport.Builder serial = SingularSupport.builder();
+        values.stream()
+                .sorted()
+                .forEach(serial::addS);
+        values.stream()
+                .map(value -> Integer.toString(value))
+                .sorted()
+                .forEach(serial::addWord);
+        assertThat(support, is(equalTo(serial.build())));
+        assertThat(support.word(), is(equalTo(serial.build().word())));
+    }
+
+    @Test
+    void should_keep_the_builder_values() {
+        EnumSupport.Builder builder = EnumSupport.builder().threshold(Level.DEBUG);
+        EnumSupport.Builder.Concurrent concurrent = new EnumSupport.Builder.Concurrent(builder, true);
+
+        IntStream.range(0, 1_000).parallel().forEach(i -> concurrent.addAlert(Level.values()[i % 2]));
+        IllegalStateException missing = assertThrows(IllegalStateException.class, concurrent::build);
+
+        assertThat(missing.getMessage(), containsString("enabled"));
+        // a failed build() changes neither the builder nor the buffers, it can be called again
+        assertThat(builder.alerts(), is(Set.of(Level.WARN, Level.ERROR)));
+        builder.enabled(true);
+        EnumSupport support = concurrent.addAlert(Level.ERROR).build();
+
+        assertThat(support.alerts(), is(Set.of(Level.TRACE, Level.DEBUG, Level.WARN, Level.ERROR)));
+        assertThat(support.threshold(), is(Level.DEBUG));
+        // the adds after build() are rejected instead of lost
+        assertThrows(IllegalStateException.class, () -> concurrent.addAlert(Level.INFO));
+        assertThat(concurrent.build(), is(equalTo(support)));
+    }
+
+    @Test
+    void should_not_lose_buffers_on_rejected_adds() {
+        BinarySupport.Builder.Concurrent concurrent = new BinarySupport.Builder.Concurrent(Fixtures.binarySupport());
+
+        concurrent.addTag("a");
+        assertThrows(NullPointerException.class, () -> concurrent.addTag(null));
+        BinarySupport support = concurrent.addTag("b").addSample(1).addSample(2).build();
+
+        assertThat(support.tags(), contains("a", "b"));
+        assertThat(support.samplesStream().sum(), is(3));
+        // build() drains the buffers
+        assertThat(concurrent.build().tags(), contains("a", "b"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.khaled.tests;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * EnumSupport is generated with builder.compact
+ *
+ * @author khaled
+ */
+public class EnumTest {
+
+    @Test
+    void should_use_enum_defaults() {
+        EnumSupport enumSupport = enumSupport();
+
+        assertThat(enumSupport.level(), is(Level.INFO));
+        assertThat(enumSupport.threshold(), is(Level.ERROR));
+        assertThat(enumSupport.enabled(), is(true));
+        assertThat(enumSupport.alerts(), is(equalTo(EnumSet.of(Level.WARN, Level.ERROR))));
+        assertThat(enumSupport.history(), is(equalTo(List.of())));
+    }
+
+    @Test
+    void should_build_enum_set() {
+        EnumSupport enumSupport = enumSupport().toBuilder()
+                .addAlert(Level.TRACE)
+                .addHistory(List.of(Level.DEBUG, Level.DEBUG))
+                .build();
+
+        assertThat(enumSupport.alerts(), is(equalTo(EnumSet.of(Level.TRACE, Level.WARN, Level.ERROR))));
+        assertThat(enumSupport.alerts().contains(Level.DEBUG), is(false));
+        assertThat(enumSupport.history(), is(equalTo(List.of(Level.DEBUG, Level.DEBUG))));
+        assertThrows(UnsupportedOperationException.class, () -> enumSupport.alerts().add(Level.INFO));
+    }
+
+    @Test
+    void should_copy_enum_set() {
+        Set<Level> alerts = EnumSet.of(Level.DEBUG);
+
+        EnumSupport enumSupport = enumSupport().withAlerts(alerts);
+        alerts.add(Level.TRACE);
+
+        assertThat(enumSupport.alerts(), is(equalTo(Set.of(Level.DEBUG))));
+        assertThrows(NullPointerException.class, () -> enumSupport().withAlerts(Set.of(Level.DEBUG, null)));
+    }
+
+    @Test
+    void should_compare_enum_properties() {
+        EnumSupport enumSupport = enumSupport();
+
+        assertThat(enumSupport, is(equalTo(enumSupport())));
+        assertThat(enumSupport.hashCode(), is(enumSupport().hashCode()));
+        assertThat(enumSupport.withLevel(Level.TRACE), is(not(equalTo(enumSupport))));
+        assertThat(enumSupport.withLevel(Level.TRACE).level(), is(Level.TRACE));
+        assertThat(enumSupport.withLevel(Level.TRACE).threshold(), is(Level.ERROR));
+        assertThat(enumSupport.withLevel(Level.TRACE).withLevel(Level.INFO), is(equalTo(enumSupport)));
+        assertThat(enumSupport.toBuilder().build(), is(equalTo(enumSupport)));
+    }
+
+    @Test
+    void should_reject_null_enum() {
+        assertThrows(NullPointerException.class, () -> EnumSupport.builder().level(null));
+        assertThrows(IllegalStateException.class, () -> EnumSupport.builder().enabled(true).build());
+    }
+
+    private static EnumSupport enumSupport() {
+        return EnumSupport.builder()
+                .threshold(Level.ERROR)
+                .enabled(true)
+                .build();
+    }
+}
@@ -1,5 +1,7 @@
 package com.khaled.tests;
 
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -60,4 +62,49 @@ public class EqualTest {
         assertThat(differentAge2, not(equalTo(differentAge1)));
     }
 
+    @Test
+    void shouldBeEqualWithNaN() {
+        AsyncConfig config1 = asyncConfig(Double.NaN);
+        AsyncConfig config2 = asyncConfig(Double.NaN);
+
+        assertThat(config1, equalTo(config2));
+        assertThat(config1.hashCode(), equalTo(config2.hashCode()));
+
+        assertThat(asyncConfig(0.0d), not(equalTo(asyncConfig(-0.0d))));
+    }
+
+    @Test
+    void shouldCompareCollections() {
+        List<String> shared = List.of("a", "b");
+        CollectionSupport collection1 = CollectionSupport.builder()
+                .list(shared)
+                .set(Set.of(1, 2))
+                .build();
+        CollectionSupport collection2 = CollectionSupport.builder()
+                .list(shared)
+                .set(Set.of(1, 2))
+                .build();
+        CollectionSupport differentSize = CollectionSupport.builder()
+                .list(List.of("a", "b", "c"))
+                .set(Set.of(1, 2))
+                .build();
+
+        assertThat(collection1, equalTo(collection2));
+        assertThat(collection1, not(equalTo(differentSize)));
+        assertThat(differentSize, not(equalTo(collection1)));
+    }
+
+    private static AsyncConfig asyncConfig(double doubleValue) {
+        return AsyncConfig.builder()
+                .value("value")
+                .booleanValue(true)
+                .byteValue((byte) 1)
+                .charValue('c')
+                .doubleValue(doubleValue)
+                .floatValue(1f)
+                .intValue(1)
+                .shortValue((short) 1)
+                .build();
+    }
+
 }
@@ -0,0 +1,63 @@
+package com.khaled.tests;
+
+/**
+ * the BinarySupport and Measurement instances the feature tests start from, every required property set
+ *
+ * @author khaled
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static BinarySupport.Builder binarySupport() {
+        return BinarySupport.builder()
+                .active(true)
+                .priority((byte) 1)
+                .port((short) 2)
+                .grade('g')
+                .count(3)
+                .id(4)
+                .ratio(0.5f)
+                .score(1.0)
+                .name("name");
+    }
+
+    // the same values as binarySupport()
+    static BinarySupport.Mutable binarySupport(BinarySupport.Mutable mutable) {
+        return mutable.active(true)
+                .priority((byte) 1)
+                .port((short) 2)
+                .grade('g')
+                .count(3)
+                .id(4)
+                .ratio(0.5f)
+                .score(1.0)
+                .name("name");
+    }
+
+    static Measurement measurement(int i) {
+        return Measurement.builder()
+                .valid(i % 2 == 1)
+                .quality((byte) 10)
+                .unit('°')
+                .channel((short) -1)
+                .sensor(i)
+                .weight(1.5f)
+                .timestamp(1_700_000_000_000L + i)
+                .value(-0.5)
+                .build();
+    }
+
+    // the same values as measurement(i)
+    static Measurement.Mutable measurement(Measurement.Mutable mutable, int i) {
+        return mutable.valid(i % 2 == 1)
+                .quality((byte) 10)
+                .unit('°')
+                .channel((short) -1)
+                .sensor(i)
+                .weight(1.5f)
+                .timestamp(1_700_000_000_000L + i)
+                .value(-0.5);
+    }
+}
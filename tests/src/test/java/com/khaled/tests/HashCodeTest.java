@@ -0,0 +1,39 @@
+package com.khaled.tests;
+
+import java.util.List;
+import java.util.Objects;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class HashCodeTest {
+
+    @Test
+    void should_match_objects_hash() {
+        Simple simple = Simple.builder()
+                .name("khaled")
+                .age(34)
+                .build();
+
+        assertThat(simple.hashCode(), equalTo(Objects.hash(simple.name(), simple.age())));
+    }
+
+    @Test
+    void should_cache_hash_code() {
+        // AllSupport is generated with builder.cacheHashCode, properties hash in declaration order
+        AllSupport o = AllSupport.builder()
+                .words(List.of("df", "sdfsfd"))
+                .name("khaled")
+                .opt(23)
+                .age(34)
+                .build();
+
+        int expected = Objects.hash(o.words(), o.name(), o.age(), o.opt());
+        assertThat(o.hashCode(), equalTo(expected));
+        assertThat(o.hashCode(), equalTo(expected));
+    }
+}
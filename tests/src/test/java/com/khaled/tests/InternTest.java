@@ -0,0 +1,78 @@
+package com.khaled.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.Test;
+
+/**
+ * DefaultSupport is generated with builder.intern
+ *
+ * @author khaled
+ */
+public class InternTest {
+
+    @Test
+    void should_return_canonical_instance() {
+        DefaultSupport first = defaultSupport(40);
+        DefaultSupport second = defaultSupport(40);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(defaultSupport(41), is(not(equalTo(first))));
+        assertThat(DefaultSupport.internedCount(), is(greaterThanOrEqualTo(2)));
+    }
+
+    @Test
+    void should_intern_with_methods() {
+        DefaultSupport first = defaultSupport(42);
+        DefaultSupport second = defaultSupport(43);
+
+        assertThat(second.withAge(42), is(sameInstance(first)));
+        assertThat(first.toBuilder().build(), is(sameInstance(first)));
+    }
+
+    @Test
+    void should_intern_across_threads() throws Exception {
+        DefaultSupport expected = defaultSupport(44);
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<DefaultSupport>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> defaultSupport(44)));
+            }
+            for (Future<DefaultSupport> future : futures) {
+                assertThat(future.get(), is(sameInstance(expected)));
+            }
+        }
+    }
+
+    @Test
+    void should_not_retain_unreachable_instances() throws InterruptedException {
+        long evictions = DefaultSupport.internEvictionCount();
+        for (int i = 0; i < 1_000; i++) {
+            defaultSupport(1_000 + i);
+        }
+
+        for (int attempt = 0; attempt < 50 && DefaultSupport.internEvictionCount() == evictions; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(DefaultSupport.internEvictionCount(), is(greaterThan(evictions)));
+    }
+
+    private static DefaultSupport defaultSupport(int age) {
+        return DefaultSupport.builder()
+                .doubleValue(54d)
+                .age(age)
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.khaled.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * BinarySupport, AllSupport, EnumSupport, MapSupport, OptionalSupport and KeySupport are generated with builder.json
+ *
+ * @author khaled
+ */
+public class JsonCodecTest {
+
+    @Test
+    void should_write_members_in_declaration_order() {
+        AllSupport allSupport = AllSupport.builder().addWord("a").addWord("b\"").name("n").age(42).build();
+
+        assertThat(allSupport.toJson(), is("{\"words\":[\"a\",\"b\\\"\"],\"name\":\"n\",\"age\":42}"));
+        assertThat(allSupport.withOpt(Optional.of(7)).toJson(),
+                is("{\"words\":[\"a\",\"b\\\"\"],\"name\":\"n\",\"age\":42,\"opt\":7}"));
+    }
+
+    @Test
+    void should_omit_empty_optionals() {
+        OptionalSupport empty = OptionalSupport.builder().build();
+        OptionalSupport present = OptionalSupport.builder().name("x").build();
+
+        assertThat(empty.toJson(), is("{}"));
+        assertThat(present.toJson(), is("{\"name\":\"x\"}"));
+        assertThat(OptionalSupport.fromJson(bytes("{}")), is(equalTo(empty)));
+        assertThat(OptionalSupport.fromJson(bytes("{\"name\":null}")), is(equalTo(empty)));
+    }
+
+    @Test
+    void should_round_trip_all_types() {
+        BinarySupport binarySupport = binarySupport();
+
+        BinarySupport read = BinarySupport.fromJson(bytes(binarySupport.toJson()));
+
+        assertThat(read, is(equalTo(binarySupport)));
+        assertThat(read.name(), is("tab\t \"quoted\" \\ é 😀 \u0001"));
+        assertThat(read.samples(), is(equalTo(List.of(0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE))));
+    }
+
+    @Test
+    void should_round_trip_enums_and_maps() {
+        EnumSupport enumSupport = EnumSupport.builder()
+                .threshold(Level.WARN)
+                .enabled(false)
+                .history(List.of(Level.DEBUG))
+                .build();
+        MapSupport mapSupport = MapSupport.builder()
+                .putSetting("depth", -7)
+                .putOffset(-1, Long.MIN_VALUE)
+                .putWeight(3L, 0.25)
+                .labels(Map.of(Level.INFO, "info"))
+                .build();
+
+        assertThat(enumSupport.toJson(), is("{\"level\":\"INFO\",\"threshold\":\"WARN\",\"enabled\":false,"
+                + "\"alerts\":[\"WARN\",\"ERROR\"],\"history\":[\"DEBUG\"]}"));
+        assertThat(EnumSupport.fromJson(bytes(enumSupport.toJson())), is(equalTo(enumSupport)));
+        assertThat(MapSupport.fromJson(bytes(mapSupport.toJson())), is(equalTo(mapSupport)));
+    }
+
+    @Test
+    void should_skip_unknown_members() {
+        String json = """
+                      { "extra" : {"nested": [1, 2.5e3, true, null, "\\"x\\""]},
+                        "n\\u0061me" : "n", "age": -3, "words" : [ ] , "more": false }
+                      """;
+
+        AllSupport allSupport = AllSupport.fromJson(bytes(json));
+
+        assertThat(allSupport, is(equalTo(AllSupport.builder().name("n").age(-3).build())));
+    }
+
+    @Test
+    void should_read_from_reader_across_buffer_refills() throws IOException {
+        BinarySupport binarySupport = binarySupport().toBuilder()
+                .tags(List.of("x".repeat(10_000), "y".repeat(10_000)))
+                .build();
+
+        assertThat(BinarySupport.fromJson(new StringReader(binarySupport.toJson())), is(equalTo(binarySupport)));
+        assertThat(BinarySupport.fromJson(oneCharAtATime(binarySupport.toJson())), is(equalTo(binarySupport)));
+    }
+
+    @Test
+    void should_write_utf8_to_output_stream() throws IOException {
+        BinarySupport binarySupport = binarySupport();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // the stream stays open for the caller
+        OutputStream unclosable = new FilterOutputStream(output) {
+            @Override
+            public void close() {
+                throw new AssertionError("closed");
+            }
+        };
+
+        binarySupport.writeJson(unclosable);
+        binarySupport.writeJson(unclosable);
+
+        assertThat(output.toString(StandardCharsets.UTF_8), is(binarySupport.toJson().repeat(2)));
+        assertThat(BinarySupport.fromJson(bytes(binarySupport.toJson())), is(equalTo(binarySupport)));
+    }
+
+    @Test
+    void should_reject_malformed_json() {
+        String json = binarySupport().toJson();
+
+        assertThrows(IllegalStateException.class, () -> AllSupport.fromJson(bytes("{\"name\":\"n\",}")));
+        assertThrows(IllegalStateException.class, () -> AllSupport.fromJson(bytes("{\"name\":\"n\" \"age\":1}")));
+        assertThrows(IllegalStateException.class, () -> AllSupport.fromJson(bytes("{\"name\":\"n\",\"age\":1} {}")));
+        assertThrows(IllegalStateException.class, () -> AllSupport.fromJson(bytes("{\"name\":\"n")));
+        assertThrows(IllegalStateException.class,
+                () -> AllSupport.fromJson(bytes("{\"name\":\"n\",\"age\":2147483648}")));
+        assertThrows(IllegalStateException.class,
+                () -> BinarySupport.fromJson(bytes(json.replace("\"priority\":-128", "\"priority\":128"))));
+        assertThrows(IllegalStateException.class,
+                () -> binarySupport().toBuilder().score(Double.NaN).build().toJson());
+    }
+
+    @Test
+    void should_report_bad_values_as_malformed_json() {
+        String json = binarySupport().toJson();
+        String maps = MapSupport.builder().putOffset(1, 1L).labels(Map.of(Level.INFO, "info")).build().toJson();
+
+        assertMalformed(() -> EnumSupport.fromJson(bytes("{\"level\":\"NOPE\",\"enabled\":true}")));
+        assertMalformed(() -> MapSupport.fromJson(bytes(maps.replace("\"INFO\":", "\"NOPE\":"))));
+        assertMalformed(() -> MapSupport.fromJson(bytes(maps.replace("\"1\":", "\"one\":"))));
+        assertMalformed(() -> BinarySupport.fromJson(bytes(json.replace("\"score\":-1.0E-300", "\"score\":1e400"))));
+        assertMalformed(() -> BinarySupport.fromJson(bytes(json.replace("\"ratio\":0.1", "\"ratio\":-1e39"))));
+        assertMalformed(() -> BinarySupport.fromJson(bytes(json.replace("\"score\":-1.0E-300", "\"score\":1-2"))));
+    }
+
+    // the values json has to escape or write exactly
+    private static BinarySupport binarySupport() {
+        return Fixtures.binarySupport()
+                .priority((byte) -128)
+                .port((short) 8080)
+                .grade('"')
+                .count(-1)
+                .id(Long.MIN_VALUE)
+                .ratio(0.1f)
+                .score(-1.0e-300)
+                .name("tab\t \"quoted\" \\ é 😀 \u0001")
+                .parent(9L)
+                .addTag("a")
+                .samples(List.of(0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .weights(Set.of(1.5))
+                .limits(Map.of("max", 300))
+                .build();
+    }
+
+    @Test
+    void should_only_accept_exact_boolean_and_char_keys() {
+        KeySupport keys = KeySupport.builder()
+                .flags(Map.of(true, "on", false, "off"))
+                .letters(Map.of('a', 1, '"', 2))
+                .build();
+
+        assertThat(KeySupport.fromJson(bytes(keys.toJson())), is(equalTo(keys)));
+        assertMalformed(() -> KeySupport.fromJson(bytes("{\"flags\":{\"yes\":\"on\"}}")));
+        assertMalformed(() -> KeySupport.fromJson(bytes("{\"flags\":{\"True\":\"on\"}}")));
+        assertMalformed(() -> KeySupport.fromJson(bytes("{\"letters\":{\"ab\":1}}")));
+        assertMalformed(() -> KeySupport.fromJson(bytes("{\"letters\":{\"\":1}}")));
+    }
+
+    private static void assertMalformed(Executable executable) {
+        assertThat(assertThrows(IllegalStateException.class, executable).getMessage(), startsWith("malformed JSON"));
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Reader oneCharAtATime(String json) {
+        return new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position == json.length()) {
+                    return -1;
+                }
+                buffer[offset] = json.charAt(position++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.khaled.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class LazyCollectionTest {
+
+    @Test
+    void should_share_default_constants() {
+        SupportAllDefault prototype1 = SupportAllDefault.builder().build();
+        SupportAllDefault prototype2 = SupportAllDefault.builder().build();
+
+        assertThat(prototype1.strings(), is(sameInstance(prototype2.strings())));
+        assertThat(prototype1.bytes(), is(sameInstance(prototype2.bytes())));
+    }
+
+    @Test
+    void should_copy_immutable_value_once() {
+        List<String> list = List.of("a", "b");
+        CollectionSupport prototype = CollectionSupport.builder()
+                .list(list)
+                .set(Set.of(1))
+                .build();
+
+        // List.copyOf keeps an already immutable list, the implementation reuses the builder's copy
+        assertThat(prototype.list(), is(sameInstance(list)));
+    }
+
+    @Test
+    void should_copy_on_first_mutation() {
+        List<String> words = new ArrayList<>(List.of("a"));
+        SingularSupport.Builder builder = SingularSupport.builder()
+                .word(words)
+                .addWord("b");
+        words.add("c");
+
+        SingularSupport prototype = builder.build();
+
+        assertThat(prototype.word(), is(equalTo(List.of("a", "b"))));
+        assertThat(prototype.word(), is(not(sameInstance(words))));
+    }
+
+    @Test
+    void should_not_change_defaults() {
+        SupportAllDefault changed = SupportAllDefault.builder()
+                .addStrings(List.of("other"))
+                .addInts(List.of(6))
+                .build();
+        SupportAllDefault defaults = SupportAllDefault.builder().build();
+
+        assertThat(changed.strings(), is(equalTo(List.of("khaled", "abderrahim", "other"))));
+        assertThat(changed.ints(), is(equalTo(List.of(1, 2, 3, 4, 5, 6))));
+        assertThat(defaults.strings(), is(equalTo(SupportAllDefaultBlueprint.STRINGS)));
+        assertThat(defaults.ints(), is(equalTo(SupportAllDefaultBlueprint.INTS)));
+    }
+}
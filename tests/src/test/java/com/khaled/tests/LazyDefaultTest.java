@@ -0,0 +1,117 @@
+package com.khaled.tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * LazyDefaultSupport is also generated with builder.compact, builder.json, builder.batch and builder.mutable, the
+ * banner default is only left unset by should_compute_the_default_once_on_first_read
+ *
+ * @author khaled
+ */
+public class LazyDefaultTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void should_compute_the_default_once_on_first_read() throws Exception {
+        LazyDefaultSupport lazy = LazyDefaultSupport.builder().name("lazy").build();
+        LazyDefaultSupport copy = lazy.toBuilder().build().withName("copy").withLevel(Level.ERROR);
+
+        assertThat(LazyDefaultSupport.BANNER_LOADS.get(), is(0));
+
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<String> read = () -> {
+            start.await();
+            return lazy.banner();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> banners = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                banners.add(executor.submit(read));
+            }
+            start.countDown();
+            String first = banners.getFirst().get();
+            for (Future<String> banner : banners) {
+                assertThat(banner.get(), is(sameInstance(first)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(lazy.banner(), is("lazy-banner"));
+        assertThat(copy.banner(), is(sameInstance(lazy.banner())));
+        assertThat(LazyDefaultSupport.BANNER_LOADS.get(), is(1));
+    }
+
+    @Test
+    void should_resolve_unset_defaults() {
+        LazyDefaultSupport support = LazyDefaultSupport.builder().name("name").banner("banner").build();
+
+        assertThat(support.level(), is(Level.WARN));
+        assertThat(support.separator(), is(System.lineSeparator()));
+        assertThat(support.withLevel(Level.ERROR).level(), is(Level.ERROR));
+        assertThat(support.withLevel(Level.WARN), is(not(sameInstance(support))));
+        assertThat(support.toString(), containsString("level=WARN"));
+        assertThrows(NullPointerException.class, () -> support.withSeparator(null));
+    }
+
+    @Test
+    void should_equal_the_explicit_defaults() {
+        LazyDefaultSupport unset = LazyDefaultSupport.builder().name("name").banner("banner").build();
+        LazyDefaultSupport explicit = LazyDefaultSupport.builder()
+                .name("name")
+                .banner("banner")
+                .level(Level.WARN)
+                .separator(System.lineSeparator())
+                .build();
+
+        assertThat(unset, is(equalTo(explicit)));
+        assertThat(unset.hashCode(), is(explicit.hashCode()));
+        assertThat(unset.withSeparator(";"), is(not(equalTo(explicit))));
+    }
+
+    @Test
+    void should_read_the_default_from_the_builder() {
+        LazyDefaultSupport.Builder builder = LazyDefaultSupport.builder().name("name").banner("banner");
+
+        assertThat(builder.level(), is(Level.WARN));
+        assertThat(builder.level(Level.INFO).level(), is(Level.INFO));
+        assertThat(builder.build().level(), is(Level.INFO));
+    }
+
+    @Test
+    void should_resolve_defaults_in_json_batch_and_mutable() throws IOException {
+        LazyDefaultSupport support = LazyDefaultSupport.builder().name("name").banner("banner").build();
+
+        String json = support.toJson();
+        assertThat(json, containsString("\"level\":\"WARN\""));
+        assertThat(LazyDefaultSupport.fromJson(json.getBytes(StandardCharsets.UTF_8)),
+                is(equalTo(support)));
+
+        LazyDefaultSupport.Batch batch = new LazyDefaultSupport.Batch().append(support);
+        assertThat(batch.get(0).level(), is(Level.WARN));
+        assertThat(batch.get(0), is(equalTo(support)));
+
+        LazyDefaultSupport.Mutable mutable = new LazyDefaultSupport.Mutable().name("name").banner("banner");
+        assertThat(mutable.separator(), is(System.lineSeparator()));
+        assertThat(mutable.freeze(), is(equalTo(support)));
+        assertThat(mutable.clear().name("name").banner("banner").level(Level.ERROR).freeze().level(), is(Level.ERROR));
+    }
+}
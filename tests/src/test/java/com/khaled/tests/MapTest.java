@@ -0,0 +1,137 @@
+package com.khaled.tests;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ *
+ * @author khaled
+ */
+public class MapTest {
+
+    @Test
+    void should_use_map_defaults() {
+        MapSupport mapSupport = MapSupport.builder().build();
+
+        assertThat(mapSupport.settings(), is(equalTo(Map.of("timeout", 30, "retries", 3))));
+        assertThat(mapSupport.offsets(), is(equalTo(Map.of())));
+        assertThat(mapSupport.labels(), is(equalTo(Map.of(Level.WARN, "warning", Level.ERROR, "error"))));
+    }
+
+    @Test
+    void should_put_entries() {
+        MapSupport mapSupport = MapSupport.builder()
+                .putSetting("timeout", 60)
+                .putSetting("delay", 5)
+                .putOffset(0, 7L)
+                .putOffset(-1, 8L)
+                .putOffset(42, 9L)
+                .putWeight(3L, 0.5)
+                .build();
+
+        assertThat(mapSupport.settings(), is(equalTo(Map.of("timeout", 60, "retries", 3, "delay", 5))));
+        assertThat(mapSupport.offsets(), is(equalTo(Map.of(0, 7L, -1, 8L, 42, 9L))));
+        assertThat(mapSupport.offsetsGetOrDefault(0, -1L), is(7L));
+        assertThat(mapSupport.offsetsGetOrDefault(42, -1L), is(9L));
+        assertThat(mapSupport.offsetsGetOrDefault(43, -1L), is(-1L));
+        assertThat(mapSupport.offsetsContainsKey(-1), is(true));
+        assertThat(mapSupport.offsetsContainsKey(1), is(false));
+        assertThat(mapSupport.offsets().get(43), is(nullValue()));
+        assertThat(mapSupport.weightsGetOrDefault(3L, 0), is(0.5));
+    }
+
+    @Test
+    void should_look_up_large_tables() {
+        Map<Integer, Long> offsets = new HashMap<>();
+        Map<String, Integer> settings = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            offsets.put(i * 31, (long) i);
+            settings.put("key" + i, i);
+        }
+
+        MapSupport mapSupport = MapSupport.builder()
+                .offsets(offsets)
+                .settings(settings)
+                .build();
+
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(mapSupport.offsetsGetOrDefault(i * 31, -1L), is((long) i));
+            assertThat(mapSupport.settings().get("key" + i), is(i));
+        }
+        assertThat(mapSupport.offsetsContainsKey(1), is(false));
+        assertThat(mapSupport.offsets(), is(equalTo(offsets)));
+        assertThat(offsets, is(equalTo(mapSupport.offsets())));
+        assertThat(mapSupport.offsets().hashCode(), is(offsets.hashCode()));
+        assertThat(mapSupport.settings(), is(equalTo(settings)));
+        assertThat(mapSupport.settings().hashCode(), is(settings.hashCode()));
+    }
+
+    @Test
+    void should_be_smaller_than_map_copy() {
+        Map<Integer, Long> offsets = new HashMap<>();
+        Map<String, Integer> settings = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            offsets.put(i, (long) i);
+            settings.put("key" + i, i);
+        }
+
+        MapSupport mapSupport = MapSupport.builder()
+                .offsets(offsets)
+                .settings(settings)
+                .build();
+
+        assertThat(GraphLayout.parseInstance(mapSupport.settings()).totalSize(),
+                is(lessThan(GraphLayout.parseInstance(Map.copyOf(settings)).totalSize())));
+        // no boxed entries at all
+        assertThat(GraphLayout.parseInstance(mapSupport.offsets()).totalSize(),
+                is(lessThan(GraphLayout.parseInstance(Map.copyOf(offsets)).totalSize() / 2)));
+    }
+
+    @Test
+    void should_share_and_copy_maps() {
+        Map<String, Integer> settings = new LinkedHashMap<>(Map.of("a", 1));
+        MapSupport mapSupport = MapSupport.builder().settings(settings).build();
+        settings.put("b", 2);
+
+        assertThat(mapSupport.settings(), is(equalTo(Map.of("a", 1))));
+        assertThat(mapSupport.toBuilder().build().settings(), is(sameInstance(mapSupport.settings())));
+        assertThat(mapSupport.toBuilder().build(), is(equalTo(mapSupport)));
+        assertThat(mapSupport.withSettings(Map.of("a", 1)), is(sameInstance(mapSupport)));
+        assertThat(mapSupport.withSettings(Map.of("a", 2)), is(not(equalTo(mapSupport))));
+        assertThat(mapSupport.withLabels(Map.of(Level.INFO, "info")).labels(), is(equalTo(Map.of(Level.INFO, "info"))));
+        assertThrows(UnsupportedOperationException.class, () -> mapSupport.settings().put("c", 3));
+        assertThrows(UnsupportedOperationException.class, () -> mapSupport.labels().put(Level.INFO, "info"));
+    }
+
+    @Test
+    void should_reject_null() {
+        Map<String, Integer> withNull = new HashMap<>();
+        withNull.put("a", null);
+
+        assertThrows(NullPointerException.class, () -> MapSupport.builder().putSetting("a", null));
+        assertThrows(NullPointerException.class, () -> MapSupport.builder().settings(withNull));
+        assertThrows(NullPointerException.class, () -> MapSupport.builder().addSettings(withNull).build());
+    }
+
+    @Test
+    void should_render_map() {
+        MapSupport mapSupport = MapSupport.builder()
+                .settings(Map.of("a", 1))
+                .putOffset(2, 3L)
+                .labels(Map.of())
+                .build();
+
+        assertThat(mapSupport.toString(), is(equalTo("MapSupportImpl{settings={a=1}, offsets={2=3}, weights={}, labels={}}")));
+    }
+}
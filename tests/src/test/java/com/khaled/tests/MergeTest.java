@@ -0,0 +1,138 @@
+package com.khaled.tests;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SingularSupport, MapSupport, BinarySupport, DefaultSupport, LazyDefaultSupport, EnumSupport and SupportAllDefault are
+ * generated with builder.merge
+ *
+ * @author khaled
+ */
+public class MergeTest {
+
+    private static final int COUNT = 1_000_000;
+
+    @Test
+    void should_append_collections_and_maps() {
+        BinarySupport.Builder left = Fixtures.binarySupport().tags(List.of("a")).addSample(1).weights(Set.of(1.0))
+                .limits(Map.of("max", 1, "min", 0));
+        BinarySupport.Builder right = BinarySupport.builder().tags(List.of("b", "a")).addSample(2).addSample(3)
+                .weights(Set.of(1.0, 2.0)).limits(Map.of("max", 2));
+
+        BinarySupport merged = left.merge(right).build();
+
+        assertThat(merged.tags(), contains("a", "b", "a"));
+        assertThat(merged.samples(), contains(1, 2, 3));
+        assertThat(merged.weights(), is(Set.of(1.0, 2.0)));
+        assertThat(merged.limits(), is(Map.of("max", 2, "min", 0)));
+        assertThat(right.samples(), contains(2, 3));
+
+        MapSupport maps = MapSupport.builder().putOffset(1, 1L).merge(MapSupport.builder().putOffset(2, 2L)).build();
+        assertThat(maps.offsets(), is(Map.of(1, 1L, 2, 2L)));
+        assertThat(maps.settings(), is(Map.of("timeout", 30, "retries", 3)));
+    }
+
+    @Test
+    void should_append_the_defaults_of_other_only_once_changed() {
+        SupportAllDefault defaults = SupportAllDefault.builder().build();
+
+        assertThat(SupportAllDefault.builder().merge(SupportAllDefault.builder()).build(), is(equalTo(defaults)));
+        SupportAllDefault merged = SupportAllDefault.builder()
+                .merge(SupportAllDefault.builder().addStrings(List.of("x")).ints(List.of(9)))
+                .build();
+        assertThat(merged.strings(), contains("khaled", "abderrahim", "khaled", "abderrahim", "x"));
+        assertThat(merged.ints(), contains(1, 2, 3, 4, 5, 9));
+        assertThat(merged.longs(), is(equalTo(defaults.longs())));
+
+        MapSupport maps = MapSupport.builder().putSetting("timeout", 60).merge(MapSupport.builder()).build();
+        assertThat(maps.settings(), is(Map.of("timeout", 60, "retries", 3)));
+        assertThat(MapSupport.builder().merge(MapSupport.builder().putSetting("depth", 1)).build().settings(),
+                is(Map.of("timeout", 30, "retries", 3, "depth", 1)));
+    }
+
+    @Test
+    void should_take_the_scalars_other_set() {
+        BinarySupport.Builder left = Fixtures.binarySupport().nickname("left");
+        BinarySupport merged = left.merge(BinarySupport.builder().count(7).name("right")).build();
+
+        assertThat(merged.count(), is(7));
+        assertThat(merged.name(), is("right"));
+        assertThat(merged.id(), is(4L));
+        // an empty optional does not clear
+        assertThat(merged.nickname(), is(Optional.of("left")));
+        // the required properties other set count as set
+        assertThrows(IllegalStateException.class, () -> BinarySupport.builder().merge(BinarySupport.builder()).build());
+        assertThat(BinarySupport.builder().merge(Fixtures.binarySupport()).build(), is(equalTo(Fixtures.binarySupport().build())));
+    }
+
+    @Test
+    void should_take_the_values_other_set_even_to_their_default() {
+        DefaultSupport merged = DefaultSupport.builder()
+                .name("left")
+                .age(1)
+                .bit((byte) 7)
+                .merge(DefaultSupport.builder().bit((byte) 5).doubleValue(2.0).name(DefaultSupport.DEFAULT_NAME))
+                .build();
+
+        assertThat(merged.name(), is(DefaultSupport.DEFAULT_NAME));
+        assertThat(merged.bit(), is((byte) 5));
+        assertThat(merged.age(), is(1));
+        assertThat(merged.doubleValue(), is(2.0));
+        // a default other did not set is not taken
+        DefaultSupport.Builder left = DefaultSupport.builder().name("left").age(1).doubleValue(1.0);
+        assertThat(left.merge(DefaultSupport.builder()).build().name(), is("left"));
+        assertThat(left.merge(DefaultSupport.builder().from(DefaultSupport.builder().age(2).doubleValue(0.0).build()))
+                .build()
+                .name(), is(DefaultSupport.DEFAULT_NAME));
+
+        LazyDefaultSupport lazy = LazyDefaultSupport.builder()
+                .name("left")
+                .banner("left")
+                .level(Level.ERROR)
+                .merge(LazyDefaultSupport.builder().level(Level.WARN))
+                .build();
+        assertThat(lazy.banner(), is("left"));
+        assertThat(lazy.level(), is(Level.WARN));
+    }
+
+    @Test
+    void should_collect_in_encounter_order() {
+        SingularSupport parallel = IntStream.range(0, COUNT)
+                .boxed()
+                .parallel()
+                .collect(SingularSupport.collectS())
+                .build();
+
+        assertArrayEquals(IntStream.range(0, COUNT).toArray(), parallel.sArray());
+
+        List<String> words = IntStream.range(0, 10_000).mapToObj(i -> "word-" + i).toList();
+        SingularSupport.Builder collected = words.parallelStream().collect(SingularSupport.collectWord());
+        assertThat(collected.build().word(), is(equalTo(words)));
+        assertThat(collected.addWord("last").build().word().getLast(), is("last"));
+        assertThat(Stream.of(3, 1, 3).collect(SingularSupport.collectNumbers()).build().numbers(), is(Set.of(1, 3)));
+    }
+
+    @Test
+    void should_keep_the_defaults_once() {
+        EnumSupport.Builder collected = Stream.of(Level.TRACE, Level.WARN, Level.DEBUG)
+                .parallel()
+                .collect(EnumSupport.collectAlerts());
+
+        EnumSupport support = collected.threshold(Level.INFO).enabled(true).build();
+
+        assertThat(support.alerts(), is(Set.of(Level.TRACE, Level.DEBUG, Level.WARN, Level.ERROR)));
+        assertThat(support.level(), is(Level.INFO));
+    }
+}
@@ -0,0 +1,160 @@
+package com.khaled.tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinarySupport, Measurement, MapSupport, DefaultSupport, EnumSupport and Simple are generated with builder.mutable
+ *
+ * @author khaled
+ */
+public class MutableTest {
+
+    private static final int RECORDS = 100_000;
+
+    @Test
+    void should_freeze_the_kept_records_only() {
+        Measurement.Mutable record = new Measurement.Mutable();
+        List<Measurement> kept = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            Fixtures.measurement(record.clear(), i);
+            if (record.sensor() % 1_000 == 0) {
+                kept.add(record.freeze());
+            }
+        }
+
+        assertThat(kept.size(), is(RECORDS / 1_000));
+        assertThat(kept.getFirst(), is(equalTo(Fixtures.measurement(0))));
+        assertThat(kept.getLast().timestamp(), is(1_700_000_000_000L + 99_000));
+        assertThat(record, is(equalTo(Fixtures.measurement(RECORDS - 1))));
+        assertThat(record.hashCode(), is(Fixtures.measurement(RECORDS - 1).hashCode()));
+    }
+
+    @Test
+    void should_copy_what_was_set_on_freeze() {
+        List<String> tags = new ArrayList<>(List.of("a"));
+        int[] samples = {1, 2};
+        BinarySupport.Mutable mutable = Fixtures.binarySupport(new BinarySupport.Mutable())
+                .nickname("nick")
+                .tags(tags)
+                .samples(samples)
+                .weights(Set.of(0.5))
+                .limits(Map.of("max", 1));
+
+        BinarySupport frozen = mutable.freeze();
+        tags.add("b");
+        samples[0] = 7;
+
+        assertThat(mutable.tags(), contains("a", "b"));
+        assertThat(mutable.samplesAt(0), is(7));
+        assertThat(frozen.tags(), contains("a"));
+        assertThat(frozen.samplesAt(0), is(1));
+        assertThat(frozen.nickname(), is(Optional.of("nick")));
+        assertThat(mutable.nickname(null).nicknameOrNull(), is(nullValue()));
+        assertThat(mutable.nicknameOrElse("none"), is("none"));
+        assertThat(mutable.freeze().nickname(), is(Optional.empty()));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.tags().add("c"));
+    }
+
+    @Test
+    void should_validate_like_build() {
+        BinarySupport.Mutable mutable = new BinarySupport.Mutable().count(1).name("name");
+
+        IllegalStateException frozen = assertThrows(IllegalStateException.class, mutable::freeze);
+        IllegalStateException built = assertThrows(IllegalStateException.class,
+                () -> BinarySupport.builder().count(1).name("name").build());
+
+        assertThat(frozen.getMessage(), is(built.getMessage()));
+        assertThat(frozen.getMessage(), containsString("active"));
+        assertThrows(NullPointerException.class, () -> mutable.name(null));
+        // clear() forgets the required properties that were set
+        Fixtures.binarySupport(mutable).freeze();
+        assertThrows(IllegalStateException.class, () -> mutable.clear().name("name").freeze());
+    }
+
+    @Test
+    void should_clear_to_the_builder_defaults() {
+        DefaultSupport.Mutable mutable = new DefaultSupport.Mutable().name("other").age(1).doubleValue(1.0);
+
+        mutable.clear();
+
+        assertThat(mutable.name(), is(DefaultSupport.DEFAULT_NAME));
+        assertThat(mutable.bit(), is(DefaultSupport.DEFAULT_BIT));
+        assertThat(mutable.doubleValue(), is(nullValue()));
+        DefaultSupport interned = DefaultSupport.builder().age(5).doubleValue(2.0).build();
+        assertThat(mutable.age(5).doubleValue(2.0).freeze(), is(sameInstance(interned)));
+
+        EnumSupport.Mutable enums = new EnumSupport.Mutable().threshold(Level.WARN).enabled(true);
+        assertThat(enums.level(), is(Level.INFO));
+        assertThat(enums.alerts(), is(Set.of(Level.WARN, Level.ERROR)));
+        assertThat(enums.freeze(), is(equalTo(EnumSupport.builder().threshold(Level.WARN).enabled(true).build())));
+    }
+
+    @Test
+    void should_implement_the_prototype() {
+        MapSupport.Mutable maps = new MapSupport.Mutable().offsets(Map.of(1, 10L));
+        MapSupport frozen = maps.freeze();
+
+        assertThat(maps.offsetsGetOrDefault(1, -1L), is(10L));
+        assertThat(maps.offsetsContainsKey(2), is(false));
+        assertThat(maps.settings(), is(frozen.settings()));
+        assertThat(maps.withOffsets(Map.of()), is(equalTo(frozen.withOffsets(Map.of()))));
+        assertThat(maps.hash64(), is(frozen.hash64()));
+
+        Simple.Mutable simple = new Simple.Mutable().name("khaled").age(34);
+        Simple built = Simple.builder().name("khaled").age(34).build();
+        assertThat(simple.toBuilder().build(), is(equalTo(built)));
+        assertThat(simple.compareTo(built), is(0));
+        assertThat(simple.toString(), is(built.toString()));
+        assertThat(built.equals(simple), is(true));
+    }
+
+    @Test
+    void should_compare_and_render_without_validating() {
+        BinarySupport.Mutable half = new BinarySupport.Mutable().count(1).name("name").tags(List.of("a"));
+        BinarySupport.Mutable other = new BinarySupport.Mutable().count(1).name("name").tags(List.of("a"));
+        BinarySupport.Mutable full = Fixtures.binarySupport(new BinarySupport.Mutable()).samples(new int[]{1, 2});
+        BinarySupport built = full.freeze();
+
+        assertThat(half, is(equalTo(other)));
+        assertThat(half.hashCode(), is(other.hashCode()));
+        assertThat(half.toString(), containsString("count=1, id=0, ratio=0.0, score=0.0, name=name"));
+        assertThat(new BinarySupport.Mutable().clear().toString(), containsString("name=null"));
+        assertThat(half.equals(built), is(false));
+        assertThat(full, is(equalTo(built)));
+        assertThat(built.equals(full), is(true));
+        assertThat(full.hashCode(), is(built.hashCode()));
+        assertThat(full.toString(), is(built.toString()));
+    }
+
+    @Test
+    void should_not_allocate_per_record() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Measurement.Mutable record = new Measurement.Mutable();
+        long sum = 0;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < RECORDS; i++) {
+            Fixtures.measurement(record.clear(), i);
+            sum += record.sensor() + record.timestamp();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(sum, is((long) RECORDS * (RECORDS - 1) + 1_700_000_000_000L * RECORDS));
+        // a frozen Measurement per record would take several megabytes
+        assertThat(allocated, is(lessThan(256L * 1024)));
+    }
+}
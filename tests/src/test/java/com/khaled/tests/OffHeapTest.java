@@ -0,0 +1,153 @@
+package com.khaled.tests;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.management.ManagementFactory;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measurement and Flags are generated with builder.offHeap by the offheap profile, active on java 21 only since
+ * java.lang.foreign is a preview API there
+ *
+ * @author khaled
+ */
+public class OffHeapTest {
+
+    private static final int RECORDS = 1_000_000;
+
+    @Test
+    void should_lay_out_widest_first() {
+        assertThat(Measurement.LAYOUT.byteSize(), is(32L));
+        assertThat(Measurement.LAYOUT.byteAlignment(), is(8L));
+        assertThat(Measurement.LAYOUT.byteOffset(PathElement.groupElement("timestamp")), is(0L));
+        assertThat(Measurement.LAYOUT.byteOffset(PathElement.groupElement("value")), is(8L));
+        assertThat(Measurement.LAYOUT.byteOffset(PathElement.groupElement("valid")), is(28L));
+        assertThat(Measurement.LAYOUT.byteOffset(PathElement.groupElement("quality")), is(29L));
+        // 12 booleans, a byte, a short and a char padded to the char alignment
+        assertThat(Flags.LAYOUT.byteSize(), is(18L));
+    }
+
+    @Test
+    void should_read_copied_records() {
+        Measurement measurement = Fixtures.measurement(7);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(Measurement.LAYOUT);
+            measurement.copyTo(segment);
+
+            Measurement.View view = Measurement.View.over(segment);
+
+            assertThat(view.sensor(), is(7));
+            assertThat(view.unit(), is('°'));
+            assertThat(view.value(), is(-0.5));
+            assertThat(view.valid(), is(true));
+            assertThat(view, is(equalTo(measurement)));
+            assertThat(measurement, is(equalTo(view)));
+            assertThat(view.hashCode(), is(measurement.hashCode()));
+            assertThat(view.toString(), is(measurement.toString()));
+        }
+    }
+
+    @Test
+    void should_scan_records_with_one_view() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(Measurement.LAYOUT.byteSize() * RECORDS);
+            for (int i = 0; i < RECORDS; i++) {
+                Fixtures.measurement(i).copyTo(segment, i * Measurement.LAYOUT.byteSize());
+            }
+            Measurement.View view = Measurement.View.over(segment);
+
+            long sum = scan(view);
+            long before = allocatedBytes();
+            sum += scan(view);
+            long allocated = allocatedBytes() - before;
+
+            assertThat(view.count(), is((long) RECORDS));
+            assertThat(sum, is(2 * ((long) RECORDS * (RECORDS - 1) / 2 + RECORDS * 10L)));
+            assertThat(view.at(RECORDS - 1).materialize(), is(equalTo(Fixtures.measurement(RECORDS - 1))));
+            assertThat(allocated, is(lessThan(64L * 1024)));
+        }
+    }
+
+    @Test
+    void should_copy_views_and_unaligned_records() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment source = arena.allocate(Measurement.LAYOUT.byteSize() * 2);
+            Fixtures.measurement(1).copyTo(source);
+            Fixtures.measurement(2).copyTo(source, Measurement.LAYOUT.byteSize());
+            // a record at an odd offset, as in a packed file
+            MemorySegment target = arena.allocate(Measurement.LAYOUT.byteSize() + 1).asSlice(1);
+
+            Measurement.View.over(source).at(1).copyTo(target);
+
+            assertThat(Measurement.View.over(target), is(equalTo(Fixtures.measurement(2))));
+            assertThrows(IndexOutOfBoundsException.class, () -> Measurement.View.over(source).at(2));
+            assertThrows(IndexOutOfBoundsException.class, () -> Fixtures.measurement(3).copyTo(target, 1));
+        }
+    }
+
+    @Test
+    void should_hash_views_like_instances() {
+        // Measurement is also generated with builder.hash64
+        Measurement measurement = Fixtures.measurement(7);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(Measurement.LAYOUT);
+            measurement.copyTo(segment);
+
+            assertThat(Measurement.View.over(segment).hash64(), is(measurement.hash64()));
+        }
+    }
+
+    @Test
+    void should_materialize_on_with() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(Flags.LAYOUT);
+            Flags flags = Flags.builder()
+                    .enabled(true)
+                    .secure(true)
+                    .compressed(false)
+                    .retried(true)
+                    .logged(false)
+                    .traced(true)
+                    .pooled(false)
+                    .shared(true)
+                    .readOnly(false)
+                    .async(true)
+                    .strict(false)
+                    .priority((byte) 3)
+                    .weight((short) -2)
+                    .grade('b')
+                    .build();
+            flags.copyTo(segment);
+            Flags.View view = Flags.View.over(segment);
+
+            Flags changed = view.withSecure(false);
+
+            assertThat(view.secure(), is(true));
+            assertThat(changed, is(not(sameInstance(view))));
+            assertThat(changed, is(equalTo(flags.withSecure(false))));
+            assertThat(view.cached(), is(true));
+        }
+    }
+
+    private static long scan(Measurement.View view) {
+        long sum = 0;
+        for (long i = 0; i < view.count(); i++) {
+            view.at(i);
+            sum += view.sensor() + view.quality();
+        }
+        return sum;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+}
@@ -5,6 +5,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.Test;
@@ -60,4 +62,20 @@ public class OptionaSupportTest {
         assertThat(o, not(equalTo(o2)));
         assertThat(02, not(equalTo(o)));
     }
+
+    @Test
+    void should_read_without_optional() {
+        OptionalSupport empty = OptionalSupport.builder().build();
+        OptionalSupport present = OptionalSupport.builder().name("khaled").build();
+
+        assertThat(empty.nameOrNull(), is(nullValue()));
+        assertThat(empty.nameOrElse("other"), is("other"));
+        assertThat(empty.name(), is(sameInstance(Optional.empty())));
+        assertThat(present.nameOrNull(), is("khaled"));
+        assertThat(present.nameOrElse("other"), is("khaled"));
+        assertThat(present.name(), is(equalTo(Optional.of("khaled"))));
+        assertThat(present.toString(), is(equalTo("OptionalSupportImpl{name=Optional[khaled]}")));
+        assertThat(present.hashCode(), is(31 + Optional.of("khaled").hashCode()));
+        assertThat(present.toBuilder().build(), is(equalTo(present)));
+    }
 }
@@ -0,0 +1,80 @@
+package com.khaled.tests;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class PrimitiveListTest {
+
+    // SingularSupport and SupportAllDefault are generated with builder.primitiveLists
+    @Test
+    void should_store_primitives() {
+        SingularSupport prototype = singularSupport();
+
+        assertThat(prototype.s(), is(equalTo(List.of(1, 3, 2, 4, 45))));
+        assertArrayEquals(new int[]{1, 3, 2, 4, 45}, prototype.sArray());
+        assertThat(prototype.sStream().sum(), is(55));
+        assertThat(prototype.sAt(4), is(45));
+        assertThat(prototype.s().hashCode(), is(List.of(1, 3, 2, 4, 45).hashCode()));
+    }
+
+    @Test
+    void should_not_expose_storage() {
+        SingularSupport prototype = singularSupport();
+
+        prototype.sArray()[0] = 100;
+
+        assertThat(prototype.sAt(0), is(1));
+        assertThrows(UnsupportedOperationException.class, () -> prototype.s().add(3));
+    }
+
+    @Test
+    void should_be_equal() {
+        assertThat(singularSupport(), equalTo(singularSupport()));
+        assertThat(singularSupport().hashCode(), equalTo(singularSupport().hashCode()));
+    }
+
+    @Test
+    void should_keep_the_elements_on_a_null_element() {
+        SingularSupport.Builder builder = SingularSupport.builder().s(List.of(1, 3));
+
+        assertThrows(NullPointerException.class, () -> builder.addS(Arrays.asList(2, null)));
+        assertThrows(NullPointerException.class, () -> builder.s(Arrays.asList(5, null)));
+
+        assertThat(builder.s(), is(equalTo(List.of(1, 3))));
+        SingularSupport prototype = builder.build();
+        assertThat(prototype.s(), is(sameInstance(prototype.s())));
+    }
+
+    @Test
+    void should_set_primitive_default() {
+        SupportAllDefault prototype = SupportAllDefault.builder().build();
+
+        assertArrayEquals(new long[]{2332332342L, 324234243L}, prototype.longsArray());
+        assertArrayEquals(new double[]{1, 2, 3, 4, 6}, prototype.doublesArray());
+        assertThat(prototype.intsStream().sum(), is(15));
+    }
+
+    private static SingularSupport singularSupport() {
+        return SingularSupport.builder()
+                .s(List.of(1, 3))
+                .addS(List.of(2, 4))
+                .addS(45)
+                .word(List.of("a"))
+                .numbers(Set.of(1))
+                .l(Set.of(1L))
+                .simple(List.of("b"))
+                .build();
+    }
+}
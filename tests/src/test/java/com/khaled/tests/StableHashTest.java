@@ -0,0 +1,133 @@
+package com.khaled.tests;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinarySupport, Measurement, Simple, MapSupport and EnumSupport are generated with builder.hash64
+ *
+ * @author khaled
+ */
+public class StableHashTest {
+
+    private static final int COUNT = 1_000_000;
+
+    @Test
+    void should_match_xxh64_reference_values() {
+        assertThat(xxh64(""), is(0xEF46DB3751D8E999L));
+        assertThat(xxh64("a"), is(0xD24EC4F1A98C6E5BL));
+        assertThat(xxh64("abc"), is(0x44BC2CF5AD770999L));
+        // more than one 32 bytes stripe
+        assertThat(xxh64("Nobody inspects the spammish repetition"), is(0xFBCEA83C8A378BF1L));
+    }
+
+    @Test
+    void should_stream_typed_values_as_little_endian_bytes() {
+        Simple.Hasher typed = new Simple.Hasher(7)
+                .putByte((byte) 1)
+                .putInt(0x05040302)
+                .putLong(0x0D0C0B0A09080706L);
+        byte[] bytes = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13};
+
+        assertThat(typed.hash(), is(new Simple.Hasher(7).putBytes(bytes).hash()));
+        assertThat(typed.reset().putBytes(bytes).hash(), is(new Simple.Hasher(7).putBytes(bytes).hash()));
+    }
+
+    @Test
+    void should_not_depend_on_the_jvm() {
+        Simple simple = Simple.builder().name("khaled").age(34).build();
+        // name length, name chars and age, little endian
+        byte[] encoded = {6, 0, 0, 0, 'k', 0, 'h', 0, 'a', 0, 'l', 0, 'e', 0, 'd', 0, 34, 0, 0, 0};
+
+        assertThat(simple.hash64(), is(new Simple.Hasher().putBytes(encoded).hash()));
+        // fixed values: the hash of a prototype must never change across runs, JVMs and releases
+        assertThat(simple.hash64(), is(0x76F3C2BE33712DCEL));
+        assertThat(simple.hash64(42), is(0x35FDE28BD8B85EC4L));
+    }
+
+    @Test
+    void should_ignore_the_iteration_order_of_sets_and_maps() {
+        Set<Double> ascending = new LinkedHashSet<>(List.of(1.0, 2.0, 3.0));
+        Set<Double> descending = new LinkedHashSet<>(List.of(3.0, 2.0, 1.0));
+        Map<String, Integer> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", 2);
+        Map<String, Integer> second = new LinkedHashMap<>();
+        second.put("b", 2);
+        second.put("a", 1);
+
+        BinarySupport left = Fixtures.binarySupport().tags(List.of("a")).weights(ascending).limits(first).build();
+        BinarySupport right = Fixtures.binarySupport().tags(List.of("a")).weights(descending).limits(second).build();
+
+        assertThat(left.hash64(), is(right.hash64()));
+        assertThat(left.withLimits(Map.of("a", 2, "b", 1)).hash64(), is(not(left.hash64())));
+        assertThat(left.withTags(List.of("x", "y")).hash64(), is(not(left.withTags(List.of("y", "x")).hash64())));
+
+        MapSupport maps = MapSupport.builder().putOffset(1, 2L).putOffset(3, 4L).build();
+        assertThat(maps.hash64(), is(MapSupport.builder().putOffset(3, 4L).putOffset(1, 2L).build().hash64()));
+        assertThat(maps.hash64(), is(not(MapSupport.builder().putOffset(1, 4L).putOffset(3, 2L).build().hash64())));
+    }
+
+    @Test
+    void should_hash_views_like_instances() {
+        Measurement measurement = Fixtures.measurement(7);
+
+        // OffHeapTest hashes the off-heap views
+        assertThat(new Measurement.Batch().append(measurement).get(0).hash64(), is(measurement.hash64()));
+        assertThat(measurement.hash64(1), is(not(measurement.hash64())));
+    }
+
+    @Test
+    void should_not_collide_on_sequential_values() {
+        Set<Long> hashes = new HashSet<>();
+        Set<Long> low = new HashSet<>();
+        int[] shards = new int[64];
+        for (int i = 0; i < COUNT; i++) {
+            long hash = Fixtures.measurement(i).hash64();
+            hashes.add(hash);
+            low.add(hash & 0xFFFFFFFFL);
+            shards[(int) (hash >>> 58)]++;
+        }
+
+        // a million 64-bit hashes collide with a probability of 2.7e-8
+        assertThat(hashes.size(), is(COUNT));
+        // about 116 collisions are expected on the 32 low bits
+        assertThat(COUNT - low.size(), is(lessThan(250)));
+        for (int shard : shards) {
+            assertThat(Math.abs(shard - COUNT / 64), is(lessThan(COUNT / 64 / 20)));
+        }
+    }
+
+    @Test
+    void should_not_collide_on_realistic_records() {
+        Set<Long> hashes = new HashSet<>();
+        int count = 0;
+        for (int age = 0; age < 100; age++) {
+            for (int i = 0; i < 2_000; i++) {
+                hashes.add(Simple.builder().name("user-" + i).age(age).build().hash64());
+                count++;
+            }
+        }
+        // instances that only differ by an enum or a boolean
+        hashes.add(EnumSupport.builder().threshold(Level.INFO).enabled(true).build().hash64());
+        hashes.add(EnumSupport.builder().threshold(Level.INFO).enabled(false).build().hash64());
+        hashes.add(EnumSupport.builder().threshold(Level.WARN).enabled(true).build().hash64());
+        count += 3;
+
+        assertThat(hashes.size(), is(count));
+    }
+
+    private static long xxh64(String value) {
+        return new Simple.Hasher().putBytes(value.getBytes(StandardCharsets.US_ASCII)).hash();
+    }
+}
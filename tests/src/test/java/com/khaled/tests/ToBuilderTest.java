@@ -0,0 +1,72 @@
+package com.khaled.tests;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class ToBuilderTest {
+
+    @Test
+    void should_copy_prototype() {
+        AllSupport prototype = allSupport();
+
+        AllSupport copy = prototype.toBuilder().build();
+
+        assertThat(copy, is(equalTo(prototype)));
+        assertThat(copy, is(not(sameInstance(prototype))));
+    }
+
+    @Test
+    void should_share_untouched_properties() {
+        AllSupport prototype = allSupport();
+
+        AllSupport changed = prototype.toBuilder()
+                .age(35)
+                .build();
+
+        assertThat(changed.age(), is(35));
+        assertThat(changed.words(), is(sameInstance(prototype.words())));
+        assertThat(changed.name(), is(sameInstance(prototype.name())));
+        assertThat(changed.opt(), is(equalTo(Optional.of(23))));
+    }
+
+    @Test
+    void should_copy_mutated_collection_only() {
+        SingularSupport prototype = SingularSupport.builder()
+                .word(List.of("a"))
+                .numbers(Set.of(1))
+                .s(List.of(1, 2))
+                .build();
+
+        SingularSupport changed = SingularSupport.builder()
+                .from(prototype)
+                .addWord("b")
+                .addS(3)
+                .build();
+
+        assertThat(prototype.word(), is(equalTo(List.of("a"))));
+        assertThat(prototype.s(), is(equalTo(List.of(1, 2))));
+        assertThat(changed.word(), is(equalTo(List.of("a", "b"))));
+        assertThat(changed.s(), is(equalTo(List.of(1, 2, 3))));
+        assertThat(changed.numbers(), is(sameInstance(prototype.numbers())));
+    }
+
+    private static AllSupport allSupport() {
+        return AllSupport.builder()
+                .words(List.of("a", "b"))
+                .name("khaled")
+                .opt(23)
+                .age(34)
+                .build();
+    }
+}
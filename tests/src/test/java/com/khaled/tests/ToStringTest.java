@@ -0,0 +1,83 @@
+package com.khaled.tests;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class ToStringTest {
+
+    @Test
+    void should_render_properties() {
+        Simple simple = Simple.builder()
+                .name("khaled")
+                .age(34)
+                .build();
+
+        assertThat(simple.toString(), equalTo("SimpleImpl{name=khaled, age=34}"));
+        assertThat(simple.appendTo(new StringBuilder("> ")).toString(), equalTo("> SimpleImpl{name=khaled, age=34}"));
+    }
+
+    @Test
+    void should_render_optional() {
+        AllSupport o = AllSupport.builder()
+                .words(List.of("a", "b"))
+                .name("khaled")
+                .opt(23)
+                .age(34)
+                .build();
+
+        assertThat(o.toString(), equalTo("AllSupportImpl{words=[a, b], name=khaled, age=34, opt=Optional[23]}"));
+    }
+
+    @Test
+    void should_limit_collection_elements() {
+        // tests are generated with builder.toStringMaxElements=16
+        List<String> words = IntStream.range(0, 50_000)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.toList());
+        AllSupport o = AllSupport.builder()
+                .words(words)
+                .name("khaled")
+                .age(34)
+                .build();
+
+        String rendered = o.toString();
+        assertThat(rendered.length(), lessThan(200));
+        assertThat(rendered, equalTo("AllSupportImpl{words=[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, ...(49984 more)],"
+                + " name=khaled, age=34, opt=Optional.empty}"));
+    }
+
+    @Test
+    void should_only_render_the_count_when_limited_to_zero() {
+        // CollectionSupport is generated with builder.toStringMaxElements=CollectionSupportBlueprint:0
+        CollectionSupport limited = CollectionSupport.builder()
+                .list(List.of("a", "b", "c"))
+                .set(Set.of(1))
+                .build();
+
+        assertThat(limited.toString(), equalTo("CollectionSupportImpl{list=[...(3 more)], set=[...(1 more)]}"));
+        assertThat(limited.toBuilder().list(List.of()).build().toString(),
+                equalTo("CollectionSupportImpl{list=[], set=[...(1 more)]}"));
+    }
+
+    @Test
+    void should_cache_to_string() {
+        // AllSupport is generated with builder.cacheToString
+        AllSupport o = AllSupport.builder()
+                .name("khaled")
+                .age(34)
+                .build();
+
+        assertThat(o.toString(), sameInstance(o.toString()));
+    }
+}
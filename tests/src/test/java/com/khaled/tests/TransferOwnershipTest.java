@@ -0,0 +1,78 @@
+package com.khaled.tests;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class TransferOwnershipTest {
+
+    // SingularSupport is generated with builder.transferOwnership
+    @Test
+    void should_hand_over_collections() {
+        SingularSupport.Builder builder = builder();
+
+        SingularSupport prototype1 = builder.build();
+        SingularSupport prototype2 = builder.build();
+
+        assertThat(prototype1.word(), is(sameInstance(prototype2.word())));
+        assertThat(prototype1, is(equalTo(prototype2)));
+        assertThrows(UnsupportedOperationException.class, () -> prototype1.word().add("x"));
+    }
+
+    @Test
+    void should_copy_on_write_after_build() {
+        SingularSupport.Builder builder = builder();
+        SingularSupport prototype = builder.build();
+
+        builder.addWord("c")
+                .addNumber(4)
+                .addS(5);
+
+        assertThat(prototype.word(), is(equalTo(List.of("a", "b"))));
+        assertThat(prototype.numbers(), is(equalTo(Set.of(1, 2, 3))));
+        assertThat(Arrays.stream(prototype.sArray()).boxed().toList(), is(equalTo(List.of(1, 2))));
+        assertThat(builder.build().word(), is(equalTo(List.of("a", "b", "c"))));
+    }
+
+    @Test
+    void should_not_hand_out_the_owned_collections() {
+        SingularSupport.Builder builder = builder();
+        List<String> words = builder.word();
+        Set<Integer> numbers = builder.numbers();
+
+        SingularSupport prototype = builder.build();
+
+        assertThrows(UnsupportedOperationException.class, () -> words.add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> numbers.remove(1));
+        assertThat(prototype.word(), is(equalTo(List.of("a", "b"))));
+        assertThat(prototype.numbers(), is(equalTo(Set.of(1, 2, 3))));
+    }
+
+    @Test
+    void should_reject_null_elements() {
+        SingularSupport.Builder builder = builder()
+                .addWord(Arrays.asList("c", null));
+
+        assertThrows(NullPointerException.class, builder::build);
+    }
+
+    private static SingularSupport.Builder builder() {
+        return SingularSupport.builder()
+                .addWord("a")
+                .addWord("b")
+                .addNumbers(Set.of(1, 2, 3))
+                .addS(1)
+                .addS(2)
+                .addL(3L);
+    }
+}
@@ -1,5 +1,8 @@
 package com.khaled.tests;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.Test;
 
@@ -21,4 +24,48 @@ public class ValidateTest {
                 .age(3).build();
         });
     }
+
+    @Test
+    void should_list_every_missing_property() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, ()->{
+            AsyncConfig.builder()
+                .value("")
+                .intValue(3)
+                .build();
+        });
+
+        assertThat(exception.getMessage(), is(equalTo("properties booleanValue, byteValue, charValue, doubleValue, "
+                + "floatValue, shortValue must be initialized before building")));
+    }
+
+    @Test
+    void should_track_properties_past_64() {
+        ManyRequired.Builder builder = ManyRequired.builder();
+        for (int i = 0; i < 66; i++) {
+            setValue(builder, i);
+        }
+        ManyRequired built = builder.build();
+        assertThat(built.value65(), is(65));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, ()->{
+            ManyRequired.Builder missing = ManyRequired.builder();
+            for (int i = 0; i < 66; i++) {
+                if (i != 1 && i != 64) {
+                    setValue(missing, i);
+                }
+            }
+            missing.build();
+        });
+        assertThat(exception.getMessage(), is(equalTo("properties value1, value64 must be initialized before building")));
+
+        assertThat(built.toBuilder().value65(0).build().value65(), is(0));
+    }
+
+    private static void setValue(ManyRequired.Builder builder, int index) {
+        try {
+            ManyRequired.Builder.class.getMethod("value" + index, int.class).invoke(builder, index);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
 }
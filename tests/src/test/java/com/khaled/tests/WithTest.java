@@ -0,0 +1,107 @@
+package com.khaled.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author khaled
+ */
+public class WithTest {
+
+    @Test
+    void should_replace_single_property() {
+        AllSupport prototype = allSupport();
+
+        AllSupport changed = prototype.withAge(35);
+
+        assertThat(changed.age(), is(35));
+        assertThat(prototype.age(), is(34));
+        assertThat(changed.words(), is(sameInstance(prototype.words())));
+        assertThat(changed.name(), is(sameInstance(prototype.name())));
+        assertThat(changed.optOrNull(), is(sameInstance(prototype.optOrNull())));
+        assertThat(changed, is(equalTo(prototype.toBuilder().age(35).build())));
+    }
+
+    @Test
+    void should_return_same_instance_when_unchanged() {
+        AllSupport prototype = allSupport();
+
+        assertThat(prototype.withAge(34), is(sameInstance(prototype)));
+        assertThat(prototype.withName("khaled"), is(sameInstance(prototype)));
+        assertThat(prototype.withOpt(Optional.of(23)), is(sameInstance(prototype)));
+        assertThat(prototype.withWords(List.of("a", "b")), is(sameInstance(prototype)));
+    }
+
+    @Test
+    void should_compare_mutable_collections_before_copying_them() {
+        AllSupport prototype = allSupport();
+        List<String> words = new ArrayList<>(List.of("a", "b"));
+
+        assertThat(prototype.withWords(words), is(sameInstance(prototype)));
+
+        words.add("c");
+        AllSupport changed = prototype.withWords(words);
+        words.clear();
+
+        assertThat(changed.words(), is(equalTo(List.of("a", "b", "c"))));
+    }
+
+    @Test
+    void should_clear_optional() {
+        AllSupport prototype = allSupport();
+
+        AllSupport changed = prototype.withOpt(Optional.empty());
+
+        assertThat(changed.opt(), is(Optional.empty()));
+        assertThat(changed, is(not(equalTo(prototype))));
+    }
+
+    @Test
+    void should_copy_collections() {
+        SingularSupport prototype = SingularSupport.builder()
+                .word(List.of("a"))
+                .numbers(Set.of(1))
+                .s(List.of(1, 2))
+                .build();
+        int[] values = {3, 4};
+
+        SingularSupport changed = prototype
+                .withWord(List.of("b"))
+                .withS(values);
+        values[0] = 5;
+
+        assertThat(changed.word(), is(equalTo(List.of("b"))));
+        assertThat(changed.s(), is(equalTo(List.of(3, 4))));
+        assertThat(changed.numbers(), is(sameInstance(prototype.numbers())));
+        assertThat(prototype.s(), is(equalTo(List.of(1, 2))));
+        assertThat(prototype.withS(new int[]{1, 2}), is(sameInstance(prototype)));
+    }
+
+    @Test
+    void should_reject_null() {
+        AllSupport prototype = allSupport();
+
+        assertThrows(NullPointerException.class, () -> prototype.withName(null));
+        assertThrows(NullPointerException.class, () -> prototype.withOpt(null));
+        assertThrows(NullPointerException.class, () -> prototype.withWords(null));
+    }
+
+    private static AllSupport allSupport() {
+        return AllSupport.builder()
+                .words(List.of("a", "b"))
+                .name("khaled")
+                .opt(23)
+                .age(34)
+                .build();
+    }
+}